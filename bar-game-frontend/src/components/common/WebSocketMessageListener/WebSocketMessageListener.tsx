@@ -1,6 +1,6 @@
 import { useEffect, useCallback, useRef } from 'react'
 import { useWebSocketStore } from '../../../store/websocketStore'
-import { connectWebSocket, disconnectWebSocket } from '../../../utils/WsConnection.js'
+import { acceptStreamEvent, connectWebSocket, disconnectWebSocket } from '../../../utils/WsConnection.js'
 import { getLastHeartbeatSentAt, startHeartbeat, stopHeartbeat } from '../../../utils/WsConnection.js'
 import useAuthStore from '../../../store/authStore'
 import type { WebSocketMessage, SystemReconnectPayload } from '../../../types/websocketMessages'
@@ -134,6 +134,11 @@ const WebSocketMessageListener = ({
       try {
         const message: WebSocketMessage = JSON.parse(event.data)
 
+        // 丢弃重连补发与实时推送之间的重复事件
+        if (!acceptStreamEvent(message)) {
+          return
+        }
+
         if (debug) {
           console.log('WebSocket: 收到消息', message)
         }
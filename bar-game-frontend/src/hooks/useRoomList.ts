@@ -1,10 +1,15 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useCallback } from 'react';
 import { getRoomList } from '../utils/getRoomList';
 import type { RoomListResponse, GetRoomListParams } from '../utils/getRoomList';
 import { useAuthStore } from '../store/authStore';
+import { useWebSocketStore } from '../store/websocketStore';
+import { MessageModule } from '../types/websocketMessages';
+import HallService from '../services/hallService';
+import type { RoomDirectoryDelta } from '../services/hallService';
 
 /**
  * 获取房间列表的自定义Hook
+ * WebSocket已连接时订阅房间目录，由服务端推送增量，无需轮询
  * @param autoLoad 是否在组件挂载时自动加载房间列表，默认为true
  * @returns 返回房间列表、加载状态、错误信息和重新加载函数
  */
@@ -40,12 +45,51 @@ export const useRoomList = (autoLoad: boolean = true) => {
     }
   };
 
-  // 组件挂载时自动加载房间列表
+  // 合并服务端推送的房间目录增量
+  const handleDirectoryPush = useCallback((message: any) => {
+    const delta = message.data as RoomDirectoryDelta | undefined;
+    if (!delta) {
+      return;
+    }
+    setRoomList(prev => {
+      if (!prev) {
+        return prev;
+      }
+      const rooms = HallService.applyRoomDirectoryDelta(prev.rooms, delta);
+      const total = Math.max(0, prev.total + rooms.length - prev.rooms.length);
+      return { ...prev, rooms, total };
+    });
+  }, []);
+
+  const isConnected = useWebSocketStore(state => state.isConnected);
+
+  // 组件挂载时自动加载房间列表；连接就绪后改为订阅推送
   useEffect(() => {
-    if (autoLoad && isAuthenticated) {
+    if (!autoLoad || !isAuthenticated) {
+      return;
+    }
+    if (!isConnected) {
       loadRoomList();
+      return;
     }
-  }, [autoLoad, isAuthenticated]);
+
+    const { registerHandler, unregisterHandler } = useWebSocketStore.getState();
+    registerHandler({
+      module: MessageModule.HALL,
+      cmd: 'ROOM_DIRECTORY_PUSH',
+      handler: handleDirectoryPush,
+      description: '处理房间目录增量推送'
+    });
+
+    HallService.subscribeRoomDirectory({ limit: 10 })
+      .then(snapshot => setRoomList(snapshot))
+      .catch(() => loadRoomList());
+
+    return () => {
+      unregisterHandler(MessageModule.HALL, 'ROOM_DIRECTORY_PUSH');
+      HallService.unsubscribeRoomDirectory().catch(() => undefined);
+    };
+  }, [autoLoad, isAuthenticated, isConnected, handleDirectoryPush]);
 
   return {
     roomList,
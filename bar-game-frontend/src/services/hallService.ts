@@ -1,5 +1,6 @@
 import { MessageModule } from '../types/websocketMessages';
 import useWebSocketStore from '../store/websocketStore';
+import type { RoomListResponse, RoomVO } from '../utils/getRoomList';
 
 // 在线用户类型定义
 export interface OnlineUser {
@@ -16,6 +17,20 @@ export interface OnlineListResponse {
   onlineUsers: OnlineUser[];
 }
 
+// 房间目录订阅参数
+export interface RoomDirectorySubscribeParams {
+  gameMode?: string; // 游戏模式过滤，为空表示全部
+  hasSlots?: boolean; // 只关注可加入的房间
+  limit?: number; // 首屏快照条目数量
+}
+
+// 房间目录增量推送
+export interface RoomDirectoryDelta {
+  added: RoomVO[];
+  changed: RoomVO[];
+  removed: number[];
+}
+
 /**
  * 大厅服务类
  * 处理大厅相关的API请求
@@ -46,6 +61,57 @@ export class HallService {
       throw error;
     }
   }
+
+  /**
+   * 订阅房间目录，返回首屏快照；之后服务端通过 ROOM_DIRECTORY_PUSH 推送增量
+   * @param params 订阅过滤条件
+   * @returns Promise<RoomListResponse> 首屏房间列表
+   */
+  static async subscribeRoomDirectory(params: RoomDirectorySubscribeParams = {}): Promise<RoomListResponse> {
+    const { sendMessage } = useWebSocketStore.getState();
+
+    const response = await sendMessage({
+      module: MessageModule.HALL,
+      cmd: 'ROOM_DIRECTORY_SUBSCRIBE',
+      code: 200,
+      msg: 'success',
+      data: params
+    });
+
+    if (response.code === 200 && response.data) {
+      return response.data as RoomListResponse;
+    }
+    throw new Error(response.msg || '订阅房间目录失败');
+  }
+
+  /**
+   * 取消订阅房间目录
+   */
+  static async unsubscribeRoomDirectory(): Promise<void> {
+    const { sendMessage } = useWebSocketStore.getState();
+    await sendMessage({
+      module: MessageModule.HALL,
+      cmd: 'ROOM_DIRECTORY_UNSUBSCRIBE',
+      code: 200,
+      msg: 'success'
+    });
+  }
+
+  /**
+   * 将增量合并进房间列表（按roomId覆盖，快照与首个增量重叠时同样适用）
+   */
+  static applyRoomDirectoryDelta(rooms: RoomVO[], delta: RoomDirectoryDelta): RoomVO[] {
+    const removed = new Set(delta.removed || []);
+    const updates = new Map<number, RoomVO>();
+    [...(delta.added || []), ...(delta.changed || [])].forEach(room => updates.set(room.roomId, room));
+
+    const merged = rooms
+      .filter(room => !removed.has(room.roomId))
+      .map(room => updates.get(room.roomId) ?? room);
+    const known = new Set(merged.map(room => room.roomId));
+    const fresh = (delta.added || []).filter(room => !known.has(room.roomId));
+    return [...fresh, ...merged];
+  }
 }
 
 export default HallService;
\ No newline at end of file
@@ -147,6 +147,13 @@ export class WebRTCManager {
       cmd: 'WEBRTC_ICE_CANDIDATE',
       handler: this.handleIceCandidateMessage.bind(this)
     });
+
+    // 注册ICE候选合并推送处理器（服务端把短时间内到达的候选合并为一帧）
+    registerHandler({
+      module: 'ROOM' as MessageModule,
+      cmd: 'WEBRTC_ICE_CANDIDATE_BATCH',
+      handler: this.handleIceCandidateBatchMessage.bind(this)
+    });
     this.handlersRegistered = true;
   }
 
@@ -159,6 +166,7 @@ export class WebRTCManager {
     unregisterHandler('ROOM' as MessageModule, 'WEBRTC_OFFER');
     unregisterHandler('ROOM' as MessageModule, 'WEBRTC_ANSWER');
     unregisterHandler('ROOM' as MessageModule, 'WEBRTC_ICE_CANDIDATE');
+    unregisterHandler('ROOM' as MessageModule, 'WEBRTC_ICE_CANDIDATE_BATCH');
     this.handlersRegistered = false;
   }
 
@@ -336,6 +344,20 @@ export class WebRTCManager {
     }
   }
 
+  /**
+   * 处理ICE候选合并推送：按顺序逐条处理
+   */
+  private async handleIceCandidateBatchMessage(message: WebSocketMessage): Promise<void> {
+    if (!message.data) return;
+
+    const { from, to, candidates } = message.data;
+    if (!Array.isArray(candidates)) return;
+
+    for (const candidate of candidates) {
+      await this.handleIceCandidateMessage({ ...message, data: { from, to, data: candidate } });
+    }
+  }
+
   /**
    * 发送信令消息
    */
@@ -584,4 +606,4 @@ export class WebRTCManager {
     this.pendingIceCandidates.clear();
     this.handlersRegistered = false;
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
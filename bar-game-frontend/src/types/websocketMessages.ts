@@ -18,7 +18,9 @@ export const StatusCode = {
   SUCCESS: 200,           // 成功
   PARAM_ERROR: 400,       // 参数错误
   FORBIDDEN: 403,         // 无权限
+  TOO_MANY_REQUESTS: 429, // 操作过于频繁，data.retryAfterMs 为建议重试等待时间
   SERVER_ERROR: 500,      // 服务器错误
+  SERVICE_UNAVAILABLE: 503, // 服务器过载，data.retryAfterMs 为建议重试等待时间
   BUSINESS_ERROR: 1000    // 业务异常起始值
 } as const;
 
@@ -32,6 +34,8 @@ export interface BaseWebSocketMessage {
   code: StatusCode;        // 状态码
   msg: string;             // 状态描述
   data?: any;              // 业务数据体
+  stream?: string;         // 事件流标识（如 game:1001），仅事件流推送携带
+  seq?: number;            // 事件流序号，仅事件流推送携带
 }
 
 // 请求消息结构（需要requestId）
@@ -190,6 +194,10 @@ export const RoomCommand = {
   PLAYER_LEAVE: 'PLAYER_LEAVE', // 玩家离开
   PLAYER_PREPARE: 'PLAYER_PREPARE', // 玩家准备状态变化
   PLAYER_CANCEL_PREPARE: 'PLAYER_CANCEL_PREPARE', // 玩家取消准备
+
+  // 房间聊天
+  ROOM_CHAT: 'ROOM_CHAT',       // 发送聊天消息
+  ROOM_CHAT_PUSH: 'ROOM_CHAT_PUSH', // 聊天合并推送（history为true时为历史记录）
 } as const;
 
 export type RoomCommand = typeof RoomCommand[keyof typeof RoomCommand];
@@ -394,4 +402,7 @@ export interface SystemReconnectPayload {
   playerIds?: number[]; // 游戏中所有玩家ID列表（按座位顺序）
   handCards?: number[]; // 其他玩家手牌数量列表（按座位顺序对应playerIds）
   bulletCounts?: number[]; // 其他玩家子弹数量列表（按座位顺序对应playerIds）
+
+  // 快照对应的事件流序号（流标识 -> 序号）
+  streamSeqs?: Record<string, number>;
 }
\ No newline at end of file
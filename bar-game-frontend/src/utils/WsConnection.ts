@@ -14,6 +14,11 @@ let heartbeatTimer: number | null = null;
 const DEFAULT_HEARTBEAT_INTERVAL = 30000;
 // 最近一次心跳发送时间戳
 let lastHeartbeatSentAt: number | null = null;
+// 事件流补发游标：流标识 -> 最后收到的序号
+const streamCursors = new Map<string, number>();
+// 最近收到的事件流消息（stream:seq），用于丢弃重连补发与实时推送之间的重复消息
+const recentStreamEvents = new Set<string>();
+const MAX_RECENT_STREAM_EVENTS = 512;
 
 // WebSocket 连接状态
 export const WS_STATES = {
@@ -51,8 +56,9 @@ export function connectWebSocket(token: string): WebSocket | null {
     return null;
   }
 
-  // 构建 WebSocket URL，将 token 作为查询参数
-  const wsUrl = WS_CONFIG.getConnectionUrl(token);
+  // 构建 WebSocket URL，将 token 作为查询参数；携带补发游标以便服务端只补发缺失事件
+  const resume = buildResumeParam();
+  const wsUrl = WS_CONFIG.getConnectionUrl(token) + (resume ? `&resume=${encodeURIComponent(resume)}` : '');
 
   console.log('正在连接 WebSocket:', wsUrl);
 
@@ -178,4 +184,50 @@ export function stopHeartbeat(): void {
  */
 export function getLastHeartbeatSentAt(): number | null {
   return lastHeartbeatSentAt;
-}
\ No newline at end of file
+}
+
+/**
+ * 记录事件流消息并判断是否需要处理
+ * @param message 收到的消息
+ * @returns false 表示重复消息，应当丢弃
+ */
+export function acceptStreamEvent(message: { stream?: string; seq?: number }): boolean {
+  if (!message.stream || typeof message.seq !== 'number') {
+    return true;
+  }
+  const key = `${message.stream}:${message.seq}`;
+  if (recentStreamEvents.has(key)) {
+    return false;
+  }
+  recentStreamEvents.add(key);
+  if (recentStreamEvents.size > MAX_RECENT_STREAM_EVENTS) {
+    // Set 按插入顺序迭代，删除最早的记录
+    recentStreamEvents.delete(recentStreamEvents.values().next().value as string);
+  }
+  const cursor = streamCursors.get(message.stream) ?? 0;
+  if (message.seq > cursor) {
+    streamCursors.set(message.stream, message.seq);
+  }
+  return true;
+}
+
+/**
+ * 使用全量快照中的序号重置补发游标
+ * @param streamSeqs 流标识 -> 序号
+ */
+export function resetStreamCursors(streamSeqs?: Record<string, number>): void {
+  streamCursors.clear();
+  if (!streamSeqs) {
+    return;
+  }
+  Object.entries(streamSeqs).forEach(([stream, seq]) => streamCursors.set(stream, seq));
+}
+
+/**
+ * 构建 resume 查询参数，格式：game:1001:57,room:1000:12
+ */
+function buildResumeParam(): string {
+  return Array.from(streamCursors.entries())
+    .map(([stream, seq]) => `${stream}:${seq}`)
+    .join(',');
+}
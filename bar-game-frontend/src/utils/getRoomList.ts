@@ -35,12 +35,14 @@ export interface RoomListResponse {
   size: number;
   current: number;
   total: number;
+  nextCursor?: number | null; // 下一页游标，没有更多时为null
 }
 
 // 获取房间列表参数接口
 export interface GetRoomListParams {
   current: number; // 当前页码，从1开始
   size: number; // 每页大小，默认10
+  cursor?: number | null; // 上一页返回的nextCursor，传入后按游标翻页
 }
 
 /**
@@ -63,6 +65,9 @@ export const getRoomList = async (params: GetRoomListParams, token?: string): Pr
       current: params.current.toString(),
       size: params.size.toString(),
     });
+    if (params.cursor != null) {
+      queryParams.set('cursor', params.cursor.toString());
+    }
 
     const response = await fetch(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.ROOM_LIST}?${queryParams}`, {
       method: 'GET',
@@ -11,6 +11,7 @@ import { useRoomStore } from '../store/roomStore';
 import { useGameStore } from '../store/gameStore';
 import type { CreateRoomResponse, PlayerVO } from './createRoom';
 import { emitReconnectRouteTarget } from './reconnectSyncRoute';
+import { resetStreamCursors } from './WsConnection';
 
 // 在线用户缓存更新回调（由 useOnlineUsers 注册）
 let onlineUsersUpdateCallback: ((data: { onlineCount: number; onlineUsers: any[] }) => void) | null = null;
@@ -217,6 +218,9 @@ export const handleReconnectSync = (payload: SystemReconnectPayload, myPlayerId:
   console.log('[ReconnectSync] 开始处理重连同步数据...');
 
   try {
+    // 0. 以快照序号为准重置事件流补发游标
+    resetStreamCursors(payload.streamSeqs);
+
     // 1. 更新在线用户列表
     hydrateOnlineUsers(payload);
 
@@ -3,17 +3,25 @@ package com.lb.config;
 import com.lb.Auth.JWTAuthenticationEntryPoint;
 import com.lb.Auth.JwtAuthenticationFilter;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
 @Configuration
 public class SecurityConfig {
 
@@ -25,6 +33,13 @@ public class SecurityConfig {
     private UserDetailsService userDetailService;
     @Resource
     private PasswordEncoder passwordEncoder;
+
+    /**
+     * Prometheus抓取令牌，请求头 X-Metrics-Token 匹配时放行 /metrics；为空时只允许已登录用户访问
+     */
+    @Value("${metrics.scrape-token:}")
+    private String metricsScrapeToken;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         //configuration
@@ -33,6 +48,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authorizeHttpRequests -> authorizeHttpRequests.
                         requestMatchers("/user").authenticated().
                         requestMatchers("/home").permitAll().
+                        requestMatchers("/metrics").access((authentication, context) -> new AuthorizationDecision(
+                                matchesScrapeToken(context.getRequest())
+                                        || AuthenticatedAuthorizationManager.<RequestAuthorizationContext>authenticated()
+                                                .check(authentication, context).isGranted())).
                         requestMatchers("/auth/login").permitAll().
                         requestMatchers("/auth/create").permitAll().
                         requestMatchers("/ws/**").permitAll(). // WebSocket端点放行，由握手拦截器处理认证
@@ -42,6 +61,19 @@ public class SecurityConfig {
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
+
+    /**
+     * 校验Prometheus抓取令牌（常量时间比较）
+     */
+    private boolean matchesScrapeToken(HttpServletRequest request) {
+        String token = request.getHeader("X-Metrics-Token");
+        if (metricsScrapeToken == null || metricsScrapeToken.isEmpty() || token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(metricsScrapeToken.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Bean
     public DaoAuthenticationProvider doDaoAuthenticationProvider() {
         DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
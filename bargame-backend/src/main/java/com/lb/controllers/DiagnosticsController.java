@@ -0,0 +1,41 @@
+package com.lb.controllers;
+
+import com.lb.diagnostics.JfrRecordingService;
+import com.lb.entity.UserEntity;
+import jakarta.annotation.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/admin/diagnostics")
+public class DiagnosticsController {
+    @Resource
+    private JfrRecordingService jfrRecordingService;
+
+    /**
+     * 发起限时JFR录制，录制结束后以附件形式返回 .jfr 文件
+     * @param seconds 录制时长（秒），默认30
+     * @return .jfr 文件
+     */
+    @PostMapping("/jfr")
+    public ResponseEntity<byte[]> recordJfr(@RequestParam(defaultValue = "30") int seconds) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserEntity user)
+                || !jfrRecordingService.isAdmin(user.getEmail())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "无诊断权限");
+        }
+
+        byte[] content = jfrRecordingService.record(seconds);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"bargame-" + System.currentTimeMillis() + ".jfr\"")
+                .body(content);
+    }
+}
@@ -0,0 +1,87 @@
+package com.lb.controllers;
+
+import com.lb.entity.UserEntity;
+import com.lb.manager.LeaderboardManager;
+import com.lb.message.vo.hall.LeaderboardResponse;
+import jakarta.annotation.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/leaderboard")
+public class LeaderboardController {
+    /**
+     * 最大页码，超出时按最大页码查询
+     */
+    private static final int MAX_PAGE = 100_000;
+
+    /**
+     * 最大每页大小
+     */
+    private static final int MAX_SIZE = 100;
+
+    @Resource
+    private LeaderboardManager leaderboardManager;
+
+    /**
+     * 获取排行榜分页
+     * @param type 排行类型（WINS=胜场，RATING=积分），默认RATING
+     * @param current 当前页码，从1开始
+     * @param size 每页大小，默认20，最大100
+     * @return 排行榜响应，附带当前用户自身名次
+     */
+    @GetMapping("/list")
+    public ResponseEntity<LeaderboardResponse> getLeaderboard(
+            @RequestParam(defaultValue = "RATING") String type,
+            @RequestParam(defaultValue = "1") int current,
+            @RequestParam(defaultValue = "20") int size) {
+        LeaderboardManager.RankType rankType = parseRankType(type);
+        int limit = Math.min(MAX_SIZE, Math.max(1, size));
+        int page = Math.min(MAX_PAGE, Math.max(1, current));
+        // 按long计算后再收窄，避免页码与页大小相乘溢出
+        int offset = (int) Math.min(Integer.MAX_VALUE, (page - 1L) * limit);
+
+        LeaderboardResponse response = leaderboardManager.buildResponse(rankType, offset, limit, currentUserId());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取当前用户的名次
+     * @param type 排行类型（WINS=胜场，RATING=积分），默认RATING
+     * @return 排行条目，未上榜返回404
+     */
+    @GetMapping("/me")
+    public ResponseEntity<LeaderboardResponse.LeaderboardEntryVO> getMyRank(
+            @RequestParam(defaultValue = "RATING") String type) {
+        Long userId = currentUserId();
+        if (userId == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "用户未登录");
+        }
+
+        LeaderboardResponse.LeaderboardEntryVO entry = leaderboardManager.getEntry(parseRankType(type), userId);
+        if (entry == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "暂无排名");
+        }
+        return ResponseEntity.ok(entry);
+    }
+
+    private LeaderboardManager.RankType parseRankType(String type) {
+        try {
+            return LeaderboardManager.RankType.fromName(type);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "不支持的排行类型：" + type);
+        }
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserEntity currentUser) {
+            return currentUser.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.lb.controllers;
+
+import com.lb.metrics.MetricsRegistry;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Prometheus抓取接口（text exposition format 0.0.4）
+     */
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        return metricsRegistry.scrape();
+    }
+}
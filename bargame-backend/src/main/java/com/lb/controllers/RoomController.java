@@ -4,13 +4,14 @@ import com.lb.entity.Room;
 import com.lb.message.vo.room.RoomVO;
 import com.lb.service.imp.RoomService;
 import com.lb.entity.UserEntity;
-import com.lb.dto.resp.RoomResponse;
+import com.lb.util.VersionedResponseCache;
 import jakarta.annotation.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 @RestController
@@ -47,33 +48,45 @@ public class RoomController {
     }
 
     /**
-     * 获取所有房间列表
-     * @param current 当前页码，从1开始
+     * 获取所有房间列表（按创建时间由新到旧）
+     * @param current 当前页码，从1开始（未传cursor时生效）
      * @param size 每页大小，默认10
-     * @return 房间列表响应
+     * @param cursor 上一页响应中的nextCursor，传入后按游标翻页
+     * @param status 房间状态过滤，可选
+     * @param gameMode 游戏模式过滤，可选
+     * @return 房间列表响应（JSON）；If-None-Match命中当前ETag时返回304
      */
     @GetMapping("/list")
-    public ResponseEntity<RoomResponse> getAllRooms(
+    public ResponseEntity<String> getAllRooms(
             @RequestParam(defaultValue = "1") int current,
-            @RequestParam(defaultValue = "10") int size) {
-        // 调用Service层获取房间列表
-        RoomResponse response = roomService.getAllRooms(current, size);
-        return ResponseEntity.ok(response);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Room.RoomStatus status,
+            @RequestParam(required = false) Room.GameMode gameMode,
+            WebRequest webRequest) {
+        // 调用Service层获取房间列表（按目录版本号缓存）
+        VersionedResponseCache.Entry entry = roomService.getAllRoomsCached(current, size, cursor, status, gameMode);
+        return VersionedResponseCache.respond(entry, webRequest);
     }
 
     /**
-     * 获取可加入的房间列表（等待中且未满）
-     * @param current 当前页码，从1开始
+     * 获取可加入的房间列表（等待中且未满，按创建时间由新到旧）
+     * @param current 当前页码，从1开始（未传cursor时生效）
      * @param size 每页大小，默认10
-     * @return 可加入房间列表响应
+     * @param cursor 上一页响应中的nextCursor，传入后按游标翻页
+     * @param gameMode 游戏模式过滤，可选
+     * @return 可加入房间列表响应（JSON）；If-None-Match命中当前ETag时返回304
      */
     @GetMapping("/available")
-    public ResponseEntity<RoomResponse> getAvailableRooms(
+    public ResponseEntity<String> getAvailableRooms(
             @RequestParam(defaultValue = "1") int current,
-            @RequestParam(defaultValue = "10") int size) {
-        // 调用Service层获取可加入房间列表
-        RoomResponse response = roomService.getAvailableRooms(current, size);
-        return ResponseEntity.ok(response);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Room.GameMode gameMode,
+            WebRequest webRequest) {
+        // 调用Service层获取可加入房间列表（按目录版本号缓存）
+        VersionedResponseCache.Entry entry = roomService.getAvailableRoomsCached(current, size, cursor, gameMode);
+        return VersionedResponseCache.respond(entry, webRequest);
     }
 
 }
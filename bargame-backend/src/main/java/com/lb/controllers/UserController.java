@@ -1,19 +1,22 @@
 package com.lb.controllers;
 
-import com.lb.dto.resp.UserResponseDto;
 import com.lb.entity.Player;
 import com.lb.entity.UserEntity;
 import com.lb.manager.UserStateManager;
 import com.lb.service.UserService;
+import com.lb.util.VersionedResponseCache;
 import lombok.extern.slf4j.Slf4j;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/user")
@@ -23,9 +26,28 @@ public class UserController {
     private UserService userService;
     @Autowired
     private UserStateManager userStateManager;
+    /**
+     * 按ID键集分页获取用户列表（JSON），If-None-Match命中当前ETag时返回304
+     * @param afterId 上一页响应中的nextCursor，不传表示第一页
+     * @param limit 每页大小，默认50
+     */
     @GetMapping
-    public ResponseEntity<List<UserResponseDto>> getAllUser(){
-        return new ResponseEntity<>( userService.getAllUser(), HttpStatus.OK);
+    public ResponseEntity<String> getAllUser(@RequestParam(required = false) Long afterId,
+                                             @RequestParam(defaultValue = "50") int limit,
+                                             WebRequest webRequest){
+        return VersionedResponseCache.respond(userService.getUserPageCached(afterId, limit), webRequest);
+    }
+
+    /**
+     * 流式导出用户列表：以JSON数组逐行写出ID大于afterId的全部用户
+     * @param afterId 起始游标，不传表示从头开始
+     */
+    @GetMapping(params = "stream=true")
+    public void streamAllUser(@RequestParam(required = false) Long afterId,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        userService.streamUsers(afterId, response.getOutputStream());
     }
 
     @GetMapping("/info")
@@ -0,0 +1,31 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：广播组写出一条消息
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.BroadcastEvent")
+@Label("Broadcast")
+@Category({"BarGame", "WebSocket"})
+@Description("广播组写出一条消息")
+public class BroadcastEvent extends Event {
+
+    @Label("Group")
+    public String group;
+
+    @Label("Fan-out")
+    public int fanout;
+
+    @Label("Bytes")
+    @DataAmount
+    public int bytes;
+}
@@ -0,0 +1,32 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：Dispatcher分发并处理一条消息
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.DispatchEvent")
+@Label("Dispatch")
+@Category({"BarGame", "WebSocket"})
+@Description("Dispatcher分发并处理一条消息")
+public class DispatchEvent extends Event {
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Module")
+    public String module;
+
+    @Label("Command")
+    public String cmd;
+
+    @Label("Response Code")
+    public int code;
+}
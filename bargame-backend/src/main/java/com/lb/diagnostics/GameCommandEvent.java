@@ -0,0 +1,32 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：GameService处理一条游戏命令
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.GameCommandEvent")
+@Label("Game Command")
+@Category({"BarGame", "Game"})
+@Description("GameService处理一条游戏命令")
+public class GameCommandEvent extends Event {
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Game Id")
+    public long gameId;
+
+    @Label("Command")
+    public String cmd;
+
+    @Label("Response Code")
+    public int code;
+}
@@ -0,0 +1,26 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：WebSocket握手阶段的JWT认证
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.HandshakeAuthEvent")
+@Label("Handshake Auth")
+@Category({"BarGame", "WebSocket"})
+@Description("WebSocket握手阶段的JWT认证")
+public class HandshakeAuthEvent extends Event {
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Success")
+    public boolean success;
+}
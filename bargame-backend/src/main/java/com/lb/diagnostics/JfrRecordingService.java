@@ -0,0 +1,121 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JFR录制服务
+ * 职责：按需启动限时的JDK Flight Recorder录制（profile配置 + 本服务的自定义事件），结束后返回 .jfr 文件内容
+ *
+ * 同一时刻只允许一个录制；只有 diagnostics.admin-emails 中配置的用户可以发起，未配置时接口关闭
+ *
+ * 自定义事件随每条消息、每次分发和每次数据库调用产生，全部记录但不采集调用栈；
+ * 调用栈只来自profile配置中本就带栈的低频事件（超过阈值的锁等待、线程挂起、文件/套接字IO等慢或阻塞事件）
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class JfrRecordingService {
+
+    private static final List<Class<? extends jdk.jfr.Event>> CUSTOM_EVENTS = List.of(
+            MessageDecodeEvent.class, DispatchEvent.class, GameCommandEvent.class,
+            BroadcastEvent.class, HandshakeAuthEvent.class, MyBatisCallEvent.class);
+
+    /**
+     * 允许发起录制的管理员邮箱（逗号分隔）
+     */
+    @Value("${diagnostics.admin-emails:}")
+    private String adminEmails;
+
+    /**
+     * 单次录制的最长时间（秒）
+     */
+    @Value("${diagnostics.jfr.max-seconds:300}")
+    private int maxSeconds;
+
+    private final AtomicBoolean recording = new AtomicBoolean(false);
+
+    /**
+     * 判断用户是否有诊断权限
+     *
+     * @param email 用户邮箱
+     * @return 是否为管理员
+     */
+    public boolean isAdmin(String email) {
+        if (email == null || adminEmails == null || adminEmails.isBlank()) {
+            return false;
+        }
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return Arrays.stream(adminEmails.split(","))
+                .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                .anyMatch(normalized::equals);
+    }
+
+    /**
+     * 录制指定时长并返回 .jfr 文件内容（阻塞调用线程直到录制结束）
+     *
+     * @param seconds 录制时长（秒）
+     * @return .jfr 文件内容
+     */
+    public byte[] record(int seconds) {
+        if (seconds < 1 || seconds > maxSeconds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "录制时长必须在1-" + maxSeconds + "秒之间");
+        }
+        if (!recording.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "已有录制正在进行");
+        }
+
+        Path file = null;
+        try (Recording jfr = new Recording(Configuration.getConfiguration("profile"))) {
+            for (Class<? extends jdk.jfr.Event> eventType : CUSTOM_EVENTS) {
+                jfr.enable(eventType).withThreshold(Duration.ZERO).withoutStackTrace();
+            }
+            jfr.setName("bargame-" + System.currentTimeMillis());
+            jfr.setToDisk(true);
+
+            log.info("开始JFR录制: name={}, seconds={}", jfr.getName(), seconds);
+            jfr.start();
+            Thread.sleep(seconds * 1000L);
+            jfr.stop();
+
+            file = Files.createTempFile("bargame-", ".jfr");
+            jfr.dump(file);
+            byte[] content = Files.readAllBytes(file);
+            log.info("JFR录制完成: name={}, bytes={}", jfr.getName(), content.length);
+            return content;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "录制被中断");
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("JFR录制失败: error={}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "JFR录制失败: " + e.getMessage());
+        } finally {
+            recording.set(false);
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (Exception e) {
+                    log.warn("删除临时录制文件失败: file={}", file);
+                }
+            }
+        }
+    }
+}
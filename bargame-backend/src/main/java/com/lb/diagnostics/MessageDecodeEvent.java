@@ -0,0 +1,34 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：WebSocket文本帧解析为消息对象
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.MessageDecodeEvent")
+@Label("Message Decode")
+@Category({"BarGame", "WebSocket"})
+@Description("WebSocket文本帧解析为消息对象")
+public class MessageDecodeEvent extends Event {
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Module")
+    public String module;
+
+    @Label("Command")
+    public String cmd;
+
+    @Label("Bytes")
+    @DataAmount
+    public int bytes;
+}
@@ -0,0 +1,26 @@
+package com.lb.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次MyBatis语句执行
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Name("com.lb.MyBatisCallEvent")
+@Label("MyBatis Call")
+@Category({"BarGame", "Database"})
+@Description("一次MyBatis语句执行")
+public class MyBatisCallEvent extends Event {
+
+    @Label("Statement")
+    public String statement;
+
+    @Label("Kind")
+    public String kind;
+}
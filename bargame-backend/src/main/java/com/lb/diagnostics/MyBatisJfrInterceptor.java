@@ -0,0 +1,61 @@
+package com.lb.diagnostics;
+
+import com.lb.net.netty.EventLoopGuard;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * MyBatis执行器拦截器
+ * 职责：为每次MyBatis语句执行记录 {@link MyBatisCallEvent}，未开启JFR录制时只有一次isEnabled判断的开销；
+ * 同时把数据库访问作为阻塞调用交给 {@link EventLoopGuard} 检查是否运行在EventLoop线程上
+ * 作为Interceptor类型的Bean由MyBatis-Plus自动配置注册
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class MyBatisJfrInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        EventLoopGuard.checkBlocking(((MappedStatement) invocation.getArgs()[0]).getId());
+
+        MyBatisCallEvent event = new MyBatisCallEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+
+        event.begin();
+        try {
+            Object result = invocation.proceed();
+            if (result instanceof Cursor<?>) {
+                // 游标的遍历耗时不计入本事件
+                event.kind = "cursor";
+            }
+            return result;
+        } finally {
+            MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+            event.statement = statement.getId();
+            if (event.kind == null) {
+                event.kind = statement.getSqlCommandType().name();
+            }
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.lb.diagnostics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 单个请求的分阶段耗时追踪
+ * 职责：对抽样命中的请求，在帧读取、解析、分发、游戏加锁、广播、响应序列化与写出等阶段打时间戳，
+ * 请求结束后交给 {@link RequestTracer} 输出分阶段耗时
+ *
+ * 追踪对象通过ThreadLocal在同一线程的调用链中传递，业务代码只需调用静态的 {@link #mark(Stage)}；
+ * 未开启追踪（抽样率为0）时 mark 只读取一个volatile字段，start 不创建任何对象
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public final class RequestTrace {
+
+    /**
+     * 追踪阶段，按请求处理的先后顺序排列；耗时以相邻已记录阶段的时间差计，归属于较后的阶段
+     */
+    public enum Stage {
+        /** 读取到WebSocket帧 */
+        FRAME_READ,
+        /** JSON解析完成 */
+        PARSED,
+        /** 进入Dispatcher（之前的时间为排队） */
+        DISPATCHED,
+        /** 获得游戏锁 */
+        LOCK_ACQUIRED,
+        /** 广播消息已序列化、开始写出 */
+        BROADCAST_SERIALIZED,
+        /** 广播写出调用返回 */
+        BROADCAST_WRITTEN,
+        /** 业务处理返回 */
+        HANDLED,
+        /** 响应已序列化 */
+        RESPONSE_SERIALIZED,
+        /** 响应已写入socket */
+        WRITTEN
+    }
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    // 抽样率（0-1），0表示关闭
+    private static volatile double sampleRate;
+
+    // 追踪结束后的输出
+    private static volatile Consumer<RequestTrace> sink;
+
+    private final long[] marks = new long[Stage.values().length];
+
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    private String requestId;
+
+    private String cmd;
+
+    private RequestTrace() {
+    }
+
+    /**
+     * 设置抽样率与输出（由RequestTracer在启动时调用）
+     */
+    static void configure(double rate, Consumer<RequestTrace> output) {
+        sink = output;
+        sampleRate = Math.max(0, Math.min(1, rate));
+    }
+
+    /**
+     * 按抽样率决定是否追踪当前请求，命中时绑定到当前线程
+     *
+     * @param frameReadNanos 读取到帧时的System.nanoTime()
+     * @return 追踪对象，未命中抽样时为null
+     */
+    public static RequestTrace start(long frameReadNanos) {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+        RequestTrace trace = new RequestTrace();
+        trace.marks[Stage.FRAME_READ.ordinal()] = frameReadNanos;
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * 为当前线程上正在追踪的请求记录阶段（同一阶段只记录第一次）
+     *
+     * @param stage 阶段
+     */
+    public static void mark(Stage stage) {
+        if (sampleRate <= 0) {
+            return;
+        }
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.markStage(stage);
+        }
+    }
+
+    /**
+     * 获取当前线程上正在追踪的请求
+     *
+     * @return 追踪对象，没有时为null
+     */
+    public static RequestTrace current() {
+        return sampleRate > 0 ? CURRENT.get() : null;
+    }
+
+    /**
+     * 把追踪对象绑定到当前线程（跨线程继续追踪时使用），传入null表示解绑
+     *
+     * @param trace 追踪对象
+     */
+    public static void attach(RequestTrace trace) {
+        if (trace != null) {
+            CURRENT.set(trace);
+        } else if (sampleRate > 0) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * 记录阶段
+     *
+     * @param stage 阶段
+     */
+    public void markStage(Stage stage) {
+        int index = stage.ordinal();
+        if (marks[index] == 0) {
+            marks[index] = System.nanoTime();
+        }
+    }
+
+    /**
+     * 判断阶段是否已记录
+     *
+     * @param stage 阶段
+     * @return 是否已记录
+     */
+    public boolean isMarked(Stage stage) {
+        return marks[stage.ordinal()] != 0;
+    }
+
+    /**
+     * 设置请求标识
+     */
+    public void describe(String requestId, String cmd) {
+        this.requestId = requestId;
+        this.cmd = cmd;
+    }
+
+    /**
+     * 结束追踪并输出（只输出一次）
+     */
+    public void finish() {
+        Consumer<RequestTrace> output = sink;
+        if (finished.compareAndSet(false, true) && output != null) {
+            output.accept(this);
+        }
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getCmd() {
+        return cmd;
+    }
+
+    /**
+     * 获取阶段时间戳（System.nanoTime()），未记录的阶段为0
+     */
+    long getMark(Stage stage) {
+        return marks[stage.ordinal()];
+    }
+}
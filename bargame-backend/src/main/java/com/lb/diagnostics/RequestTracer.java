@@ -0,0 +1,59 @@
+package com.lb.diagnostics;
+
+import com.lb.metrics.MetricsRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 请求追踪输出器
+ * 职责：按配置的抽样率开启 {@link RequestTrace}，并把每个结束的追踪拆分为分阶段耗时，
+ * 写入按阶段划分的延迟直方图，同时输出一行以requestId、cmd为键的结构化日志
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class RequestTracer {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * 抽样率（0-1），0表示关闭追踪
+     */
+    @Value("${tracing.sample-rate:0}")
+    private double sampleRate;
+
+    @PostConstruct
+    public void start() {
+        RequestTrace.configure(sampleRate, this::report);
+        if (sampleRate > 0) {
+            log.info("请求追踪已开启: sampleRate={}", sampleRate);
+        }
+    }
+
+    /**
+     * 输出一个结束的追踪
+     */
+    void report(RequestTrace trace) {
+        long begin = trace.getMark(RequestTrace.Stage.FRAME_READ);
+        long previous = begin;
+        StringBuilder breakdown = new StringBuilder(160);
+        for (RequestTrace.Stage stage : RequestTrace.Stage.values()) {
+            long mark = trace.getMark(stage);
+            if (stage == RequestTrace.Stage.FRAME_READ || mark == 0) {
+                continue;
+            }
+            long elapsed = Math.max(0, mark - previous);
+            metricsRegistry.stageHistogram(stage.name()).record(elapsed);
+            breakdown.append(", ").append(stage.name().toLowerCase()).append('=').append(elapsed / 1000).append("us");
+            previous = Math.max(previous, mark);
+        }
+        log.info("请求追踪: requestId={}, cmd={}, total={}us{}",
+                trace.getRequestId(), trace.getCmd(), (previous - begin) / 1000, breakdown);
+    }
+}
@@ -0,0 +1,183 @@
+package com.lb.dispatcher;
+
+import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import com.lb.net.netty.EventLoopWatchdog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 过载准入控制器
+ * 职责：在分发前按所在EventLoop的负载（探测滞后与任务队列长度）以及目标执行通道的积压判断是否接纳命令，
+ * 过载时先拒绝低价值命令（在线列表、排行榜、房间目录等），严重过载时再拒绝普通房间命令，
+ * 游戏与系统命令始终放行
+ *
+ * 被拒绝的请求返回503并携带 retryAfterMs 建议（带随机抖动，避免客户端同时重试）
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    /**
+     * 命令优先级
+     */
+    public enum Priority {
+        // 游戏与系统命令：始终放行
+        CRITICAL,
+        // 房间命令：严重过载时拒绝
+        NORMAL,
+        // 可稍后重试的查询/订阅：过载时最先拒绝
+        LOW
+    }
+
+    public static final int SERVICE_UNAVAILABLE = 503;
+
+    @Autowired
+    private EventLoopWatchdog eventLoopWatchdog;
+
+    @Autowired
+    private ModuleLanes moduleLanes;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * EventLoop滞后超过该值时拒绝低优先级命令（毫秒）
+     */
+    @Value("${admission.low.lag-ms:50}")
+    private long lowLagMs;
+
+    /**
+     * EventLoop队列超过该长度时拒绝低优先级命令
+     */
+    @Value("${admission.low.pending-tasks:1000}")
+    private int lowPendingTasks;
+
+    /**
+     * 目标执行通道积压达到容量的该比例时拒绝低优先级命令
+     */
+    @Value("${admission.low.lane-utilization:0.5}")
+    private double lowLaneUtilization;
+
+    /**
+     * EventLoop滞后超过该值时拒绝普通命令（毫秒）
+     */
+    @Value("${admission.normal.lag-ms:200}")
+    private long normalLagMs;
+
+    /**
+     * EventLoop队列超过该长度时拒绝普通命令
+     */
+    @Value("${admission.normal.pending-tasks:5000}")
+    private int normalPendingTasks;
+
+    /**
+     * 目标执行通道积压达到容量的该比例时拒绝普通命令
+     */
+    @Value("${admission.normal.lane-utilization:0.8}")
+    private double normalLaneUtilization;
+
+    /**
+     * 建议客户端重试的等待时间（毫秒），实际返回值在此基础上增加至多一半的随机抖动
+     */
+    @Value("${admission.retry-after-ms:1000}")
+    private long retryAfterMs;
+
+    // 优先级 -> 被拒绝次数
+    private final Map<Priority, LongAdder> shed = new EnumMap<>(Priority.class);
+
+    // 上次输出拒绝日志的时间（限频）
+    private final AtomicLong lastShedLog = new AtomicLong();
+
+    public AdmissionController() {
+        for (Priority priority : Priority.values()) {
+            shed.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * 判断是否接纳命令
+     *
+     * @param msg 请求消息
+     * @return null表示接纳；否则为应直接返回给客户端的503响应
+     */
+    public WebSocketMsg<?> admit(WebSocketMsg<?> msg) {
+        if (!enabled) {
+            return null;
+        }
+        Priority priority = priorityOf(msg.getModule(), msg.getCmd());
+        if (priority == Priority.CRITICAL) {
+            return null;
+        }
+
+        long lagMs = eventLoopWatchdog.currentLagMillis();
+        int pendingTasks = eventLoopWatchdog.currentPendingTasks();
+        // 命令在模块执行通道上处理，真正的积压在通道队列中
+        int laneQueued = moduleLanes.getQueued(msg.getModule());
+        double laneUtilization = (double) laneQueued / moduleLanes.getCapacity(msg.getModule());
+        boolean overloaded = priority == Priority.LOW
+                ? lagMs >= lowLagMs || pendingTasks >= lowPendingTasks || laneUtilization >= lowLaneUtilization
+                : lagMs >= normalLagMs || pendingTasks >= normalPendingTasks || laneUtilization >= normalLaneUtilization;
+        if (!overloaded) {
+            return null;
+        }
+
+        shed.get(priority).increment();
+        long now = System.currentTimeMillis();
+        long last = lastShedLog.get();
+        if (now - last >= 1000 && lastShedLog.compareAndSet(last, now)) {
+            log.warn("过载拒绝命令: module={}, cmd={}, priority={}, lag={}ms, pendingTasks={}, laneQueued={}",
+                    msg.getModule(), msg.getCmd(), priority, lagMs, pendingTasks, laneQueued);
+        }
+
+        long retryAfter = retryAfterMs + ThreadLocalRandom.current().nextLong(retryAfterMs / 2 + 1);
+        WebSocketMsg<Map<String, Object>> response = WebSocketMsg.error(
+                msg.getRequestId(), msg.getModule(), msg.getCmd(), SERVICE_UNAVAILABLE, "服务器繁忙，请稍后重试");
+        Map<String, Object> data = new HashMap<>();
+        data.put("retryAfterMs", retryAfter);
+        response.setData(data);
+        return response;
+    }
+
+    /**
+     * 命令优先级
+     */
+    public static Priority priorityOf(ModuleType module, CmdType cmd) {
+        if (module == null || cmd == null) {
+            return Priority.NORMAL;
+        }
+        return switch (module) {
+            case GAME, SYSTEM -> Priority.CRITICAL;
+            case HALL -> switch (cmd) {
+                // 取消订阅减少后续推送，不应拒绝
+                case ROOM_DIRECTORY_UNSUBSCRIBE -> Priority.NORMAL;
+                default -> Priority.LOW;
+            };
+            default -> switch (cmd) {
+                // 离开房间释放资源，不应拒绝
+                case ROOM_LEAVE -> Priority.CRITICAL;
+                default -> Priority.NORMAL;
+            };
+        };
+    }
+
+    /**
+     * 获取某优先级累计被拒绝次数
+     */
+    public long getShedCount(Priority priority) {
+        return shed.get(priority).sum();
+    }
+}
@@ -1,15 +1,26 @@
 package com.lb.dispatcher;
 
+import com.lb.diagnostics.DispatchEvent;
+import com.lb.diagnostics.RequestTrace;
 import com.lb.handler.GameHandler;
 import com.lb.handler.HallHandler;
 import com.lb.handler.RoomHandler;
 import com.lb.handler.SystemHandler;
+import com.lb.manager.WebRTCRelayManager;
+import com.lb.message.WebRTC.WebRTCSignalingFrame;
 import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import com.lb.metrics.MetricsRegistry;
 import com.lb.net.ConnectionContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
 @Component
 @Slf4j
 public class Dispatcher {
@@ -22,10 +33,124 @@ public class Dispatcher {
     private GameHandler gameHandler;
     @Autowired
     private SystemHandler systemHandler;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    @Autowired
+    private AdmissionController admissionController;
+    @Autowired
+    private ModuleLanes moduleLanes;
+    @Autowired
+    private WebRTCRelayManager webRTCRelayManager;
+
+    /** 通道队列已满时建议客户端重试的等待时间（毫秒） */
+    private static final long LANE_FULL_RETRY_AFTER_MS = 1000;
+
+
+    /**
+     * 在EventLoop上接收消息：准入判断后提交到模块对应的执行通道，在通道线程上分发并回调响应
+     * 被拒绝时在当前线程直接回调503响应；处理异常时回调500响应
+     *
+     * @param msg               WebSocket消息对象
+     * @param connectionContext 连接上下文
+     * @param responder         响应回调，参数为null表示无需响应
+     */
+    public void submit(WebSocketMsg<?> msg, ConnectionContext connectionContext, Consumer<WebSocketMsg<?>> responder) {
+        // 过载时先拒绝低优先级命令（基于所在EventLoop的负载，须在提交前判断）
+        WebSocketMsg<?> rejected = admissionController.admit(msg);
+        if (rejected != null) {
+            responder.accept(rejected);
+            return;
+        }
+
+        RequestTrace trace = RequestTrace.current();
+        boolean accepted = moduleLanes.submit(connectionContext, msg.getModule(), () -> {
+            RequestTrace.attach(trace);
+            try {
+                WebSocketMsg<?> response;
+                try {
+                    response = dispatch(msg, connectionContext);
+                } catch (Exception e) {
+                    log.error("处理WebSocket消息时发生异常: userId={}, module={}, cmd={}, error={}",
+                            connectionContext.getUserId(), msg.getModule(), msg.getCmd(), e.getMessage(), e);
+                    response = WebSocketMsg.error(msg.getRequestId(), msg.getModule(), msg.getCmd(),
+                            500, "消息处理异常: " + e.getMessage());
+                }
+                responder.accept(response);
+            } finally {
+                RequestTrace.attach(null);
+            }
+        });
+
+        if (!accepted) {
+            responder.accept(laneFullResponse(msg.getRequestId(), msg.getModule(), msg.getCmd()));
+        }
+    }
+
+    /**
+     * 在EventLoop上接收WebRTC信令帧：提交到ROOM通道，与该连接的加入/离开房间等命令保持到达顺序，
+     * 在通道线程上按原文转发并记录命令指标
+     *
+     * @param frame             流式解析出的信令帧
+     * @param connectionContext 连接上下文
+     * @param responder         响应回调，参数为null表示无需响应
+     */
+    public void submitSignaling(WebRTCSignalingFrame frame, ConnectionContext connectionContext,
+                                Consumer<WebSocketMsg<?>> responder) {
+        RequestTrace trace = RequestTrace.current();
+        boolean accepted = moduleLanes.submit(connectionContext, ModuleType.ROOM, () -> {
+            RequestTrace.attach(trace);
+            try {
+                connectionContext.incrementReceivedMessageCount();
+                RequestTrace.mark(RequestTrace.Stage.DISPATCHED);
+
+                long started = System.nanoTime();
+                boolean error = true;
+                WebSocketMsg<?> response;
+                try {
+                    response = webRTCRelayManager.relay(frame, connectionContext.getUserId());
+                    error = response != null && response.getCode() != null && response.getCode() >= 400;
+                } catch (Exception e) {
+                    log.error("转发WebRTC信令时发生异常: userId={}, cmd={}, error={}",
+                            connectionContext.getUserId(), frame.getCmd(), e.getMessage(), e);
+                    response = WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, frame.getCmd(),
+                            500, "消息处理异常: " + e.getMessage());
+                } finally {
+                    metricsRegistry.recordCommand(ModuleType.ROOM, frame.getCmd(), System.nanoTime() - started, error);
+                }
+                responder.accept(response);
+            } finally {
+                RequestTrace.attach(null);
+            }
+        });
+
+        if (!accepted) {
+            responder.accept(laneFullResponse(frame.getRequestId(), ModuleType.ROOM, frame.getCmd()));
+        }
+    }
+
+
+    private static WebSocketMsg<?> laneFullResponse(String requestId, ModuleType module, CmdType cmd) {
+        WebSocketMsg<Map<String, Object>> response = WebSocketMsg.error(requestId, module, cmd,
+                AdmissionController.SERVICE_UNAVAILABLE, "服务器繁忙，请稍后重试");
+        Map<String, Object> data = new HashMap<>();
+        data.put("retryAfterMs", LANE_FULL_RETRY_AFTER_MS);
+        response.setData(data);
+        return response;
+    }
 
+    /**
+     * 连接关闭：等该连接已接纳的命令在各执行通道上全部执行完后再运行断联清理
+     * 须在连接所在的EventLoop上调用
+     *
+     * @param connectionContext 连接上下文
+     * @param cleanup 断联清理
+     */
+    public void closeConnection(ConnectionContext connectionContext, Runnable cleanup) {
+        moduleLanes.close(connectionContext, cleanup);
+    }
 
     /**
-     * 按模块分发消息，返回需要响应给前端的消息
+     * 按模块分发消息，返回需要响应给前端的消息（在模块执行通道线程上调用）
      *
      * @param msg               WebSocket消息对象
      * @param connectionContext 连接上下文，封装了WebSocket连接的所有必要信息
@@ -34,7 +159,36 @@ public class Dispatcher {
     public WebSocketMsg<?> dispatch(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
                 // 增加接收消息计数
         connectionContext.incrementReceivedMessageCount();
+        RequestTrace.mark(RequestTrace.Stage.DISPATCHED);
+
+        // 记录命令耗时与结果：抛出异常或返回4xx/5xx视为失败
+        long started = System.nanoTime();
+        DispatchEvent event = new DispatchEvent();
+        event.begin();
+        boolean error = true;
+        int code = 500;
+        try {
+            WebSocketMsg<?> response = route(msg, connectionContext);
+            code = response != null && response.getCode() != null ? response.getCode() : 200;
+            error = code >= 400;
+            return response;
+        } finally {
+            metricsRegistry.recordCommand(msg.getModule(), msg.getCmd(), System.nanoTime() - started, error);
+            if (event.shouldCommit()) {
+                Long userId = connectionContext.getUserId();
+                event.userId = userId != null ? userId : 0L;
+                event.module = String.valueOf(msg.getModule());
+                event.cmd = String.valueOf(msg.getCmd());
+                event.code = code;
+                event.commit();
+            }
+        }
+    }
 
+    /**
+     * 按模块分发消息
+     */
+    private WebSocketMsg<?> route(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
         // 按模块分发，返回响应消息
         switch (msg.getModule()) {
             case HALL -> {
@@ -0,0 +1,296 @@
+package com.lb.dispatcher;
+
+import com.lb.message.enums.ModuleType;
+import com.lb.metrics.Histogram;
+import com.lb.metrics.MetricsRegistry;
+import com.lb.net.ConnectionContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按模块隔离的执行通道（舱壁）
+ * 职责：HALL、ROOM、GAME、SYSTEM 各有独立的线程池、有界队列与指标，
+ * 大厅列表构建或WebRTC信令的突发只会占满自己的通道，不会拖慢出牌、质疑等游戏命令
+ *
+ * 同一连接在同一通道内的命令按到达顺序串行执行：每个连接在每个通道上有一个串行队列，
+ * 队列从空变为非空时才向线程池提交一次排空任务，因此线程池队列中每个连接最多占一个位置；
+ * 每次排空最多执行固定条数后让出线程，避免单个连接独占
+ *
+ * 连接关闭时通过 {@link #close} 在各串行队列末尾放置屏障：已接纳的命令照常执行完，
+ * 之后才运行断联清理，保证清理不会被排在后面的加入房间等命令覆盖（与命令在EventLoop上串行执行时的顺序一致）
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ModuleLanes {
+
+    // 单次排空最多执行的任务数
+    private static final int DRAIN_BATCH = 16;
+
+    // 连接属性键：连接在各通道上的串行队列
+    private static final String SERIAL_QUEUES_ATTR = "moduleLanes";
+
+    /**
+     * 单个模块的执行通道
+     */
+    private static final class Lane {
+        private final ModuleType module;
+        private final ThreadPoolExecutor executor;
+        private final int capacity;
+        private final Histogram wait;
+        // 已接纳未执行的任务数
+        private final AtomicInteger queued = new AtomicInteger();
+        // 正在执行的排空任务数
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        private Lane(ModuleType module, int threads, int capacity, Histogram wait) {
+            this.module = module;
+            this.capacity = capacity;
+            this.wait = wait;
+            AtomicInteger threadIndex = new AtomicInteger();
+            String prefix = "lane-" + module.name().toLowerCase() + "-";
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * 单个连接在某通道上的串行队列
+     */
+    private static final class SerialQueue implements Runnable {
+        private final Lane lane;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // 连接已关闭，不再接纳新任务（仅在连接所在的EventLoop上读写）
+        private boolean closed;
+
+        private SerialQueue(Lane lane) {
+            this.lane = lane;
+        }
+
+        private void enqueue(Runnable task) {
+            tasks.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                lane.executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            lane.active.incrementAndGet();
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    lane.queued.decrementAndGet();
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        log.error("通道任务执行异常: lane={}, error={}", lane.module, e.getMessage(), e);
+                    }
+                }
+            } finally {
+                lane.active.decrementAndGet();
+                scheduled.set(false);
+                // 未排空或释放标记期间有新任务到达时重新提交
+                if (!tasks.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${dispatcher.lanes.hall.threads:2}")
+    private int hallThreads;
+
+    @Value("${dispatcher.lanes.hall.queue-capacity:1000}")
+    private int hallCapacity;
+
+    @Value("${dispatcher.lanes.room.threads:2}")
+    private int roomThreads;
+
+    @Value("${dispatcher.lanes.room.queue-capacity:2000}")
+    private int roomCapacity;
+
+    @Value("${dispatcher.lanes.game.threads:4}")
+    private int gameThreads;
+
+    @Value("${dispatcher.lanes.game.queue-capacity:4000}")
+    private int gameCapacity;
+
+    @Value("${dispatcher.lanes.system.threads:1}")
+    private int systemThreads;
+
+    @Value("${dispatcher.lanes.system.queue-capacity:1000}")
+    private int systemCapacity;
+
+    private final Map<ModuleType, Lane> lanes = new EnumMap<>(ModuleType.class);
+
+    @PostConstruct
+    public void init() {
+        createLane(ModuleType.HALL, hallThreads, hallCapacity);
+        createLane(ModuleType.ROOM, roomThreads, roomCapacity);
+        createLane(ModuleType.GAME, gameThreads, gameCapacity);
+        createLane(ModuleType.SYSTEM, systemThreads, systemCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdownNow());
+    }
+
+    /**
+     * 把任务提交到模块对应的通道，同一连接在同一通道内按提交顺序执行
+     * 须在连接所在的EventLoop上调用（串行队列在此惰性创建）
+     *
+     * @param connectionContext 连接上下文
+     * @param module 模块，为null时使用SYSTEM通道
+     * @param task 任务
+     * @return 是否接纳，通道队列已满时返回false
+     */
+    public boolean submit(ConnectionContext connectionContext, ModuleType module, Runnable task) {
+        Lane lane = laneOf(module);
+        SerialQueue queue = serialQueue(connectionContext, lane);
+        if (queue.closed) {
+            return false;
+        }
+        if (lane.queued.incrementAndGet() > lane.capacity) {
+            lane.queued.decrementAndGet();
+            lane.rejected.increment();
+            return false;
+        }
+
+        long enqueued = System.nanoTime();
+        queue.enqueue(() -> {
+            lane.wait.record(System.nanoTime() - enqueued);
+            task.run();
+        });
+        return true;
+    }
+
+    /**
+     * 关闭连接的全部串行队列：之后提交的任务不再接纳，已接纳的任务照常执行，
+     * 各通道都执行完后运行onDrained（在最后完成的通道线程上）；连接从未提交过任务时直接在当前线程运行
+     * 须在连接所在的EventLoop上调用
+     *
+     * @param connectionContext 连接上下文
+     * @param onDrained 已接纳任务全部执行完后运行的清理
+     */
+    public void close(ConnectionContext connectionContext, Runnable onDrained) {
+        SerialQueue[] queues = connectionContext.getAttribute(SERIAL_QUEUES_ATTR, SerialQueue[].class);
+        List<SerialQueue> open = new ArrayList<>(queues != null ? queues.length : 0);
+        if (queues != null) {
+            for (SerialQueue queue : queues) {
+                if (queue != null && !queue.closed) {
+                    queue.closed = true;
+                    open.add(queue);
+                }
+            }
+        }
+        if (open.isEmpty()) {
+            onDrained.run();
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(open.size());
+        for (SerialQueue queue : open) {
+            // 屏障不受容量限制，否则通道满载时清理会被丢弃
+            queue.lane.queued.incrementAndGet();
+            queue.enqueue(() -> {
+                if (remaining.decrementAndGet() == 0) {
+                    onDrained.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取通道已接纳未执行的任务数
+     *
+     * @param module 模块，为null时为SYSTEM通道
+     */
+    public int getQueued(ModuleType module) {
+        return laneOf(module).queued.get();
+    }
+
+    /**
+     * 获取通道队列容量
+     *
+     * @param module 模块，为null时为SYSTEM通道
+     */
+    public int getCapacity(ModuleType module) {
+        return laneOf(module).capacity;
+    }
+
+    /**
+     * 获取通道正在执行的排空任务数
+     */
+    public int getActive(ModuleType module) {
+        return lanes.get(module).active.get();
+    }
+
+    /**
+     * 获取通道因队列已满累计拒绝的任务数
+     */
+    public long getRejected(ModuleType module) {
+        return lanes.get(module).rejected.sum();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void createLane(ModuleType module, int threads, int capacity) {
+        lanes.put(module, new Lane(module, threads, capacity, metricsRegistry.laneWaitHistogram(module.name())));
+        log.info("模块执行通道已创建: module={}, threads={}, queueCapacity={}", module, threads, capacity);
+    }
+
+    private Lane laneOf(ModuleType module) {
+        return lanes.get(module != null ? module : ModuleType.SYSTEM);
+    }
+
+    private SerialQueue serialQueue(ConnectionContext connectionContext, Lane lane) {
+        SerialQueue[] queues = connectionContext.getAttribute(SERIAL_QUEUES_ATTR, SerialQueue[].class);
+        if (queues == null) {
+            queues = new SerialQueue[ModuleType.values().length];
+            connectionContext.setAttribute(SERIAL_QUEUES_ATTR, queues);
+        }
+        SerialQueue queue = queues[lane.module.ordinal()];
+        if (queue == null) {
+            queue = new SerialQueue(lane);
+            queues[lane.module.ordinal()] = queue;
+        }
+        return queue;
+    }
+}
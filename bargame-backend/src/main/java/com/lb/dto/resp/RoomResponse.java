@@ -1,7 +1,7 @@
 package com.lb.dto.resp;
 
 
-import com.lb.message.vo.room.RoomVO;
+import com.lb.util.RawJson;
 import lombok.Data;
 
 import java.util.List;
@@ -9,11 +9,19 @@ import java.util.List;
 @Data
 public class RoomResponse {
 
-    List<RoomVO> rooms;
+    /**
+     * 房间列表，每项为RoomVO的预序列化JSON
+     */
+    List<RawJson> rooms;
 
     int size;
 
     int current;
 
     int total;
+
+    /**
+     * 下一页游标，传给下次请求的cursor参数；没有更多房间时为null
+     */
+    Long nextCursor;
 }
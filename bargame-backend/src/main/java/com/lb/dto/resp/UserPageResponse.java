@@ -0,0 +1,21 @@
+package com.lb.dto.resp;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class UserPageResponse {
+
+    /**
+     * 当前页用户，按ID升序
+     */
+    List<UserResponseDto> users;
+
+    int size;
+
+    /**
+     * 下一页游标（本页最后一个用户ID），传给下次请求的afterId参数；没有更多用户时为null
+     */
+    Long nextCursor;
+}
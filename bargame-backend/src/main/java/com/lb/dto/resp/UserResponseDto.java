@@ -1,5 +1,6 @@
 package com.lb.dto.resp;
 
+import com.lb.entity.UserEntity;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,4 +12,16 @@ public class UserResponseDto {
 //    private String password;
     private String aboutMe;
     private long  id;
+
+    /**
+     * 由用户实体构建响应（显式字段拷贝，替代反射映射）
+     */
+    public static UserResponseDto from(UserEntity user) {
+        UserResponseDto dto = new UserResponseDto();
+        dto.setId(user.getId() != null ? user.getId() : 0L);
+        dto.setName(user.getName());
+        dto.setEmail(user.getEmail());
+        dto.setAboutMe(user.getAboutMe());
+        return dto;
+    }
 }
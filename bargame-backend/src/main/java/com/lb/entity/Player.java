@@ -1,10 +1,13 @@
 package com.lb.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
-import com.lb.util.SpringContextHolder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -12,6 +15,7 @@ import java.time.LocalDateTime;
  * 统一玩家实体类
  * 职责：管理玩家在大厅、房间、游戏中的所有状态
  * 状态流转：ONLINE -> IN_ROOM -> PLAYING -> FINISHED -> ONLINE
+ * 所在房间、游戏与准备状态直接以字段维护；准备、在线状态变化时同步更新所在房间的计数
  */
 @Data
 @EqualsAndHashCode(callSuper = false)
@@ -141,6 +145,35 @@ public class Player {
     @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime updatedAt;
 
+    /**
+     * 所在房间ID - 由所在房间在成员变动时维护
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile Long roomId;
+
+    /**
+     * 所在游戏ID - 由GameManager在开局时设置，离开或结束游戏时清除
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile Long gameId;
+
+    /**
+     * 所在房间 - 用于准备、在线状态变化时更新房间计数
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile Room room;
+
     /**
      * 在线状态枚举
      */
@@ -221,17 +254,7 @@ public class Player {
      * 检查玩家是否在房间中
      */
     public boolean isInRoom() {
-        if (locationType != LocationType.ROOM) {
-            return false;
-        }
-
-        // 通过RoomManager查询玩家是否在房间中
-        try {
-            return SpringContextHolder.getRoomManager().isPlayerInRoom(userId);
-        } catch (Exception e) {
-            // 如果SpringContextHolder未初始化，返回false
-            return false;
-        }
+        return locationType == LocationType.ROOM && roomId != null;
     }
 
     /**
@@ -274,18 +297,50 @@ public class Player {
     }
 
     /**
-     * 玩家加入房间
+     * 玩家加入房间（由Room.addPlayer调用）
+     *
+     * @param room 加入的房间
      */
-    public void joinRoom(Long roomId) {
+    synchronized void joinRoom(Room room) {
+        this.room = room;
+        this.roomId = room.getRoomId();
         this.locationType = LocationType.ROOM;
         this.isReady = false;
         this.joinTime = LocalDateTime.now();
+        if (isOnline()) {
+            room.adjustOnlineCount(1);
+        }
+    }
+
+    /**
+     * 解除与房间的关联并撤销本玩家在房间计数中的份额（由Room.removePlayer调用）
+     *
+     * @param from 离开的房间
+     */
+    synchronized void detachRoom(Room from) {
+        if (this.room != from) {
+            return;
+        }
+        if (Boolean.TRUE.equals(isReady)) {
+            from.adjustReadyCount(-1);
+        }
+        if (isOnline()) {
+            from.adjustOnlineCount(-1);
+        }
+        this.room = null;
+        this.roomId = null;
+        this.isReady = false;
     }
 
     /**
      * 玩家离开房间
+     * 若仍挂在某个房间上（如房间解散），先从该房间移除
      */
     public void leaveRoom() {
+        Room current = this.room;
+        if (current != null) {
+            current.removePlayer(userId);
+        }
         this.locationType = LocationType.LOBBY;
         this.sessionId = null;
         this.isReady = false;
@@ -298,7 +353,7 @@ public class Player {
      */
     public void ready() {
         if (isInRoom()) {
-            this.isReady = true;
+            updateReady(true);
         }
     }
 
@@ -307,22 +362,78 @@ public class Player {
      */
     public void unready() {
         if (isInRoom()) {
-            this.isReady = false;
+            updateReady(false);
         }
     }
 
+    /**
+     * 设置准备状态（同步更新所在房间的准备计数）
+     *
+     * @param isReady 是否准备
+     */
+    public void setIsReady(Boolean isReady) {
+        updateReady(Boolean.TRUE.equals(isReady));
+    }
+
     /**
      * 设置为离线状态
      */
     public void setOffline() {
-        this.onlineStatus = OnlineStatus.OFFLINE;
+        updateOnlineStatus(OnlineStatus.OFFLINE);
     }
 
     /**
      * 设置为在线状态
      */
     public void setOnline() {
-        this.onlineStatus = OnlineStatus.ONLINE;
+        updateOnlineStatus(OnlineStatus.ONLINE);
+    }
+
+    /**
+     * 设置在线状态（同步更新所在房间的在线计数）
+     *
+     * @param onlineStatus 在线状态
+     */
+    public void setOnlineStatus(OnlineStatus onlineStatus) {
+        updateOnlineStatus(onlineStatus);
+    }
+
+    /**
+     * 玩家进入游戏（由GameManager开局时调用）
+     *
+     * @param gameId 游戏ID
+     */
+    public void enterGame(Long gameId) {
+        this.gameId = gameId;
+    }
+
+    /**
+     * 玩家所在游戏结束，清除游戏ID
+     *
+     * @param gameId 结束的游戏ID，仅当与当前游戏一致时清除
+     */
+    public void exitGame(Long gameId) {
+        if (gameId != null && gameId.equals(this.gameId)) {
+            this.gameId = null;
+        }
+    }
+
+    private synchronized void updateReady(boolean ready) {
+        boolean wasReady = Boolean.TRUE.equals(this.isReady);
+        this.isReady = ready;
+        Room current = this.room;
+        if (current != null && wasReady != ready) {
+            current.adjustReadyCount(ready ? 1 : -1);
+        }
+    }
+
+    private synchronized void updateOnlineStatus(OnlineStatus status) {
+        boolean wasOnline = isOnline();
+        this.onlineStatus = status;
+        Room current = this.room;
+        if (current != null && wasOnline != isOnline()) {
+            current.adjustOnlineCount(isOnline() ? 1 : -1);
+        }
     }
 
     
@@ -383,36 +494,12 @@ public class Player {
         // 更新玩家位置为大厅
         this.locationType = LocationType.ROOM;
         this.sessionId = null;
-        this.isReady = false;
+        this.gameId = null;
+        updateReady(false);
         this.isOwner = false;
         this.seatNumber = -1;
         // 重置游戏相关字段
         this.handCards = null;
         this.actionHistory = null;
     }
-
-    /**
-     * 获取玩家所在的房间ID
-     * 通过RoomManager查询，确保数据一致性
-     *
-     * @return 房间ID，如果玩家不在房间中则返回null
-     */
-    public Long getRoomId() {
-        try {
-            return SpringContextHolder.getRoomManager().getPlayerRoomId(userId);
-        } catch (Exception e) {
-            // 如果SpringContextHolder未初始化，返回null
-            return null;
-        }
-    }
-
-    public Long getGameId() {
-        try {
-            return SpringContextHolder.getGameManager().getPlayerGameId(userId);
-        } catch (Exception e) {
-            // 如果SpringContextHolder未初始化，返回null
-            return null;
-        }
-    }
-
 }
\ No newline at end of file
@@ -1,16 +1,27 @@
 package com.lb.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lb.message.vo.room.RoomVO;
 import com.lb.message.vo.game.PlayerVO;
+import com.lb.net.BroadcastGroup;
+import com.lb.util.RawJson;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -18,12 +29,20 @@ import java.util.stream.Collectors;
  * 职责单一：只负责房间基础信息和玩家成员的管理
  * 状态明确：通过枚举明确定义房间状态
  * 可扩展：预留了扩展字段和灵活配置
+ * 视图缓存：成员或状态变化时版本号递增，RoomVO及其JSON仅在版本变化后首次访问时重新生成
  */
 @Data
 @EqualsAndHashCode(callSuper = false)
 @TableName("room")
 public class Room {
 
+    /**
+     * 座位计数的关闭标记：房间已解散，不再接受占座
+     */
+    private static final int SEATS_CLOSED = -1;
+
+    private static final DateTimeFormatter CREATED_AT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     /**
      * 房间ID - 主键，唯一标识
      */
@@ -97,6 +116,85 @@ public class Room {
     @TableField(exist = false)
     private Map<Long, Player> players = new ConcurrentHashMap<>();
 
+    /**
+     * 房间广播组 - 房间成员当前连接的集合，广播时一次写出
+     * 注意：这个字段不持久化到数据库，由RoomManager在成员变动及重连时维护
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BroadcastGroup broadcastGroup;
+
+    /**
+     * 已占用座位数 - 加入前先以CAS占座，成员离开时释放；解散后置为关闭标记
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicInteger reservedSeats = new AtomicInteger();
+
+    /**
+     * 已准备成员数量 - 由成员的准备状态变化增量维护
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicInteger readyCount = new AtomicInteger();
+
+    /**
+     * 在线成员数量 - 由成员的在线状态变化增量维护
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicInteger onlineCount = new AtomicInteger();
+
+    /**
+     * 视图版本号 - 成员、房主、状态或准备情况变化时递增
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 视图缓存 - 对应某个版本号的RoomVO及其JSON
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Snapshot snapshot;
+
+    /**
+     * 视图变化回调 - 由RoomManager设置，用于推进房间目录版本号并登记大厅订阅推送
+     * 注意：这个字段不持久化到数据库
+     */
+    @TableField(exist = false)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private volatile Runnable changeListener;
+
     /**
      * 创建时间
      */
@@ -192,14 +290,30 @@ public class Room {
         }
     }
 
+    /**
+     * 视图快照：同一版本号下共享的RoomVO与懒生成的JSON
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final RoomVO roomVO;
+        private volatile RawJson json;
+
+        private Snapshot(long version, RoomVO roomVO) {
+            this.version = version;
+            this.roomVO = roomVO;
+        }
+    }
+
     // ==================== 业务逻辑方法 ====================
 
     /**
      * 检查房间是否可以加入
      */
     public boolean canJoin() {
+        int seats = reservedSeats.get();
         return roomStatus == RoomStatus.WAITING
-               && players.size() < maxPlayers;
+               && seats != SEATS_CLOSED
+               && seats < maxPlayers;
     }
 
     /**
@@ -229,7 +343,7 @@ public class Room {
      * 检查房间是否已满
      */
     public boolean isFull() {
-        return players.size() >= maxPlayers;
+        return reservedSeats.get() >= maxPlayers;
     }
 
     /**
@@ -246,31 +360,99 @@ public class Room {
         return players.size();
     }
 
+    // ==================== 座位占用方法 ====================
+
+    /**
+     * 尝试占用一个座位
+     * 无锁CAS：并发争抢最后一个座位时只有一个成功，房间关闭后一律失败
+     *
+     * @return 是否占座成功
+     */
+    public boolean tryReserveSeat() {
+        while (true) {
+            int seats = reservedSeats.get();
+            if (seats == SEATS_CLOSED || seats >= maxPlayers) {
+                return false;
+            }
+            if (reservedSeats.compareAndSet(seats, seats + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个座位（占座后加入失败或成员离开时调用）
+     */
+    public void releaseSeat() {
+        while (true) {
+            int seats = reservedSeats.get();
+            if (seats <= 0) {
+                return;
+            }
+            if (reservedSeats.compareAndSet(seats, seats - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 房间无人占座时关闭房间
+     * 与占座互斥：有并发加入已占座时关闭失败，房间继续存在
+     *
+     * @return 是否关闭成功
+     */
+    public boolean closeIfEmpty() {
+        return reservedSeats.compareAndSet(0, SEATS_CLOSED);
+    }
+
+    /**
+     * 关闭房间（解散时调用），此后所有占座均失败
+     */
+    public void close() {
+        reservedSeats.set(SEATS_CLOSED);
+    }
+
+    /**
+     * 检查房间是否已关闭
+     */
+    public boolean isClosed() {
+        return reservedSeats.get() == SEATS_CLOSED;
+    }
+
     // ==================== 玩家管理方法 ====================
 
     /**
      * 添加玩家到房间
      *
+     * 调用方须先通过 {@link #tryReserveSeat()} 占座，添加失败时自行释放座位
+     *
      * @param player 玩家对象
      * @return 是否添加成功
      */
     public boolean addPlayer(Player player) {
-        if (player == null || isFull() || players.containsKey(player.getUserId())) {
+        if (player == null || players.putIfAbsent(player.getUserId(), player) != null) {
             return false;
         }
 
-        players.put(player.getUserId(), player);
+        player.joinRoom(this);
+        markDirty();
         return true;
     }
 
     /**
-     * 从房间移除玩家
+     * 从房间移除玩家，同时释放其座位
      *
      * @param playerId 玩家ID
      * @return 被移除的玩家对象，如果不存在则返回null
      */
     public Player removePlayer(Long playerId) {
-        return players.remove(playerId);
+        Player removed = players.remove(playerId);
+        if (removed != null) {
+            releaseSeat();
+            removed.detachRoom(this);
+            markDirty();
+        }
+        return removed;
     }
 
     /**
@@ -308,9 +490,7 @@ public class Room {
      * @return 在线玩家数量
      */
     public int getOnlinePlayerCount() {
-        return (int) players.values().stream()
-                .filter(Player::isOnline)
-                .count();
+        return onlineCount.get();
     }
 
     /**
@@ -319,8 +499,31 @@ public class Room {
      * @return 是否都已准备
      */
     public boolean areAllPlayersReady() {
-        return players.values().stream()
-                .allMatch(Player::isPrepared);
+        return readyCount.get() >= players.size();
+    }
+
+    /**
+     * 获取已准备的玩家数量
+     *
+     * @return 已准备玩家数量
+     */
+    public int getReadyPlayerCount() {
+        return readyCount.get();
+    }
+
+    /**
+     * 调整已准备计数（由Player在准备状态变化时调用），准备情况属于房间视图，同时使缓存失效
+     */
+    void adjustReadyCount(int delta) {
+        readyCount.addAndGet(delta);
+        markDirty();
+    }
+
+    /**
+     * 调整在线计数（由Player在在线状态变化时调用）
+     */
+    void adjustOnlineCount(int delta) {
+        onlineCount.addAndGet(delta);
     }
 
     /**
@@ -344,6 +547,7 @@ public class Room {
         }
 
         this.ownerId = newOwnerId;
+        markDirty();
         return true;
     }
 
@@ -351,17 +555,103 @@ public class Room {
      * 清空所有玩家
      */
     public void clearAllPlayers() {
-        players.clear();
+        for (Long playerId : List.copyOf(players.keySet())) {
+            removePlayer(playerId);
+        }
+        markDirty();
+    }
+
+    // ==================== 视图缓存方法 ====================
+
+    /**
+     * 设置房间状态（同时使视图缓存失效）
+     *
+     * @param roomStatus 房间状态
+     */
+    public void setRoomStatus(RoomStatus roomStatus) {
+        this.roomStatus = roomStatus;
+        markDirty();
+    }
+
+    /**
+     * 设置房主ID（同时使视图缓存失效）
+     *
+     * @param ownerId 房主ID
+     */
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+        markDirty();
+    }
+
+    /**
+     * 标记房间视图已变化
+     */
+    public void markDirty() {
+        version.incrementAndGet();
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 获取当前视图版本号
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 获取当前版本的房间JSON，同一版本内的房间推送与列表分页共用同一份序列化结果
+     *
+     * @param objectMapper 序列化器（调用方须统一传入Spring配置的ObjectMapper，缓存不区分序列化器）
+     * @return 预序列化的RoomVO
+     */
+    public RawJson toRoomJson(ObjectMapper objectMapper) throws JsonProcessingException {
+        Snapshot current = currentSnapshot();
+        RawJson json = current.json;
+        if (json == null) {
+            json = new RawJson(objectMapper.writeValueAsString(current.roomVO));
+            current.json = json;
+        }
+        return json;
+    }
+
+    /**
+     * 获取当前版本的视图快照，版本变化后首次访问时重建
+     */
+    private Snapshot currentSnapshot() {
+        long currentVersion = version.get();
+        Snapshot current = snapshot;
+        if (current != null && current.version == currentVersion) {
+            return current;
+        }
+        // 先读版本号再构建：构建期间发生的变化会使版本号前进，下次访问时重建
+        Snapshot rebuilt = new Snapshot(currentVersion, buildRoomVO());
+        snapshot = rebuilt;
+        return rebuilt;
     }
 
     // ==================== 转换方法 ====================
 
     /**
      * 将Room对象转换为RoomVO对象
+     * 返回的是当前版本的共享视图，调用方不应修改
      *
      * @return RoomVO对象
      */
     public RoomVO toRoomVO() {
+        return currentSnapshot().roomVO;
+    }
+
+    /**
+     * 构建新的RoomVO对象
+     *
+     * @return RoomVO对象
+     */
+    private RoomVO buildRoomVO() {
         RoomVO roomVO = new RoomVO();
 
         // 基础信息映射
@@ -380,7 +670,7 @@ public class Room {
 
         // 格式化创建时间
         if (this.createdAt != null) {
-            roomVO.setCreatedAt(this.createdAt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            roomVO.setCreatedAt(this.createdAt.format(CREATED_AT_FORMATTER));
         }
 
         // 转换玩家信息
@@ -0,0 +1,71 @@
+package com.lb.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 玩家战绩实体类
+ * 职责：持久化玩家的胜负场次与Elo积分，用于启动时重建排行榜
+ */
+@Data
+@TableName("user_rating")
+public class UserRatingEntity {
+
+    /**
+     * 初始Elo积分
+     */
+    public static final int INITIAL_RATING = 1000;
+
+    /**
+     * 用户ID - 主键，关联用户表
+     */
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private Long userId;
+
+    /**
+     * 胜利次数
+     */
+    @TableField("win_count")
+    private Integer winCount;
+
+    /**
+     * 失败次数
+     */
+    @TableField("lose_count")
+    private Integer loseCount;
+
+    /**
+     * Elo积分
+     */
+    @TableField("rating")
+    private Integer rating;
+
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 玩家昵称 - 不持久化，加载时从用户表关联得到
+     */
+    @TableField(exist = false)
+    private String nickName;
+
+    /**
+     * 创建一条初始战绩
+     *
+     * @param userId 用户ID
+     * @return 初始战绩
+     */
+    public static UserRatingEntity initial(Long userId) {
+        UserRatingEntity entity = new UserRatingEntity();
+        entity.setUserId(userId);
+        entity.setWinCount(0);
+        entity.setLoseCount(0);
+        entity.setRating(INITIAL_RATING);
+        return entity;
+    }
+}
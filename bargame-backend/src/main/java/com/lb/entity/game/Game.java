@@ -1,16 +1,20 @@
 package com.lb.entity.game;
 
+import com.lb.diagnostics.RequestTrace;
 import com.lb.entity.Player;
-import com.lb.util.SpringContextHolder;
-import com.lb.manager.ConnectionManager;
+import com.lb.net.BroadcastGroup;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Data
 public class Game {
     private Long gameId;
+    private Long roomId; // 所属房间ID
     private List<GamePlayer> players = new ArrayList<>();
     private Map<Long, GamePlayer> playerMap = new HashMap<>(); // playerId到GamePlayer的映射
     private GameStatus status = GameStatus.WAITING;
@@ -18,6 +22,8 @@ public class Game {
     private GamePlayer lastRoundLoser; // 上一轮的输家
     private GamePlayer winner;   //胜利者
     private int roundNumber = 1; // 轮次编号，从1开始
+    private List<Long> participantIds = new ArrayList<>(); // 本局全部参与者ID，中途离开也保留，用于结算战绩
+    private BroadcastGroup broadcastGroup; // 本局玩家当前连接的广播组，由GameManager维护
 
     public Game(Long gameId) {
         this.gameId = gameId;
@@ -26,6 +32,7 @@ public class Game {
     public void addPlayer(GamePlayer player) {
         players.add(player);
         playerMap.put(player.getPlayerId(), player);
+        participantIds.add(player.getPlayerId());
     }
 
     public void startGame() {
@@ -35,6 +42,7 @@ public class Game {
     }
 
     public synchronized void playCards(long playerId, List<Card> cards) {
+        RequestTrace.mark(RequestTrace.Stage.LOCK_ACQUIRED);
         GamePlayer player = findPlayer(playerId);
         currentRound.playCards(player, cards);
         // 出牌本身不会结束轮次，只有质疑才会结束轮次
@@ -43,6 +51,7 @@ public class Game {
     }
 
     public synchronized void challenge(long challengerId) {
+        RequestTrace.mark(RequestTrace.Stage.LOCK_ACQUIRED);
         GamePlayer challenger = findPlayer(challengerId);
         currentRound.challenge(challenger);
         if (currentRound.isRoundFinished()) {
@@ -98,6 +107,7 @@ public class Game {
      * @return true 表示玩家成功离开，false 表示玩家已在死亡状态无需处理
      */
     public synchronized boolean leaveGame(long playerId) {
+        RequestTrace.mark(RequestTrace.Stage.LOCK_ACQUIRED);
         GamePlayer leavingPlayer = findPlayer(playerId);
 
         // 检查是否为死去玩家，如果是死去玩家那么什么都不用做
@@ -153,22 +163,23 @@ public class Game {
     /**
      * 游戏结束时清理所有状态，解除所有对象引用以便GC回收
      * 确保没有内存泄漏，同时更新玩家状态
+     *
+     * @param playerLookup 按玩家ID获取Player对象，由调用方提供
      */
-    public void endGame() {
-        System.out.println("开始清理游戏状态， gameId: " + gameId);
+    public void endGame(Function<Long, Player> playerLookup) {
+        log.debug("开始清理游戏状态: gameId={}", gameId);
 
         try {
-            // 获取ConnectionManager来更新玩家状态
-            ConnectionManager connectionManager = SpringContextHolder.getConnectionManager();
-
-            // 1. 更新所有玩家的状态：将LocationType从GAME改回ROOM
+            // 1. 更新所有玩家的状态：清除所在游戏，将LocationType从GAME改回ROOM
             if (players != null) {
                 for (GamePlayer gamePlayer : players) {
                     if (gamePlayer != null) {
                         try {
-                            // 通过ConnectionManager获取对应的Player对象
-                            Player player = connectionManager.getPlayerByUserId(gamePlayer.getPlayerId());
-                            if (player != null&&player.getLocationType().equals(Player.LocationType.GAME)) {
+                            Player player = playerLookup.apply(gamePlayer.getPlayerId());
+                            if (player != null) {
+                                player.exitGame(gameId);
+                            }
+                            if (player != null && player.getLocationType() == Player.LocationType.GAME) {
                                 // 更新位置：从游戏中回到房间
                                 player.setLocationType(Player.LocationType.ROOM);
                                 // 清理游戏相关数据
@@ -177,12 +188,10 @@ public class Game {
                                 player.setHandCards(null);
                                 player.setActionHistory(null);
 
-                                System.out.println("玩家状态已更新， playerId: " + gamePlayer.getPlayerId() +
-                                                 ", LocationType: ROOM");
+                                log.debug("玩家状态已更新: playerId={}, locationType=ROOM", gamePlayer.getPlayerId());
                             }
                         } catch (Exception e) {
-                            System.err.println("更新玩家状态失败， playerId: " + gamePlayer.getPlayerId() +
-                                             ", error: " + e.getMessage());
+                            log.warn("更新玩家状态失败: playerId={}, error={}", gamePlayer.getPlayerId(), e.getMessage());
                         }
 
                         // 清理GamePlayer内部状态
@@ -217,11 +226,10 @@ public class Game {
             // 6. 重置轮次编号
             this.roundNumber = 1;
 
-            System.out.println("游戏状态清理完成， gameId: " + gameId);
+            log.debug("游戏状态清理完成: gameId={}", gameId);
 
         } catch (Exception e) {
-            System.err.println("清理游戏状态时发生异常， gameId: " + gameId + ", error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("清理游戏状态时发生异常: gameId={}, error={}", gameId, e.getMessage(), e);
         }
     }
 
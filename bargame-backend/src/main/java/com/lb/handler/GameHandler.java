@@ -1,5 +1,7 @@
 package com.lb.handler;
 
+import com.lb.diagnostics.GameCommandEvent;
+import com.lb.manager.GameManager;
 import com.lb.message.WebSocketMsg;
 import com.lb.message.enums.ModuleType;
 import com.lb.service.imp.GameService;
@@ -13,6 +15,8 @@ import org.springframework.stereotype.Component;
 public class GameHandler {
     @Autowired
     private GameService gameService;
+    @Autowired
+    private GameManager gameManager;
 
     /**
      * 处理游戏相关消息
@@ -21,6 +25,29 @@ public class GameHandler {
      * @return WebSocketMsg<?> 响应消息（成功/错误），null 表示无需响应
      */
     public WebSocketMsg<?> handle(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
+        GameCommandEvent event = new GameCommandEvent();
+        event.begin();
+        WebSocketMsg<?> response = null;
+        try {
+            response = route(msg, connectionContext);
+            return response;
+        } finally {
+            if (event.shouldCommit()) {
+                Long userId = connectionContext.getUserId();
+                Long gameId = userId != null ? gameManager.getPlayerGameId(userId) : null;
+                event.userId = userId != null ? userId : 0L;
+                event.gameId = gameId != null ? gameId : 0L;
+                event.cmd = String.valueOf(msg.getCmd());
+                event.code = response != null && response.getCode() != null ? response.getCode() : 500;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 按指令分发到GameService
+     */
+    private WebSocketMsg<?> route(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
         switch (msg.getCmd()) {
             // --------------- 游戏请求型命令 ---------------
             case START_GAME -> {
@@ -27,6 +27,15 @@ public class HallHandler {
             case ONLINE_LIST -> {
                 return hallService.onlineList(msg, connectionContext);
             }
+            case LEADERBOARD -> {
+                return hallService.leaderboard(msg, connectionContext);
+            }
+            case ROOM_DIRECTORY_SUBSCRIBE -> {
+                return hallService.subscribeRoomDirectory(msg, connectionContext);
+            }
+            case ROOM_DIRECTORY_UNSUBSCRIBE -> {
+                return hallService.unsubscribeRoomDirectory(msg, connectionContext);
+            }
 
 
             default -> {
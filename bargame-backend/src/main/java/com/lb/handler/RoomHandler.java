@@ -28,6 +28,9 @@ public class RoomHandler {
             case ROOM_LEAVE -> {
                 return roomService.leaveRoom(msg, connectionContext);
             }
+            case ROOM_CHAT -> {
+                return roomService.sendChat(msg, connectionContext);
+            }
             case PLAYER_PREPARE -> {
                 return roomService.playerPrepare(msg, connectionContext);
             }
@@ -1,12 +1,18 @@
 package com.lb.manager;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.diagnostics.BroadcastEvent;
 import com.lb.entity.Player;
 import com.lb.message.vo.hall.OnlineListResponse;
 import com.lb.message.WebSocketMsg;
 import com.lb.message.enums.CmdType;
 import com.lb.message.enums.ModuleType;
+import com.lb.metrics.MetricsRegistry;
+import com.lb.net.BroadcastGroup;
 import com.lb.net.ConnectionContext;
+import com.lb.net.UserSession;
+import com.lb.net.netty.NettyBroadcastGroup;
+import io.netty.buffer.ByteBufUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -14,12 +20,12 @@ import org.springframework.stereotype.Component;
 import java.util.stream.Collectors;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket连接管理器
  * 职责：管理WebSocket连接，负责底层的连接生命周期管理
  * 注意：用户状态管理已移至UserStateManager，此类只负责连接管理
+ * 连接不再单独登记，统一挂在UserStateManager的UserSession上；连接上下文本身由传输层保存在Channel属性中
  *
  * @author LiarBar
  * @version 2.0
@@ -28,13 +34,13 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class ConnectionManager {
 
-    // 纯连接管理：只管理物理连接
-    private final Map<String, ConnectionContext> connections = new ConcurrentHashMap<>(); // connectionId -> ConnectionContext
-
     // 用户状态管理器
     @Autowired
     private UserStateManager userStateManager;
 
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
     // ObjectMapper用于JSON序列化
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -49,67 +55,46 @@ public class ConnectionManager {
 
     /**
      * 添加新连接
-     * 处理连接建立，将用户状态与连接关联
+     * 处理连接建立，将用户状态与连接关联；同一用户的旧连接被原子替换
      *
-     * @param connectionId 连接ID（通常使用Session.getId()）
-     * @param connectionContext 连接上下文
+     * @param connectionContext 连接上下文（必须已绑定用户ID）
      * @param player 玩家对象
-     * @return 是否为新连接，false表示重复连接
+     * @return 是否为新连接，false表示替换了旧连接
      */
-    public boolean addConnection(String connectionId, ConnectionContext connectionContext, Player player) {
-        // 1. 检查用户是否已有连接（重复连接）
-        if (userStateManager.isUserOnline(player.getUserId())) {
-            String oldConnectionId = userStateManager.getConnectionIdByUserId(player.getUserId());
-            log.info("玩家[{}]重复连接，移除旧连接: {}", player.getUserId(), oldConnectionId);
-
-            // 移除旧连接（但保留用户状态）
-            removeConnection(oldConnectionId); //TODO此处进行了重复连接判断因此可以做重连挤下线功能
-        }
-
-        // 2. 添加物理连接
-        connections.put(connectionId, connectionContext);
-
-        // 3. 更新用户状态管理器
+    public boolean addConnection(ConnectionContext connectionContext, Player player) {
+        // 1. 更新用户状态管理器
         userStateManager.addOrUpdateUserState(player.getUserId(), player);
-        userStateManager.userOnline(player.getUserId(), connectionId);
+
+        // 2. 绑定连接（CAS替换，旧连接的迟到断开事件不会影响新连接）
+        ConnectionContext previous = userStateManager.userOnline(player.getUserId(), connectionContext);
+        if (previous != null && previous != connectionContext) {
+            log.info("玩家[{}]重复连接，旧连接已被替换: {}", player.getUserId(), previous.getId()); //TODO此处进行了重复连接判断因此可以做重连挤下线功能
+        }
 
         log.info("新连接建立: connectionId={}, userId={}, 状态={}",
-                connectionId, player.getUserId(), player.getStatusDescription());
+                connectionContext.getId(), player.getUserId(), player.getStatusDescription());
 
-        return true;
+        return previous == null;
     }
 
     /**
      * 移除连接
      * 处理连接断开，但保留用户状态
      *
-     * @param connectionId 连接ID
-     * @return 断开连接的用户ID，如果连接不存在则返回null
+     * @param connectionContext 连接上下文
+     * @return 断开连接的用户ID；连接不存在或已被新连接替换时返回null
      */
-    public Long removeConnection(String connectionId) {
-        // 1. 移除物理连接
-        connections.remove(connectionId);
-
-        // 2. 通过用户状态管理器处理用户下线（保留状态）
-        Long userId = userStateManager.userOffline(connectionId);
+    public Long removeConnection(ConnectionContext connectionContext) {
+        // 通过用户状态管理器处理用户下线（保留状态）
+        Long userId = userStateManager.userOffline(connectionContext);
 
         if (userId != null) {
-            log.info("连接移除: connectionId={}, userId={}", connectionId, userId);
+            log.info("连接移除: connectionId={}, userId={}", connectionContext.getId(), userId);
         }
 
         return userId;
     }
 
-    /**
-     * 获取连接
-     *
-     * @param connectionId 连接ID
-     * @return ConnectionContext，如果不存在则返回null
-     */
-    public ConnectionContext getConnection(String connectionId) {
-        return connections.get(connectionId);
-    }
-
     /**
      * 根据用户ID获取连接
      *
@@ -117,18 +102,7 @@ public class ConnectionManager {
      * @return ConnectionContext，如果用户不在线则返回null
      */
     public ConnectionContext getConnectionByUserId(Long userId) {
-        String connectionId = userStateManager.getConnectionIdByUserId(userId);
-        return connectionId != null ? connections.get(connectionId) : null;
-    }
-
-    /**
-     * 根据用户ID获取连接ID
-     *
-     * @param userId 用户ID
-     * @return 连接ID，如果用户不在线则返回null
-     */
-    public String getConnectionIdByUserId(Long userId) {
-        return userStateManager.getConnectionIdByUserId(userId);
+        return userStateManager.getConnection(userId);
     }
 
     /**
@@ -142,34 +116,8 @@ public class ConnectionManager {
         return userStateManager.getUserState(userId);
     }
 
-    /**
-     * 根据连接ID获取玩家对象
-     *
-     * @param connectionId 连接ID
-     * @return 玩家对象，如果连接不存在则返回null
-     */
-    public Player getPlayerByConnectionId(String connectionId) {
-        Long userId = userStateManager.getUserIdByConnectionId(connectionId);
-        return userId != null ? userStateManager.getUserState(userId) : null;
-    }
-
     // ==================== 消息发送方法 ====================
 
-    /**
-     * 发送消息给指定连接
-     *
-     * @param connectionId 连接ID
-     * @param message 消息内容
-     * @return 是否发送成功
-     */
-    public boolean sendMessage(String connectionId, String message) {
-        ConnectionContext connectionContext = connections.get(connectionId);
-        if (connectionContext != null && connectionContext.isOpen()) {
-            return connectionContext.sendMessage(message);
-        }
-        return false;
-    }
-
     /**
      * 发送消息给指定用户
      *
@@ -178,8 +126,8 @@ public class ConnectionManager {
      * @return 是否发送成功
      */
     public boolean sendMessageToUser(Long userId, String message) {
-        String connectionId = userStateManager.getConnectionIdByUserId(userId);
-        return connectionId != null && sendMessage(connectionId, message);
+        ConnectionContext connectionContext = userStateManager.getConnection(userId);
+        return connectionContext != null && connectionContext.isOpen() && connectionContext.sendMessage(message);
     }
 
     /**
@@ -190,18 +138,27 @@ public class ConnectionManager {
      */
     public int broadcastToAll(String message) {
         int successCount = 0;
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
 
-        for (Map.Entry<String, ConnectionContext> entry : connections.entrySet()) {
-            ConnectionContext connectionContext = entry.getValue();
+        for (UserSession session : userStateManager.getOnlineSessions()) {
+            ConnectionContext connectionContext = session.getConnection();
             if (connectionContext != null && connectionContext.isOpen()) {
                 if (connectionContext.sendMessage(message)) {
                     successCount++;
                 } else {
-                    log.error("广播消息失败: connectionId={}", entry.getKey());
+                    log.error("广播消息失败: connectionId={}", connectionContext.getId());
                 }
             }
         }
 
+        metricsRegistry.fanoutHistogram("all").record(successCount);
+        if (event.shouldCommit()) {
+            event.group = "all";
+            event.fanout = successCount;
+            event.bytes = ByteBufUtil.utf8Bytes(message);
+            event.commit();
+        }
         return successCount;
     }
 
@@ -251,6 +208,18 @@ public class ConnectionManager {
         }
     }
 
+    /**
+     * 创建广播组（房间、游戏各持有一个）
+     *
+     * @param name 广播组名称，用于日志；最后一个“-”之前的部分作为扇出统计的分组类型
+     * @return 新的广播组
+     */
+    public BroadcastGroup createBroadcastGroup(String name) {
+        int separator = name.lastIndexOf('-');
+        String kind = separator > 0 ? name.substring(0, separator) : name;
+        return new NettyBroadcastGroup(name, metricsRegistry.fanoutHistogram(kind));
+    }
+
     // ==================== 统计和查询方法 ====================
 
     /**
@@ -259,7 +228,7 @@ public class ConnectionManager {
      * @return 在线连接数量
      */
     public int getTotalConnections() {
-        return connections.size();
+        return userStateManager.getOnlineUserCount();
     }
 
     /**
@@ -299,11 +268,12 @@ public class ConnectionManager {
      * 清理所有连接（应用关闭时调用）
      */
     public void cleanup() {
-        log.info("开始清理所有WebSocket连接，当前连接数: {}", connections.size());
+        log.info("开始清理所有WebSocket连接，当前连接数: {}", getTotalConnections());
 
-        connections.values().forEach(connectionContext -> {
+        userStateManager.getOnlineSessions().forEach(session -> {
             try {
-                if (connectionContext.isOpen()) {
+                ConnectionContext connectionContext = session.getConnection();
+                if (connectionContext != null && connectionContext.isOpen()) {
                     connectionContext.close();
                 }
             } catch (Exception e) {
@@ -311,8 +281,6 @@ public class ConnectionManager {
             }
         });
 
-        connections.clear();
-
         // 清理用户状态管理器
         userStateManager.cleanup();
 
@@ -322,26 +290,21 @@ public class ConnectionManager {
     /**
      * 获取连接详细信息（用于调试）
      *
-     * @param connectionId 连接ID
+     * @param userId 用户ID
      * @return 连接详细信息
      */
-    public Map<String, Object> getConnectionInfo(String connectionId) {
+    public Map<String, Object> getConnectionInfo(Long userId) {
         Map<String, Object> info = new HashMap<>();
 
-        ConnectionContext connectionContext = connections.get(connectionId);
-        Long userId = userStateManager.getUserIdByConnectionId(connectionId);
-
+        ConnectionContext connectionContext = userStateManager.getConnection(userId);
         if (connectionContext != null) {
             info.put("sessionId", connectionContext.getId());
             info.put("isOpen", connectionContext.isOpen());
         }
 
-        if (userId != null) {
-            // 通过用户状态管理器获取详细信息
-            Map<String, Object> userInfo = userStateManager.getUserInfo(userId);
-            info.putAll(userInfo);
-        }
+        // 通过用户状态管理器获取详细信息
+        info.putAll(userStateManager.getUserInfo(userId));
 
         return info;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package com.lb.manager;
+
+import com.lb.mapper.UserMapper;
+import com.lb.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 注册邮箱过滤器管理器
+ * 职责：在内存中维护已注册邮箱的布隆过滤器，注册时先判断邮箱是否“一定不存在”，
+ * 命中则跳过查重查询（由邮箱唯一索引兜底）
+ *
+ * 启动时流式扫描用户表构建过滤器，构建完成前一律回答“可能存在”，保证数据库不可用时不会误拒；
+ * 之后只增量插入本节点注册的邮箱。多节点部署或直接写库时，其他来源的新邮箱不在本节点过滤器中，
+ * “一定不存在”的判定可能过期，因此不能作为拒绝登录/认证的依据；登录时发现的遗漏邮箱会补入过滤器
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class EmailFilterManager {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 期望邮箱数量，超出后误判率上升，需调大后重启
+     */
+    @Value("${user.email-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    /**
+     * 期望误判率
+     */
+    @Value("${user.email-filter.fpp:0.01}")
+    private double fpp;
+
+    private volatile BloomFilter filter;
+
+    // 启动扫描是否完成
+    private volatile boolean ready;
+
+    // 过滤器判断次数
+    private final LongAdder checks = new LongAdder();
+
+    // 判定一定不存在（跳过数据库）的次数
+    private final LongAdder definiteMisses = new LongAdder();
+
+    // 判定可能存在但数据库中不存在的次数
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * 流式扫描用户表重建过滤器（启动时调用）
+     * 新过滤器先于扫描发布，扫描期间注册的邮箱直接写入新过滤器，不会丢失
+     */
+    @PostConstruct
+    public void rebuild() {
+        ready = false;
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, fpp);
+        filter = rebuilt;
+        try {
+            long started = System.currentTimeMillis();
+            Long scanned = transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Cursor<String> cursor = userMapper.streamEmails()) {
+                    for (String email : cursor) {
+                        if (email != null) {
+                            rebuilt.put(normalize(email));
+                            count++;
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                return count;
+            });
+            ready = true;
+            log.info("注册邮箱过滤器构建完成: emails={}, bits={}, hashes={}, expectedFpp={}, cost={}ms",
+                    scanned, rebuilt.getBitCount(), rebuilt.getHashCount(),
+                    String.format("%.5f", rebuilt.expectedFpp()), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("注册邮箱过滤器构建失败，将直接查询数据库: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 判断邮箱是否可能已注册
+     *
+     * @param email 邮箱
+     * @return false表示本节点未见过该邮箱（查重可交给唯一索引）；true表示需查询数据库确认
+     */
+    public boolean mightExist(String email) {
+        if (!ready || email == null) {
+            return true;
+        }
+        checks.increment();
+        if (filter.mightContain(normalize(email))) {
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * 记录一次误判：过滤器判定可能存在，但数据库中不存在
+     */
+    public void recordFalsePositive() {
+        if (ready) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * 登记新注册的邮箱
+     *
+     * @param email 邮箱
+     */
+    public void add(String email) {
+        if (email != null) {
+            filter.put(normalize(email));
+        }
+    }
+
+    /**
+     * 获取过滤器统计信息
+     * observedFpp = 误判次数 / 实际不存在的邮箱查询次数
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        BloomFilter current = filter;
+        long misses = definiteMisses.sum();
+        long falsePositive = falsePositives.sum();
+        stats.put("ready", ready);
+        stats.put("insertions", current != null ? current.getInsertions() : 0);
+        stats.put("expectedFpp", current != null ? current.expectedFpp() : 0.0);
+        stats.put("checks", checks.sum());
+        stats.put("definiteMisses", misses);
+        stats.put("falsePositives", falsePositive);
+        stats.put("observedFpp", misses + falsePositive > 0 ? (double) falsePositive / (misses + falsePositive) : 0.0);
+        return stats;
+    }
+
+    /**
+     * 邮箱归一化（与MySQL默认不区分大小写的比较保持一致）
+     */
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
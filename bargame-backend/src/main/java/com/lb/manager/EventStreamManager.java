@@ -0,0 +1,150 @@
+package com.lb.manager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.message.WebSocketMsg;
+import com.lb.util.EventStream;
+import com.lb.util.PersonalizedTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件流管理器
+ * 职责：管理每个游戏、每个房间的推送事件流，为推送消息分配序号并保留补发缓冲
+ * 流标识格式为 "game:{gameId}" 与 "room:{roomId}"，随消息下发给客户端
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class EventStreamManager {
+
+    // 流标识 -> 事件流
+    private final Map<String, EventStream> streams = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 每个事件流保留的最大消息条数
+     */
+    @Value("${event-stream.replay-capacity:256}")
+    private int replayCapacity;
+
+    // ==================== 流标识 ====================
+
+    public static String gameStream(Long gameId) {
+        return "game:" + gameId;
+    }
+
+    public static String roomStream(Long roomId) {
+        return "room:" + roomId;
+    }
+
+    // ==================== 发布相关 ====================
+
+    /**
+     * 发布一条面向流内所有成员的消息
+     * 分配序号、序列化并写入补发缓冲在同一把锁内完成，保证缓冲顺序与序号一致
+     *
+     * @param streamKey 流标识
+     * @param message 推送消息，会被写入stream与seq字段
+     * @return 序列化后的JSON字符串
+     */
+    public String publish(String streamKey, WebSocketMsg<?> message) throws JsonProcessingException {
+        EventStream stream = getOrCreate(streamKey);
+        synchronized (stream) {
+            long seq = stream.nextSeq();
+            return record(stream, streamKey, seq, null, message);
+        }
+    }
+
+    /**
+     * 发布一组个性化推送（每个玩家内容只有一个字段不同）
+     * 共享部分只序列化一次，每个玩家的私有片段在渲染时拼入；整组消息共享同一个序号
+     *
+     * @param streamKey 流标识
+     * @param sharedMessage 共享消息，私有字段必须为null
+     * @param fieldName 私有字段名
+     * @param fragments 目标用户ID -> 私有字段的值
+     * @return 目标用户ID -> 序列化后的JSON字符串（保持fragments的迭代顺序）
+     */
+    public Map<Long, String> publishPersonalized(String streamKey, WebSocketMsg<?> sharedMessage, String fieldName,
+                                                 Map<Long, ?> fragments) throws JsonProcessingException {
+        EventStream stream = getOrCreate(streamKey);
+        Map<Long, String> rendered = new LinkedHashMap<>(fragments.size() * 2);
+        synchronized (stream) {
+            long seq = stream.nextSeq();
+            sharedMessage.setStream(streamKey);
+            sharedMessage.setSeq(seq);
+            PersonalizedTemplate template = PersonalizedTemplate.compile(objectMapper, sharedMessage, fieldName);
+
+            for (Map.Entry<Long, ?> fragment : fragments.entrySet()) {
+                String json = template.render(fragment.getValue());
+                stream.append(seq, fragment.getKey(), json);
+                rendered.put(fragment.getKey(), json);
+            }
+        }
+        return rendered;
+    }
+
+    // ==================== 补发相关 ====================
+
+    /**
+     * 获取用户在指定流中错过的消息
+     *
+     * @param streamKey 流标识
+     * @param afterSeq 客户端最后收到的序号
+     * @param userId 用户ID
+     * @return 错过的消息列表；流不存在或缺口已被淘汰时返回null
+     */
+    public List<String> replaySince(String streamKey, long afterSeq, Long userId) {
+        EventStream stream = streams.get(streamKey);
+        return stream != null ? stream.replaySince(afterSeq, userId) : null;
+    }
+
+    /**
+     * 获取流当前的最大序号
+     *
+     * @param streamKey 流标识
+     * @return 最大序号，流不存在时为0
+     */
+    public long getLastSeq(String streamKey) {
+        EventStream stream = streams.get(streamKey);
+        return stream != null ? stream.getLastSeq() : 0;
+    }
+
+    /**
+     * 移除事件流（游戏结束或房间解散时调用）
+     *
+     * @param streamKey 流标识
+     */
+    public void removeStream(String streamKey) {
+        if (streams.remove(streamKey) != null) {
+            log.debug("事件流已移除: stream={}", streamKey);
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private EventStream getOrCreate(String streamKey) {
+        return streams.computeIfAbsent(streamKey, key -> new EventStream(replayCapacity));
+    }
+
+    private String record(EventStream stream, String streamKey, long seq, Long targetUserId, WebSocketMsg<?> message)
+            throws JsonProcessingException {
+        message.setStream(streamKey);
+        message.setSeq(seq);
+        String json = objectMapper.writeValueAsString(message);
+        stream.append(seq, targetUserId, json);
+        return json;
+    }
+}
@@ -2,17 +2,20 @@ package com.lb.manager;
 
 import com.lb.entity.Player;
 import com.lb.entity.game.*;
+import com.lb.net.ConnectionContext;
+import com.lb.util.SnowflakeIdGenerator;
 import lombok.Data;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
  * 游戏管理器 - 管理所有游戏实例
  * 负责创建、查找、管理游戏房间和游戏状态
+ * 游戏实例自身记录所属房间与参与者，索引均为long键，清理一局游戏只涉及该局的玩家
  */
 @Service
 @Data
@@ -22,17 +25,23 @@ public class GameManager {
     @Autowired
     private RoomManager roomManager;
 
-    // 游戏ID生成器，从1001开始
-    private long gameIdSequence = 1001;
+    @Autowired
+    private EventStreamManager eventStreamManager;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
 
     // 存储所有游戏实例 gameId -> Game
-    private final Map<Long, Game> gameMap = new ConcurrentHashMap<>();
+    private final NonBlockingHashMapLong<Game> gameMap = new NonBlockingHashMapLong<>();
 
-    // 玩家ID到游戏ID的映射 playerId -> gameId
-    private final Map<Long, Long> playerGameMap = new ConcurrentHashMap<>();
+    // 玩家ID到所在游戏的映射 playerId -> Game
+    private final NonBlockingHashMapLong<Game> playerGameMap = new NonBlockingHashMapLong<>();
 
-    // 房间ID到游戏ID的映射 roomId -> gameId
-    private final Map<Long, Long> roomGameMap = new ConcurrentHashMap<>();
+    // 房间ID到游戏的映射 roomId -> Game
+    private final NonBlockingHashMapLong<Game> roomGameMap = new NonBlockingHashMapLong<>();
 
     /**
      * 创建新游戏
@@ -43,6 +52,8 @@ public class GameManager {
         // 自动生成游戏ID
         Long gameId = generateGameId();
         Game game = new Game(gameId);
+        game.setRoomId(roomId);
+        game.setBroadcastGroup(connectionManager.createBroadcastGroup("game-" + gameId));
 
         // 将房间内的玩家转换为GamePlayer并添加到游戏中
         Collection<Player> roomPlayers = roomManager.getRoomPlayers(roomId);
@@ -51,12 +62,18 @@ public class GameManager {
             if (player.isOnline()) {
                 GamePlayer gamePlayer = new GamePlayer(player.getUserId());
                 game.addPlayer(gamePlayer);
-                playerGameMap.put(player.getUserId(), gameId);
+                playerGameMap.put(player.getUserId().longValue(), game);
+                player.enterGame(gameId);
+
+                ConnectionContext connectionContext = connectionManager.getConnectionByUserId(player.getUserId());
+                if (connectionContext != null) {
+                    game.getBroadcastGroup().add(connectionContext);
+                }
             }
         }
 
-        gameMap.put(gameId, game);
-        roomGameMap.put(roomId, gameId);
+        gameMap.put(gameId.longValue(), game);
+        roomGameMap.put(roomId.longValue(), game);
         return game;
     }
 
@@ -64,8 +81,8 @@ public class GameManager {
      * 生成唯一的游戏ID
      * @return 新的游戏ID
      */
-    private synchronized Long generateGameId() {
-        return gameIdSequence++; // 线程安全的自增ID生成
+    private Long generateGameId() {
+        return idGenerator.nextId();
     }
 
     /**
@@ -79,16 +96,14 @@ public class GameManager {
      * 根据房间ID获取游戏
      */
     public Game getGameByRoom(Long roomId) {
-        Long gameId = roomGameMap.get(roomId);
-        return gameId != null ? gameMap.get(gameId) : null;
+        return roomGameMap.get(roomId.longValue());
     }
 
     /**
      * 根据玩家ID获取所在游戏
      */
     public Game getGameByPlayer(long playerId) {
-        Long gameId = playerGameMap.get(playerId);
-        return gameId != null ? gameMap.get(gameId) : null;
+        return playerGameMap.get(playerId);
     }
 
 
@@ -97,16 +112,27 @@ public class GameManager {
      * 玩家离开游戏
      */
     public void leaveGame(long playerId) {
-        Long gameId = playerGameMap.get(playerId);
-        if (gameId != null) {
-            Game game = gameMap.get(gameId);
-            if (game != null) {
-                // 使用新的removePlayer方法，同时从列表和映射中移除
-                game.removePlayer(playerId);
+        Game game = playerGameMap.remove(playerId);
+        if (game != null) {
+            // 使用新的removePlayer方法，同时从列表和映射中移除
+            game.removePlayer(playerId);
+            game.getBroadcastGroup().remove(playerId);
+
+            // 与createGame中的enterGame对应，清除玩家所在游戏（仅当仍指向本局）
+            Player player = connectionManager.getPlayerByUserId(playerId);
+            if (player != null) {
+                player.exitGame(game.getGameId());
             }
+        }
+    }
 
-            // 清理玩家映射
-            playerGameMap.remove(playerId);
+    /**
+     * 将玩家当前连接重新加入所在游戏的广播组（断线重连时调用）
+     */
+    public void attachConnection(long playerId, ConnectionContext connectionContext) {
+        Game game = getGameByPlayer(playerId);
+        if (game != null) {
+            game.getBroadcastGroup().add(connectionContext);
         }
     }
 
@@ -114,13 +140,20 @@ public class GameManager {
      * 清理游戏实例
      */
     public void cleanupGame(Long gameId) {
-        Game game = gameMap.remove(gameId);
+        Game game = gameMap.remove(gameId.longValue());
         if (game != null) {
-            // 清理房间映射
-            roomGameMap.entrySet().removeIf(entry -> gameId.equals(entry.getValue()));
+            game.getBroadcastGroup().clear();
+
+            // 清理房间映射（仅当房间仍指向本局游戏）
+            roomGameMap.remove(game.getRoomId().longValue(), game);
+
+            // 清理本局参与者的玩家映射，中途离开的玩家已在leaveGame中移除
+            for (Long playerId : game.getParticipantIds()) {
+                playerGameMap.remove(playerId.longValue(), game);
+            }
 
-            // 清理所有玩家映射
-            playerGameMap.entrySet().removeIf(entry -> gameId.equals(entry.getValue()));
+            // 清理事件流
+            eventStreamManager.removeStream(EventStreamManager.gameStream(gameId));
         }
     }
 
@@ -150,7 +183,8 @@ public class GameManager {
     }
 
     public Long getPlayerGameId(Long playerId) {
-        return playerGameMap.get(playerId);
+        Game game = playerGameMap.get(playerId.longValue());
+        return game != null ? game.getGameId() : null;
     }
 
     /**
@@ -161,7 +195,7 @@ public class GameManager {
     }
 
     public boolean roomExists(Long roomId) {
-        return roomGameMap.containsKey(roomId);
+        return roomGameMap.containsKey(roomId.longValue());
     }
 
     /**
@@ -177,21 +211,16 @@ public class GameManager {
     }
 
     /**
-     * 获取所有活跃游戏列表
+     * 获取当前游戏数量
      */
-    public List<Long> getActiveGames() {
-        return new ArrayList<>(gameMap.keySet());
+    public int getGameCount() {
+        return gameMap.size();
     }
 
     /**
-     * 清理所有已结束的游戏
+     * 获取所有活跃游戏列表
      */
-    public void cleanupFinishedGames() {
-        List<Long> finishedGames = gameMap.entrySet().stream()
-            .filter(entry -> entry.getValue().getStatus() == GameStatus.FINISHED)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
-
-        finishedGames.forEach(this::cleanupGame);
+    public List<Long> getActiveGames() {
+        return new ArrayList<>(gameMap.keySet());
     }
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.lb.manager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.entity.Room;
+import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import com.lb.message.vo.hall.RoomDirectoryDeltaVO;
+import com.lb.net.BroadcastGroup;
+import com.lb.net.ConnectionContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大厅订阅管理器
+ * 职责：管理大厅客户端对房间目录的订阅，按过滤条件（游戏模式、是否有空位）分组，
+ * 周期性地把期间发生的房间变化合并为增量（新增/变化/移除）推送给各组订阅者
+ *
+ * 房间变化只登记房间引用，同一周期内同一房间多次变化只推送一次；
+ * 每个过滤组维护当前可见房间集合，据此判定增量类型，推送内容与订阅人数无关地只序列化一次
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class HallSubscriptionManager {
+
+    /**
+     * 订阅过滤条件
+     */
+    public static final class Filter {
+        private final Room.GameMode gameMode;
+        private final boolean hasSlots;
+
+        public Filter(Room.GameMode gameMode, boolean hasSlots) {
+            this.gameMode = gameMode;
+            this.hasSlots = hasSlots;
+        }
+
+        public Room.GameMode getGameMode() {
+            return gameMode;
+        }
+
+        public boolean isHasSlots() {
+            return hasSlots;
+        }
+
+        private String key() {
+            return (gameMode != null ? gameMode.name() : "ALL") + ":" + hasSlots;
+        }
+
+        private boolean matches(Room room) {
+            return !room.isClosed()
+                    && (gameMode == null || room.getGameMode() == gameMode)
+                    && (!hasSlots || room.canJoin());
+        }
+    }
+
+    /**
+     * 过滤组：订阅者广播组 + 当前可见房间集合
+     */
+    private static final class FilterGroup {
+        private final Filter filter;
+        private final BroadcastGroup subscribers;
+        private final Set<Long> visible = ConcurrentHashMap.newKeySet();
+
+        private FilterGroup(Filter filter, BroadcastGroup subscribers) {
+            this.filter = filter;
+            this.subscribers = subscribers;
+        }
+    }
+
+    // 过滤键 -> 过滤组（启动时按全部组合创建）
+    private final Map<String, FilterGroup> groups = new ConcurrentHashMap<>();
+
+    // 用户ID -> 当前订阅的过滤键
+    private final Map<Long, String> subscriptions = new ConcurrentHashMap<>();
+
+    // 待推送的房间变化 roomId -> Room
+    private final Map<Long, Room> pendingChanges = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushExecutor;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 增量推送周期（毫秒）
+     */
+    @Value("${hall.directory.push-interval-ms:500}")
+    private long pushIntervalMs;
+
+    @PostConstruct
+    public void start() {
+        List<Room.GameMode> modes = new ArrayList<>();
+        modes.add(null);
+        modes.addAll(List.of(Room.GameMode.values()));
+        for (Room.GameMode mode : modes) {
+            for (boolean hasSlots : new boolean[]{false, true}) {
+                Filter filter = new Filter(mode, hasSlots);
+                groups.put(filter.key(), new FilterGroup(filter,
+                        connectionManager.createBroadcastGroup("hall-rooms-" + filter.key())));
+            }
+        }
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hall-directory-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+    }
+
+    // ==================== 订阅相关 ====================
+
+    /**
+     * 订阅房间目录（重复订阅时替换原过滤条件）
+     *
+     * @param userId 用户ID
+     * @param connectionContext 当前连接
+     * @param filter 过滤条件
+     */
+    public void subscribe(Long userId, ConnectionContext connectionContext, Filter filter) {
+        unsubscribe(userId);
+        FilterGroup group = groups.get(filter.key());
+        group.subscribers.add(connectionContext);
+        subscriptions.put(userId, filter.key());
+        log.debug("订阅房间目录: userId={}, filter={}", userId, filter.key());
+    }
+
+    /**
+     * 取消订阅（主动取消或连接断开时调用）
+     *
+     * @param userId 用户ID
+     */
+    public void unsubscribe(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        String key = subscriptions.remove(userId);
+        if (key != null) {
+            groups.get(key).subscribers.remove(userId);
+            log.debug("取消订阅房间目录: userId={}, filter={}", userId, key);
+        }
+    }
+
+    /**
+     * 获取订阅者数量
+     *
+     * @return 订阅者数量
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // ==================== 变化登记 ====================
+
+    /**
+     * 登记房间变化（创建、成员变动、状态变化、解散后由RoomManager调用）
+     * 已解散的房间处于关闭状态，推送时作为移除处理
+     *
+     * @param room 房间
+     */
+    public void roomChanged(Room room) {
+        pendingChanges.put(room.getRoomId(), room);
+    }
+
+    // ==================== 推送相关 ====================
+
+    /**
+     * 合并本周期的房间变化并推送给各过滤组
+     */
+    void flush() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Room> changed = new ArrayList<>(pendingChanges.size());
+            Iterator<Map.Entry<Long, Room>> iterator = pendingChanges.entrySet().iterator();
+            while (iterator.hasNext()) {
+                changed.add(iterator.next().getValue());
+                iterator.remove();
+            }
+
+            for (FilterGroup group : groups.values()) {
+                boolean hasSubscribers = group.subscribers.size() > 0;
+                RoomDirectoryDeltaVO delta = buildDelta(group, changed, hasSubscribers);
+                if (!hasSubscribers || delta.isEmpty()) {
+                    continue;
+                }
+                String message = objectMapper.writeValueAsString(
+                        WebSocketMsg.push(ModuleType.HALL, CmdType.ROOM_DIRECTORY_PUSH, delta));
+                int delivered = group.subscribers.broadcast(message);
+                log.debug("房间目录增量已推送: filter={}, added={}, changed={}, removed={}, subscribers={}",
+                        group.filter.key(), delta.getAdded().size(), delta.getChanged().size(),
+                        delta.getRemoved().size(), delivered);
+            }
+        } catch (Exception e) {
+            log.error("推送房间目录增量失败: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 根据过滤组的可见集合计算增量，并同步更新可见集合
+     * 无订阅者的组同样维护可见集合（但不生成推送内容），保证之后订阅时增量类型正确
+     */
+    private RoomDirectoryDeltaVO buildDelta(FilterGroup group, List<Room> changed, boolean collect)
+            throws JsonProcessingException {
+        RoomDirectoryDeltaVO delta = new RoomDirectoryDeltaVO();
+        for (Room room : changed) {
+            Long roomId = room.getRoomId();
+            if (group.filter.matches(room)) {
+                boolean added = group.visible.add(roomId);
+                if (collect) {
+                    (added ? delta.getAdded() : delta.getChanged()).add(room.toRoomJson(objectMapper));
+                }
+            } else if (group.visible.remove(roomId) && collect) {
+                delta.getRemoved().add(roomId);
+            }
+        }
+        return delta;
+    }
+}
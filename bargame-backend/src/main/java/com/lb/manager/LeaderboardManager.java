@@ -0,0 +1,358 @@
+package com.lb.manager;
+
+import com.lb.entity.Player;
+import com.lb.entity.UserRatingEntity;
+import com.lb.mapper.UserRatingMapper;
+import com.lb.message.vo.hall.LeaderboardResponse;
+import com.lb.util.RankingIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 排行榜管理器
+ * 职责：在内存中维护胜场与Elo积分两套排名索引，游戏结束时增量更新
+ * 启动时从数据库重建，查询不再访问数据库
+ *
+ * 游戏结束路径只在锁内更新内存战绩与索引（不做任何IO），变更后的战绩快照写入待持久化表，
+ * 由单独的写入线程定期合并为批量upsert落库；同一玩家在一个周期内的多次变更只写最后一次
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class LeaderboardManager {
+
+    /**
+     * Elo积分K值
+     */
+    private static final int ELO_K_FACTOR = 32;
+
+    /**
+     * 排行类型枚举
+     */
+    public enum RankType {
+        WINS("胜场榜"),
+        RATING("积分榜");
+
+        private final String description;
+
+        RankType(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public static RankType fromName(String name) {
+            if (name == null || name.isBlank()) {
+                return RATING;
+            }
+            for (RankType type : values()) {
+                if (type.name().equalsIgnoreCase(name.trim())) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown rank type: " + name);
+        }
+    }
+
+    // 战绩存储：userId -> 战绩
+    private final Map<Long, UserRatingEntity> ratings = new ConcurrentHashMap<>();
+
+    // 胜场排名索引
+    private final RankingIndex winIndex = new RankingIndex();
+
+    // 积分排名索引
+    private final RankingIndex ratingIndex = new RankingIndex();
+
+    @Autowired
+    private UserRatingMapper userRatingMapper;
+
+    @Autowired
+    private UserStateManager userStateManager;
+
+    /**
+     * 战绩批量落库周期（毫秒）
+     */
+    @Value("${leaderboard.persist.interval-ms:500}")
+    private long persistIntervalMs;
+
+    /**
+     * 单条upsert语句最多包含的战绩数
+     */
+    @Value("${leaderboard.persist.batch-size:200}")
+    private int persistBatchSize;
+
+    // 待持久化的战绩快照：userId -> 最新快照
+    private final Map<Long, UserRatingEntity> pendingWrites = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService persistExecutor;
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        persistExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-persist");
+            thread.setDaemon(true);
+            return thread;
+        });
+        persistExecutor.scheduleWithFixedDelay(this::flushPendingWrites,
+                persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (persistExecutor != null) {
+            persistExecutor.shutdown();
+            try {
+                persistExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 关闭前写出剩余变更
+        flushPendingWrites();
+    }
+
+    /**
+     * 从数据库重建排行榜（启动时调用）
+     */
+    public void rebuild() {
+        try {
+            List<UserRatingEntity> all = userRatingMapper.selectAllWithNickName();
+
+            ratings.clear();
+            winIndex.clear();
+            ratingIndex.clear();
+            for (UserRatingEntity entity : all) {
+                ratings.put(entity.getUserId(), entity);
+                reindex(entity);
+            }
+
+            log.info("排行榜重建完成: 上榜玩家数={}", ratings.size());
+        } catch (Exception e) {
+            log.error("排行榜重建失败，将以空榜启动: error={}", e.getMessage(), e);
+        }
+    }
+
+    // ==================== 更新相关 ====================
+
+    /**
+     * 记录一局游戏结果
+     * 获胜者与每个失败者分别按两两对局计算Elo变化，均以赛前积分为准
+     * 锁内只有内存计算，落库由写入线程异步批量完成
+     *
+     * @param winnerId 获胜者ID，可能为null（无人存活）
+     * @param participantIds 本局全部参与者ID（包括中途离开的玩家）
+     */
+    public void recordGameResult(Long winnerId, List<Long> participantIds) {
+        if (participantIds == null || participantIds.size() < 2) {
+            return;
+        }
+        synchronized (this) {
+            applyGameResult(winnerId, participantIds);
+        }
+        log.info("排行榜已更新: winnerId={}, participants={}", winnerId, participantIds);
+    }
+
+    private void applyGameResult(Long winnerId, List<Long> participantIds) {
+
+        // 1. 取出赛前战绩快照
+        List<UserRatingEntity> entities = new ArrayList<>(participantIds.size());
+        for (Long playerId : participantIds) {
+            entities.add(ratings.computeIfAbsent(playerId, UserRatingEntity::initial));
+        }
+        UserRatingEntity winner = winnerId != null ? ratings.get(winnerId) : null;
+
+        // 2. 计算积分变化
+        int[] deltas = new int[entities.size()];
+        if (winner != null) {
+            int winnerRating = winner.getRating();
+            double winnerGain = 0;
+            for (int i = 0; i < entities.size(); i++) {
+                UserRatingEntity loser = entities.get(i);
+                if (loser == winner) {
+                    continue;
+                }
+                double expectedWin = 1.0 / (1.0 + Math.pow(10, (loser.getRating() - winnerRating) / 400.0));
+                winnerGain += ELO_K_FACTOR * (1 - expectedWin);
+                deltas[i] = (int) Math.round(-ELO_K_FACTOR * (1 - expectedWin));
+            }
+            deltas[entities.indexOf(winner)] = (int) Math.round(winnerGain);
+        }
+
+        // 3. 应用变化并更新索引
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < entities.size(); i++) {
+            UserRatingEntity entity = entities.get(i);
+            if (entity == winner) {
+                entity.setWinCount(entity.getWinCount() + 1);
+            } else {
+                entity.setLoseCount(entity.getLoseCount() + 1);
+            }
+            entity.setRating(Math.max(0, entity.getRating() + deltas[i]));
+            entity.setUpdatedAt(now);
+
+            Player player = userStateManager.getUserState(entity.getUserId());
+            if (player != null && player.getNickName() != null) {
+                entity.setNickName(player.getNickName());
+            }
+
+            reindex(entity);
+            pendingWrites.put(entity.getUserId(), snapshot(entity));
+        }
+    }
+
+    // ==================== 查询相关 ====================
+
+    /**
+     * 获取排行榜分页
+     *
+     * @param type 排行类型
+     * @param offset 起始位置（从0开始）
+     * @param limit 条目数量
+     * @return 排行条目列表
+     */
+    public List<LeaderboardResponse.LeaderboardEntryVO> getTopPage(RankType type, int offset, int limit) {
+        List<RankingIndex.Entry> page = indexOf(type).page(offset, limit);
+        List<LeaderboardResponse.LeaderboardEntryVO> entries = new ArrayList<>(page.size());
+        for (RankingIndex.Entry entry : page) {
+            UserRatingEntity entity = ratings.get(entry.getId());
+            if (entity != null) {
+                entries.add(toEntryVO(entity, entry.getRank()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 获取指定玩家的排行条目
+     *
+     * @param type 排行类型
+     * @param userId 用户ID
+     * @return 排行条目，未上榜返回null
+     */
+    public LeaderboardResponse.LeaderboardEntryVO getEntry(RankType type, Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        UserRatingEntity entity = ratings.get(userId);
+        int rank = indexOf(type).rankOf(userId);
+        return entity != null && rank > 0 ? toEntryVO(entity, rank) : null;
+    }
+
+    /**
+     * 获取上榜玩家总数
+     *
+     * @return 上榜玩家数量
+     */
+    public int getTotal() {
+        return ratings.size();
+    }
+
+    /**
+     * 组装排行榜响应
+     *
+     * @param type 排行类型
+     * @param offset 起始位置
+     * @param limit 条目数量
+     * @param requesterId 请求者ID，可为null
+     * @return 排行榜响应
+     */
+    public LeaderboardResponse buildResponse(RankType type, int offset, int limit, Long requesterId) {
+        LeaderboardResponse response = new LeaderboardResponse();
+        response.setType(type.name());
+        response.setTotal(getTotal());
+        response.setOffset(offset);
+        response.setEntries(getTopPage(type, offset, limit));
+        response.setSelf(getEntry(type, requesterId));
+        return response;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private RankingIndex indexOf(RankType type) {
+        return type == RankType.WINS ? winIndex : ratingIndex;
+    }
+
+    private void reindex(UserRatingEntity entity) {
+        winIndex.update(entity.getUserId(), entity.getWinCount());
+        ratingIndex.update(entity.getUserId(), entity.getRating());
+    }
+
+    /**
+     * 批量写出待持久化的战绩（写入线程调用）
+     */
+    private void flushPendingWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        List<UserRatingEntity> batch = new ArrayList<>(Math.min(persistBatchSize, pendingWrites.size()));
+        for (Long userId : pendingWrites.keySet()) {
+            UserRatingEntity entity = pendingWrites.remove(userId);
+            if (entity != null) {
+                batch.add(entity);
+            }
+            if (batch.size() >= persistBatchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(persistBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * 批量upsert战绩，失败时放回待持久化表（已有更新的快照时保留更新的）等待下个周期重试
+     */
+    private void writeBatch(List<UserRatingEntity> batch) {
+        try {
+            userRatingMapper.upsertBatch(batch);
+        } catch (Exception e) {
+            log.error("批量持久化战绩失败，下个周期重试: size={}, error={}", batch.size(), e.getMessage(), e);
+            for (UserRatingEntity entity : batch) {
+                pendingWrites.putIfAbsent(entity.getUserId(), entity);
+            }
+        }
+    }
+
+    /**
+     * 复制需要落库的字段，写入线程读取快照而不是正在被修改的战绩
+     */
+    private static UserRatingEntity snapshot(UserRatingEntity entity) {
+        UserRatingEntity copy = new UserRatingEntity();
+        copy.setUserId(entity.getUserId());
+        copy.setWinCount(entity.getWinCount());
+        copy.setLoseCount(entity.getLoseCount());
+        copy.setRating(entity.getRating());
+        copy.setUpdatedAt(entity.getUpdatedAt());
+        return copy;
+    }
+
+    private LeaderboardResponse.LeaderboardEntryVO toEntryVO(UserRatingEntity entity, int rank) {
+        LeaderboardResponse.LeaderboardEntryVO vo = new LeaderboardResponse.LeaderboardEntryVO();
+        vo.setRank(rank);
+        vo.setUserId(entity.getUserId());
+        vo.setNickName(entity.getNickName());
+        vo.setWinCount(entity.getWinCount());
+        vo.setLoseCount(entity.getLoseCount());
+        vo.setRating(entity.getRating());
+        return vo;
+    }
+}
@@ -0,0 +1,236 @@
+package com.lb.manager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.entity.Player;
+import com.lb.entity.Room;
+import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import com.lb.message.vo.room.RoomChatMessageVO;
+import com.lb.message.vo.room.RoomChatPushVO;
+import com.lb.net.BroadcastGroup;
+import com.lb.net.ConnectionContext;
+import com.lb.util.RawJson;
+import com.lb.util.RingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 房间聊天管理器
+ * 职责：保存每个房间最近的聊天记录，并把一个推送周期内的聊天合并为一帧 ROOM_CHAT_PUSH 广播给房间成员
+ *
+ * 每条消息在发送时序列化一次，历史记录与推送帧都直接拼接预序列化的片段；
+ * 推送帧整体序列化一次后经房间广播组写出，不按接收者分别构建消息；
+ * 历史记录保存在定长环形缓冲区中，加入房间或断线重连时推送
+ *
+ * 历史只包含已经广播过的消息：推送周期在房间锁内把本批消息移入历史并广播，
+ * 历史推送也在同一把锁内写出，新成员收到的要么是“不含本批的历史 + 本批推送”，
+ * 要么是“本批推送 + 含本批的历史”（客户端以历史替换本地记录），不会重复也不会遗漏
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class RoomChatManager {
+
+    /**
+     * 单个房间的聊天状态
+     */
+    private static final class ChatRoom {
+        private final Long roomId;
+        private final RingBuffer<RawJson> history;
+        private List<RawJson> pending = new ArrayList<>();
+        private long lastMessageId;
+        private volatile BroadcastGroup broadcastGroup;
+
+        private ChatRoom(Long roomId, int historySize) {
+            this.roomId = roomId;
+            this.history = new RingBuffer<>(historySize);
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 每个房间保留的历史消息条数
+     */
+    @Value("${room.chat.history-size:50}")
+    private int historySize;
+
+    /**
+     * 聊天合并推送周期（毫秒）
+     */
+    @Value("${room.chat.push-interval-ms:50}")
+    private long pushIntervalMs;
+
+    // 房间ID -> 聊天状态
+    private final Map<Long, ChatRoom> rooms = new ConcurrentHashMap<>();
+
+    // 有待推送消息的房间
+    private final Set<ChatRoom> dirtyRooms = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder messages = new LongAdder();
+
+    private final LongAdder pushFrames = new LongAdder();
+
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void start() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-chat-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 发送聊天消息：等待下一个推送周期合并广播，广播后写入历史
+     *
+     * @param room 发送者所在房间
+     * @param sender 发送者
+     * @param content 聊天内容（已校验）
+     * @return 消息序号
+     * @throws JsonProcessingException 序列化失败
+     */
+    public long post(Room room, Player sender, String content) throws JsonProcessingException {
+        ChatRoom chatRoom = rooms.computeIfAbsent(room.getRoomId(), roomId -> new ChatRoom(roomId, historySize));
+        chatRoom.broadcastGroup = room.getBroadcastGroup();
+
+        RoomChatMessageVO message = new RoomChatMessageVO();
+        message.setRoomId(room.getRoomId());
+        message.setUserId(sender.getUserId());
+        message.setUsername(sender.getUsername());
+        message.setNickName(sender.getNickName());
+        message.setContent(content);
+        message.setTimestamp(System.currentTimeMillis());
+
+        long messageId;
+        synchronized (chatRoom) {
+            // 序号在锁内分配并序列化，历史与推送中的顺序与序号一致
+            messageId = ++chatRoom.lastMessageId;
+            message.setMessageId(messageId);
+            chatRoom.pending.add(new RawJson(objectMapper.writeValueAsString(message)));
+        }
+        dirtyRooms.add(chatRoom);
+        messages.increment();
+        return messageId;
+    }
+
+    /**
+     * 向单个用户推送房间历史消息（加入房间的响应之后、断线重连时调用）
+     * 在房间锁内写出，与推送周期的广播互斥，保证历史与实时推送之间不重复、不遗漏
+     *
+     * @param roomId 房间ID
+     * @param connectionContext 接收者连接（须已加入房间广播组）
+     * @return 是否发送了历史消息；房间无已推送的消息时返回false
+     */
+    public boolean sendHistory(Long roomId, ConnectionContext connectionContext) {
+        ChatRoom chatRoom = rooms.get(roomId);
+        if (chatRoom == null) {
+            return false;
+        }
+        synchronized (chatRoom) {
+            if (chatRoom.history.size() == 0) {
+                return false;
+            }
+            try {
+                return connectionContext.sendMessage(serializePush(roomId, true, chatRoom.history.snapshot()));
+            } catch (JsonProcessingException e) {
+                log.error("序列化聊天历史失败: roomId={}, error={}", roomId, e.getMessage(), e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 清除房间聊天状态（房间解散时调用）
+     *
+     * @param roomId 房间ID
+     */
+    public void removeRoom(Long roomId) {
+        ChatRoom chatRoom = rooms.remove(roomId);
+        if (chatRoom != null) {
+            dirtyRooms.remove(chatRoom);
+        }
+    }
+
+    /**
+     * 获取累计聊天消息数
+     */
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    /**
+     * 获取累计发出的聊天推送帧数（合并后）
+     */
+    public long getPushFrameCount() {
+        return pushFrames.sum();
+    }
+
+    // ==================== 推送相关 ====================
+
+    /**
+     * 推送周期：每个有新消息的房间合并为一帧广播，广播后的消息进入历史
+     */
+    private void flush() {
+        for (ChatRoom chatRoom : dirtyRooms) {
+            dirtyRooms.remove(chatRoom);
+            synchronized (chatRoom) {
+                if (chatRoom.pending.isEmpty()) {
+                    continue;
+                }
+                List<RawJson> batch = chatRoom.pending;
+                chatRoom.pending = new ArrayList<>();
+                for (RawJson message : batch) {
+                    chatRoom.history.add(message);
+                }
+                BroadcastGroup group = chatRoom.broadcastGroup;
+                if (group == null) {
+                    continue;
+                }
+                // 在锁内广播（只做异步写出），与历史推送互斥
+                try {
+                    group.broadcast(serializePush(chatRoom.roomId, false, batch));
+                    pushFrames.increment();
+                } catch (Exception e) {
+                    log.error("推送房间聊天失败: roomId={}, error={}", chatRoom.roomId, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private String serializePush(Long roomId, boolean history, List<RawJson> batch) throws JsonProcessingException {
+        RoomChatPushVO push = new RoomChatPushVO();
+        push.setRoomId(roomId);
+        push.setHistory(history);
+        push.setMessages(batch);
+        return objectMapper.writeValueAsString(WebSocketMsg.push(ModuleType.ROOM, CmdType.ROOM_CHAT_PUSH, push));
+    }
+}
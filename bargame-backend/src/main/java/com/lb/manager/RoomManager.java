@@ -2,20 +2,24 @@ package com.lb.manager;
 
 import com.lb.entity.Player;
 import com.lb.entity.Room;
+import com.lb.net.ConnectionContext;
+import com.lb.util.RoomDirectory;
+import com.lb.util.SnowflakeIdGenerator;
 import lombok.extern.slf4j.Slf4j;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * 房间管理器
  * 职责：管理游戏房间的创建、加入、离开、解散等核心功能
  * 与ConnectionManager协作：ConnectionManager管理连接，RoomManager管理房间业务逻辑
  * 与UserStateManager协作：用户状态管理器提供Player对象
+ * 并发控制：玩家与房间的绑定通过putIfAbsent原子完成，房间容量通过座位计数CAS占用，全程无全局锁
  *
  * @author LiarBar
  * @version 2.0
@@ -29,16 +33,31 @@ public class RoomManager {
     // 房间存储：roomId -> Room
     private final Map<Long, Room> roomMap = new ConcurrentHashMap<>();
 
-    // 玩家位置追踪：playerId -> roomId
-    private final Map<Long, Long> playerRoomMap = new ConcurrentHashMap<>();
+    // 玩家位置追踪：playerId -> roomId（原始long键，putIfAbsent即为玩家与房间的原子绑定）
+    private final NonBlockingHashMapLong<Long> playerRoomMap = new NonBlockingHashMapLong<>();
 
-    // 房间ID生成器
-    private long roomIdSequence = 1000; // 起始房间ID
+    // 房间目录：有序索引及按状态、模式、空位的二级索引，供房间列表分页查询
+    private final RoomDirectory roomDirectory = new RoomDirectory();
 
     // 依赖注入
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     @Autowired
     private UserStateManager userStateManager;
 
+    @Autowired
+    private EventStreamManager eventStreamManager;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private HallSubscriptionManager hallSubscriptionManager;
+
+    @Autowired
+    private RoomChatManager roomChatManager;
+
     // ==================== 房间创建相关 ====================
 
     /**
@@ -52,22 +71,22 @@ public class RoomManager {
      */
     public Room createRoom(Long ownerId, String roomName, Room.GameMode gameMode, Integer maxPlayers) {
         try {
-            // 1. 检查房主是否已在其他房间
-            if (isPlayerInRoom(ownerId)) {
-                log.warn("创建房间失败：玩家已在其他房间中，playerId={}", ownerId);
-                throw new IllegalStateException("玩家已在其他房间中，无法创建新房间");
-            }
-
-            // 2. 获取房主Player对象
+            // 1. 获取房主Player对象
             Player owner = userStateManager.getUserState(ownerId);
             if (owner == null) {
                 log.warn("创建房间失败：房主不存在，ownerId={}", ownerId);
                 throw new IllegalArgumentException("房主不存在");
             }
 
-            // 3. 生成房间ID
+            // 2. 生成房间ID
             Long roomId = generateRoomId();
 
+            // 3. 原子绑定房主与新房间，房主已在其他房间时失败
+            if (!bindPlayer(ownerId, roomId)) {
+                log.warn("创建房间失败：玩家已在其他房间中，playerId={}", ownerId);
+                throw new IllegalStateException("玩家已在其他房间中，无法创建新房间");
+            }
+
             // 4. 创建房间对象
             Room room = new Room();
             room.setRoomId(roomId);
@@ -79,16 +98,22 @@ public class RoomManager {
             room.setIsPrivate(false);
             room.setCreatedAt(LocalDateTime.now());
             room.setUpdatedAt(LocalDateTime.now());
-
-            // 5. 房主加入房间
+            room.setBroadcastGroup(connectionManager.createBroadcastGroup("room-" + roomId));
+            // 视图变化（含准备状态、房主转移等不经RoomManager的变化）同时使REST列表缓存失效并登记大厅增量推送
+            room.setChangeListener(() -> {
+                roomDirectory.touch();
+                hallSubscriptionManager.roomChanged(room);
+            });
+
+            // 5. 房主占座并加入房间
+            room.tryReserveSeat();
             room.addPlayer(owner);
-            playerRoomMap.put(ownerId, roomId);
-
-            // 更新房主状态
-            owner.joinRoom(roomId);
+            attachToGroup(room, ownerId);
 
             // 6. 更新内存数据结构
             roomMap.put(roomId, room);
+            roomDirectory.update(room);
+            hallSubscriptionManager.roomChanged(room);
 
             log.info("创建房间成功：roomId={}, roomName={}, owner={}",
                     roomId, roomName, owner.getUsername());
@@ -123,6 +148,9 @@ public class RoomManager {
                 throw new IllegalStateException("只有房主可以解散房间");
             }
 
+            // 先关闭房间，此后的并发加入一律失败
+            room.close();
+
             // 清理所有成员
             Map<Long, Player> players = room.getAllPlayers();
             for (Map.Entry<Long, Player> entry : players.entrySet()) {
@@ -130,14 +158,19 @@ public class RoomManager {
                 Player player = entry.getValue();
 
                 // 移除玩家房间映射
-                playerRoomMap.remove(playerId);
+                playerRoomMap.remove(playerId.longValue(), roomId);
 
                 // 更新玩家状态
                 player.leaveRoom();
             }
 
             // 清理房间信息
+            room.getBroadcastGroup().clear();
             roomMap.remove(roomId);
+            roomDirectory.remove(roomId);
+            hallSubscriptionManager.roomChanged(room);
+            eventStreamManager.removeStream(EventStreamManager.roomStream(roomId));
+            roomChatManager.removeRoom(roomId);
 
             log.info("解散房间成功：roomId={}, requesterId={}", roomId, requesterId);
 
@@ -158,28 +191,29 @@ public class RoomManager {
      */
     public Room joinRoom(Long playerId, Long roomId) {
         try {
-            // 1. 检查玩家是否已在其他房间
-            if (isPlayerInRoom(playerId)) {
-                log.warn("加入房间失败：玩家已在其他房间，playerId={}", playerId);
-                throw new IllegalStateException("玩家已在其他房间中");
-            }
-
-            // 2. 获取房间信息
+            // 1. 获取房间信息
             Room room = roomMap.get(roomId);
             if (room == null) {
                 log.warn("加入房间失败：房间不存在，roomId={}", roomId);
                 throw new IllegalArgumentException("房间不存在");
             }
 
-            // 3. 获取玩家对象
+            // 2. 获取玩家对象
             Player player = userStateManager.getUserState(playerId);
             if (player == null) {
                 log.warn("加入房间失败：玩家不存在，playerId={}", playerId);
                 throw new IllegalArgumentException("玩家不存在");
             }
 
-            // 4. 检查房间是否可以加入
-            if (!room.canJoin()) {
+            // 3. 原子绑定玩家与房间，同一玩家并发加入多个房间时只有一个成功
+            if (!bindPlayer(playerId, roomId)) {
+                log.warn("加入房间失败：玩家已在其他房间，playerId={}", playerId);
+                throw new IllegalStateException("玩家已在其他房间中");
+            }
+
+            // 4. 占座，并发争抢最后一个座位时只有一个成功
+            if (room.getRoomStatus() != Room.RoomStatus.WAITING || !room.tryReserveSeat()) {
+                playerRoomMap.remove(playerId.longValue(), roomId);
                 log.warn("加入房间失败：房间状态不允许加入，roomId={}, status={}, current={}, max={}",
                         roomId, room.getRoomStatus(), room.getCurrentPlayerCount(), room.getMaxPlayers());
                 throw new IllegalStateException("房间当前状态不允许加入");
@@ -187,16 +221,24 @@ public class RoomManager {
 
             // 5. 加入房间
             if (!room.addPlayer(player)) {
+                room.releaseSeat();
+                playerRoomMap.remove(playerId.longValue(), roomId);
                 throw new IllegalStateException("加入房间失败");
             }
 
-            playerRoomMap.put(playerId, roomId);
+            // 6. 加入过程中房间被解散，撤销本次加入
+            if (room.isClosed()) {
+                room.removePlayer(playerId);
+                playerRoomMap.remove(playerId.longValue(), roomId);
+                throw new IllegalStateException("房间已解散");
+            }
 
-            // 更新玩家状态
-            player.joinRoom(roomId);
+            attachToGroup(room, playerId);
 
             // 更新房间状态
             room.setUpdatedAt(LocalDateTime.now());
+            roomDirectory.update(room);
+            hallSubscriptionManager.roomChanged(room);
 
             log.info("加入房间成功：playerId={}, roomId={}, currentPlayers={}",
                     playerId, roomId, room.getCurrentPlayerCount());
@@ -218,7 +260,7 @@ public class RoomManager {
      */
     public Room leaveRoom(Long playerId) {
         try {
-            Long roomId = playerRoomMap.get(playerId);
+            Long roomId = playerRoomMap.get(playerId.longValue());
             if (roomId == null) {
                 log.debug("离开房间：玩家不在任何房间中，playerId={}", playerId);
                 return null;
@@ -227,19 +269,25 @@ public class RoomManager {
             Room room = roomMap.get(roomId);
             if (room == null) {
                 log.warn("离开房间：房间不存在，roomId={}, playerId={}", roomId, playerId);
-                playerRoomMap.remove(playerId);
+                playerRoomMap.remove(playerId.longValue(), roomId);
                 return null;
             }
 
+            // 移除成员并释放座位
             room.removePlayer(playerId);
+            room.getBroadcastGroup().remove(playerId);
 
             // 清理玩家位置信息
-            playerRoomMap.remove(playerId);
+            playerRoomMap.remove(playerId.longValue(), roomId);
 
-            // 如果房间为空，自动解散
-            if (room.getAllPlayers().isEmpty()) {
+            // 无人占座时关闭并自动解散；若有并发加入已占座则关闭失败，房间保留
+            if (room.closeIfEmpty()) {
                 log.info("房间无成员，自动解散：roomId={}", roomId);
-                roomMap.remove(roomId);
+                roomMap.remove(roomId, room);
+                roomDirectory.remove(roomId);
+                hallSubscriptionManager.roomChanged(room);
+                eventStreamManager.removeStream(EventStreamManager.roomStream(roomId));
+                roomChatManager.removeRoom(roomId);
                 return room;
             }
 
@@ -250,6 +298,8 @@ public class RoomManager {
 
             // 更新房间状态
             room.setUpdatedAt(LocalDateTime.now());
+            roomDirectory.update(room);
+            hallSubscriptionManager.roomChanged(room);
 
             log.info("离开房间成功：playerId={}, roomId={}, currentPlayers={}",
                     playerId, roomId, room.getCurrentPlayerCount());
@@ -262,6 +312,39 @@ public class RoomManager {
         }
     }
 
+    /**
+     * 将玩家当前连接重新加入所在房间的广播组（断线重连时调用）
+     *
+     * @param playerId 玩家ID
+     * @param connectionContext 新的连接上下文
+     */
+    public void attachConnection(Long playerId, ConnectionContext connectionContext) {
+        Room room = getPlayerRoom(playerId);
+        if (room != null) {
+            room.getBroadcastGroup().add(connectionContext);
+        }
+    }
+
+    /**
+     * 更新房间状态并同步目录索引
+     *
+     * @param roomId 房间ID
+     * @param status 新状态
+     * @return 更新后的房间，房间不存在时返回null
+     */
+    public Room updateRoomStatus(Long roomId, Room.RoomStatus status) {
+        Room room = roomMap.get(roomId);
+        if (room == null) {
+            return null;
+        }
+        room.setRoomStatus(status);
+        room.setUpdatedAt(LocalDateTime.now());
+        roomDirectory.update(room);
+        hallSubscriptionManager.roomChanged(room);
+        log.info("房间状态变更：roomId={}, status={}", roomId, status);
+        return room;
+    }
+
     // ==================== 查询相关 ====================
 
     /**
@@ -309,23 +392,38 @@ public class RoomManager {
     }
 
     /**
-     * 获取所有活跃房间列表
+     * 获取指定状态的房间数量
      *
-     * @return 房间列表
+     * @param status 房间状态
+     * @return 房间数量
      */
-    public List<Room> getActiveRoomList() {
-        return new ArrayList<>(roomMap.values());
+    public int countRoomsByStatus(Room.RoomStatus status) {
+        return roomDirectory.countByStatus(status);
     }
 
     /**
-     * 获取可加入的房间列表（等待中且未满）
+     * 获取房间目录版本号（任一房间的列表视图变化时递增）
      *
-     * @return 可加入的房间列表
+     * @return 目录版本号
      */
-    public List<Room> getAvailableRoomList() {
-        return roomMap.values().stream()
-                .filter(Room::canJoin)
-                .collect(Collectors.toList());
+    public long getDirectoryVersion() {
+        return roomDirectory.getVersion();
+    }
+
+    /**
+     * 分页查询房间列表（按创建时间由新到旧）
+     *
+     * @param status 状态过滤，null表示不过滤
+     * @param gameMode 游戏模式过滤，null表示不过滤
+     * @param joinableOnly 是否只返回可加入的房间（等待中且未满）
+     * @param cursor 上一页返回的游标，null表示第一页
+     * @param skip 无游标时跳过的条目数（兼容页码分页）
+     * @param limit 每页大小
+     * @return 分页结果
+     */
+    public RoomDirectory.Page queryRooms(Room.RoomStatus status, Room.GameMode gameMode, boolean joinableOnly,
+                                         Long cursor, int skip, int limit) {
+        return roomDirectory.page(status, gameMode, joinableOnly, cursor, skip, limit);
     }
 
     /**
@@ -356,12 +454,8 @@ public class RoomManager {
     public Map<String, Object> getRoomStatistics() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalRooms", roomMap.size());
-        stats.put("waitingRooms", roomMap.values().stream()
-                .filter(room -> room.getRoomStatus() == Room.RoomStatus.WAITING)
-                .count());
-        stats.put("playingRooms", roomMap.values().stream()
-                .filter(room -> room.getRoomStatus() == Room.RoomStatus.PLAYING)
-                .count());
+        stats.put("waitingRooms", roomDirectory.countByStatus(Room.RoomStatus.WAITING));
+        stats.put("playingRooms", roomDirectory.countByStatus(Room.RoomStatus.PLAYING));
         stats.put("totalPlayersInRooms", playerRoomMap.size());
         return stats;
     }
@@ -372,7 +466,26 @@ public class RoomManager {
      * 生成唯一的房间ID
      */
     private Long generateRoomId() {
-        return ++roomIdSequence;
+        return idGenerator.nextId();
+    }
+
+    /**
+     * 原子绑定玩家与房间
+     *
+     * @return 绑定成功返回true，玩家已在其他房间返回false
+     */
+    private boolean bindPlayer(Long playerId, Long roomId) {
+        return playerRoomMap.putIfAbsent(playerId.longValue(), roomId) == null;
+    }
+
+    /**
+     * 将玩家的在线连接加入房间广播组
+     */
+    private void attachToGroup(Room room, Long playerId) {
+        ConnectionContext connectionContext = connectionManager.getConnectionByUserId(playerId);
+        if (connectionContext != null) {
+            room.getBroadcastGroup().add(connectionContext);
+        }
     }
 
     /**
@@ -420,6 +533,7 @@ public class RoomManager {
         }
 
         roomMap.clear();
+        roomDirectory.clear();
         playerRoomMap.clear();
 
         log.info("RoomManager清理完成");
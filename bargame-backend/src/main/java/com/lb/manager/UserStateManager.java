@@ -1,36 +1,39 @@
 package com.lb.manager;
 
 import com.lb.entity.Player;
+import com.lb.net.ConnectionContext;
+import com.lb.net.UserSession;
 import lombok.extern.slf4j.Slf4j;
+import org.jctools.maps.NonBlockingHashMapLong;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * 用户状态管理器
  * 职责：管理玩家的状态信息，独立于连接管理
  * 玩家状态持久化，不因断开连接而丢失
+ * 每个用户对应一个UserSession（玩家状态 + 当前连接），以long型用户ID登记在无锁Map中
  *
  * @author LiarBar
- * @version 1.0
+ * @version 2.0
  */
 @Slf4j
 @Component
 public class UserStateManager {
 
-    // 核心数据结构：用户状态存储
-    private final Map<Long, Player> userStates = new ConcurrentHashMap<>(); // userId -> Player对象
+    // 核心数据结构：会话登记表 userId -> UserSession（原始long键，无装箱）
+    private final NonBlockingHashMapLong<UserSession> sessions = new NonBlockingHashMapLong<>();
 
-    // 用户ID到连接ID的映射（仅在线用户有）
-    private final Map<Long, String> userConnections = new ConcurrentHashMap<>(); // userId -> connectionId
-
-    // 连接ID到用户ID的映射（仅在线连接有）
-    private final Map<String, Long> connectionToUser = new ConcurrentHashMap<>(); // connectionId -> userId
+    // 在线会话计数，随连接绑定/解绑增减
+    private final AtomicInteger onlineCount = new AtomicInteger();
 
     // ==================== 用户状态管理方法 ====================
 
@@ -41,7 +44,15 @@ public class UserStateManager {
      * @param player Player对象
      */
     public void addOrUpdateUserState(Long userId, Player player) {
-        userStates.put(userId, player);
+        UserSession session = sessions.get(userId.longValue());
+        if (session == null) {
+            UserSession created = new UserSession(userId, player);
+            session = sessions.putIfAbsent(userId.longValue(), created);
+            if (session == null) {
+                session = created;
+            }
+        }
+        session.setPlayer(player);
         log.debug("用户状态已更新: userId={}, status={}", userId, player.getStatusDescription());
     }
 
@@ -52,7 +63,18 @@ public class UserStateManager {
      * @return Player对象，如果不存在则返回null
      */
     public Player getUserState(Long userId) {
-        return userStates.get(userId);
+        UserSession session = getSession(userId);
+        return session != null ? session.getPlayer() : null;
+    }
+
+    /**
+     * 获取用户会话
+     *
+     * @param userId 用户ID
+     * @return 会话，如果不存在则返回null
+     */
+    public UserSession getSession(Long userId) {
+        return userId != null ? sessions.get(userId.longValue()) : null;
     }
 
     /**
@@ -62,52 +84,73 @@ public class UserStateManager {
      * @return 被移除的Player对象
      */
     public Player removeUserState(Long userId) {
-        // 清理连接映射
-        userConnections.remove(userId);
+        UserSession session = sessions.remove(userId.longValue());
+        if (session == null) {
+            return null;
+        }
 
-        Player player = userStates.remove(userId);
-        if (player != null) {
-            log.info("用户状态已移除: userId={}", userId);
+        // 清理连接绑定
+        ConnectionContext connection = session.getConnection();
+        if (connection != null && session.unbind(connection)) {
+            onlineCount.decrementAndGet();
         }
 
-        return player;
+        log.info("用户状态已移除: userId={}", userId);
+        return session.getPlayer();
     }
 
     /**
-     * 用户上线
+     * 用户上线：将连接原子地绑定到会话
      *
      * @param userId 用户ID
-     * @param connectionId 连接ID
+     * @param connectionContext 连接上下文
+     * @return 被替换的旧连接，之前离线则返回null
      */
-    public void userOnline(Long userId, String connectionId) {
-        userConnections.put(userId, connectionId);
-        connectionToUser.put(connectionId, userId);
+    public ConnectionContext userOnline(Long userId, ConnectionContext connectionContext) {
+        UserSession session = getSession(userId);
+        if (session == null) {
+            log.warn("用户上线失败：会话不存在，userId={}", userId);
+            return null;
+        }
+
+        ConnectionContext previous = session.bind(connectionContext);
+        if (previous == null) {
+            onlineCount.incrementAndGet();
+        }
 
-        Player player = userStates.get(userId);
+        Player player = session.getPlayer();
         if (player != null) {
             player.setOnline();
-            log.info("用户上线: userId={}, connectionId={}", userId, connectionId);
         }
+        log.info("用户上线: userId={}, connectionId={}", userId, connectionContext.getId());
+        return previous;
     }
 
     /**
      * 用户下线（断开连接，但保留状态）
+     * 仅当该连接仍是会话的当前连接时生效，已被新连接替换的旧连接断开不影响在线状态
      *
-     * @param connectionId 连接ID
-     * @return 用户ID，如果连接不存在则返回null
+     * @param connectionContext 断开的连接
+     * @return 用户ID，如果连接未绑定到任何会话则返回null
      */
-    public Long userOffline(String connectionId) {
-        Long userId = connectionToUser.remove(connectionId);
-        if (userId != null) {
-            userConnections.remove(userId);
-
-            Player player = userStates.get(userId);
-            if (player != null) {
-                // 设置为断线状态，但不清理其他状态信息
-                player.setOffline();
-                log.info("用户下线: userId={}, connectionId={}", userId, connectionId);
-            }
+    public Long userOffline(ConnectionContext connectionContext) {
+        if (connectionContext == null || connectionContext.getUserId() == null) {
+            return null;
+        }
+
+        Long userId = connectionContext.getUserId();
+        UserSession session = sessions.get(userId.longValue());
+        if (session == null || !session.unbind(connectionContext)) {
+            return null;
+        }
+
+        onlineCount.decrementAndGet();
+        Player player = session.getPlayer();
+        if (player != null) {
+            // 设置为断线状态，但不清理其他状态信息
+            player.setOffline();
         }
+        log.info("用户下线: userId={}, connectionId={}", userId, connectionContext.getId());
         return userId;
     }
 
@@ -118,27 +161,19 @@ public class UserStateManager {
      * @return 是否在线
      */
     public boolean isUserOnline(Long userId) {
-        return userConnections.containsKey(userId);
+        UserSession session = getSession(userId);
+        return session != null && session.isOnline();
     }
 
     /**
-     * 根据连接ID获取用户ID
-     *
-     * @param connectionId 连接ID
-     * @return 用户ID，如果连接不存在则返回null
-     */
-    public Long getUserIdByConnectionId(String connectionId) {
-        return connectionToUser.get(connectionId);
-    }
-
-    /**
-     * 根据用户ID获取连接ID
+     * 根据用户ID获取当前连接
      *
      * @param userId 用户ID
-     * @return 连接ID，如果用户不在线则返回null
+     * @return 连接上下文，如果用户不在线则返回null
      */
-    public String getConnectionIdByUserId(Long userId) {
-        return userConnections.get(userId);
+    public ConnectionContext getConnection(Long userId) {
+        UserSession session = getSession(userId);
+        return session != null ? session.getConnection() : null;
     }
 
     // ==================== 统计和查询方法 ====================
@@ -149,7 +184,7 @@ public class UserStateManager {
      * @return 在线用户数量
      */
     public int getOnlineUserCount() {
-        return userConnections.size();
+        return onlineCount.get();
     }
 
     /**
@@ -158,7 +193,22 @@ public class UserStateManager {
      * @return 总用户数量
      */
     public int getTotalUserCount() {
-        return userStates.size();
+        return sessions.size();
+    }
+
+    /**
+     * 获取所有在线会话
+     *
+     * @return 在线会话列表
+     */
+    public List<UserSession> getOnlineSessions() {
+        List<UserSession> online = new ArrayList<>(onlineCount.get());
+        for (UserSession session : sessions.values()) {
+            if (session.isOnline()) {
+                online.add(session);
+            }
+        }
+        return online;
     }
 
     /**
@@ -167,10 +217,14 @@ public class UserStateManager {
      * @return 在线用户列表
      */
     public List<Player> getAllOnlineUsers() {
-        return userConnections.keySet().stream()
-                .map(userStates::get)
-                .filter(player -> player != null && player.isOnline())
-                .collect(Collectors.toList());
+        List<Player> online = new ArrayList<>(onlineCount.get());
+        for (UserSession session : sessions.values()) {
+            Player player = session.getPlayer();
+            if (session.isOnline() && player != null && player.isOnline()) {
+                online.add(player);
+            }
+        }
+        return online;
     }
 
     /**
@@ -179,8 +233,14 @@ public class UserStateManager {
      * @return 所有用户列表
      */
     public List<Player> getAllUsers() {
-        return userStates.values().stream()
-                .collect(Collectors.toList());
+        Collection<UserSession> all = sessions.values();
+        List<Player> players = new ArrayList<>(all.size());
+        for (UserSession session : all) {
+            if (session.getPlayer() != null) {
+                players.add(session.getPlayer());
+            }
+        }
+        return players;
     }
 
     /**
@@ -189,7 +249,7 @@ public class UserStateManager {
      * @return 状态统计信息
      */
     public Map<String, Long> getUserStatsByStatus() {
-        return userStates.values().stream()
+        return getAllUsers().stream()
                 .collect(Collectors.groupingBy(
                     player -> player.getStatusDescription(),
                     Collectors.counting()
@@ -220,11 +280,10 @@ public class UserStateManager {
      * 清理所有用户状态（应用关闭时调用）
      */
     public void cleanup() {
-        log.info("开始清理所有用户状态，当前用户数: {}", userStates.size());
+        log.info("开始清理所有用户状态，当前用户数: {}", sessions.size());
 
-        userStates.clear();
-        userConnections.clear();
-        connectionToUser.clear();
+        sessions.clear();
+        onlineCount.set(0);
 
         log.info("UserStateManager清理完成");
     }
@@ -240,7 +299,7 @@ public class UserStateManager {
     public Map<String, Object> getUserInfo(Long userId) {
         Map<String, Object> info = new HashMap<>();
 
-        Player player = userStates.get(userId);
+        Player player = getUserState(userId);
         if (player != null) {
             info.put("userId", player.getUserId());
             info.put("username", player.getUsername());
@@ -251,10 +310,10 @@ public class UserStateManager {
             info.put("sessionId", player.getSessionId());
         }
 
-        String connectionId = userConnections.get(userId);
-        info.put("connectionId", connectionId);
-        info.put("hasConnection", connectionId != null);
+        ConnectionContext connection = getConnection(userId);
+        info.put("connectionId", connection != null ? connection.getId() : null);
+        info.put("hasConnection", connection != null);
 
         return info;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package com.lb.manager;
+
+import com.lb.message.WebRTC.WebRTCSignalingFrame;
+import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebRTC信令转发管理器
+ * 职责：把流式解析出的信令帧转发给同房间的目标用户，SDP/ICE候选原文照抄，不做反序列化和重新序列化
+ *
+ * 同房间校验只查 玩家 -> 房间ID 索引两次，不解析Room对象；
+ * 同一对 (发送方, 接收方) 在批量窗口内到达的ICE候选合并为一个 WEBRTC_ICE_CANDIDATE_BATCH 帧，
+ * 转发offer/answer前先冲刷该方向上积压的候选，保证同一方向上的信令顺序不变
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class WebRTCRelayManager {
+
+    /**
+     * 单个方向上积压的ICE候选
+     */
+    private static final class PendingCandidates {
+        private final Long fromUserId;
+        private final Long toUserId;
+        private final List<String> payloads = new ArrayList<>();
+        private boolean scheduled;
+        // 已发出并从索引移除，之后到达的候选须放入新的批次
+        private boolean closed;
+
+        private PendingCandidates(Long fromUserId, Long toUserId) {
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+        }
+    }
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private RoomManager roomManager;
+
+    /**
+     * ICE候选合并窗口（毫秒），0表示不合并
+     */
+    @Value("${webrtc.ice-batch.window-ms:5}")
+    private long iceBatchWindowMs;
+
+    /**
+     * 单个合并帧最多包含的候选数，达到后立即发送
+     */
+    @Value("${webrtc.ice-batch.max-candidates:32}")
+    private int iceBatchMaxCandidates;
+
+    // "发送方:接收方" -> 积压的ICE候选
+    private final Map<String, PendingCandidates> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder relayed = new LongAdder();
+
+    private final LongAdder iceFrames = new LongAdder();
+
+    private ScheduledExecutorService batchExecutor;
+
+    @PostConstruct
+    public void start() {
+        batchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webrtc-ice-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 转发信令帧
+     *
+     * @param frame 流式解析出的信令帧
+     * @param fromUserId 发送方用户ID（连接身份）
+     * @return 需要回复发送方的消息（offer/answer的转发确认或错误），ICE候选转发成功时为null
+     */
+    public WebSocketMsg<?> relay(WebRTCSignalingFrame frame, Long fromUserId) {
+        CmdType cmd = frame.getCmd();
+        if (fromUserId == null) {
+            return WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, cmd, 401, "用户未认证或连接无效");
+        }
+
+        Long toUserId;
+        try {
+            toUserId = Long.parseLong(frame.getTo());
+        } catch (NumberFormatException e) {
+            return WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, cmd, 400, "用户ID格式错误");
+        }
+
+        Long fromRoomId = roomManager.getPlayerRoomId(fromUserId);
+        if (fromRoomId == null) {
+            return WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, cmd, 400, "发送方不在任何房间中");
+        }
+        if (!fromRoomId.equals(roomManager.getPlayerRoomId(toUserId))) {
+            return WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, cmd, 400, "发送方和接收方不在同一房间内");
+        }
+
+        if (cmd == CmdType.WEBRTC_ICE_CANDIDATE && iceBatchWindowMs > 0) {
+            enqueueCandidate(fromUserId, toUserId, frame.getPayload());
+            relayed.increment();
+            return null;
+        }
+
+        // offer/answer 之前积压的候选先发出，保持同一方向上的顺序
+        flush(fromUserId + ":" + toUserId);
+        if (!connectionManager.sendMessageToUser(toUserId, signalingMessage(cmd, fromUserId, toUserId, frame.getPayload()))) {
+            return WebSocketMsg.error(frame.getRequestId(), ModuleType.ROOM, cmd, 404, "接收方不在线");
+        }
+        relayed.increment();
+        log.debug("WebRTC信令已转发: cmd={}, from={}, to={}, roomId={}", cmd, fromUserId, toUserId, fromRoomId);
+
+        if (cmd == CmdType.WEBRTC_ICE_CANDIDATE) {
+            return null;
+        }
+        return WebSocketMsg.response(frame.getRequestId(), ModuleType.ROOM, cmd,
+                Map.of("status", "forwarded", "to", toUserId.toString()));
+    }
+
+    /**
+     * 获取累计转发的信令数
+     */
+    public long getRelayedCount() {
+        return relayed.sum();
+    }
+
+    /**
+     * 获取累计发出的ICE候选帧数（合并后）
+     */
+    public long getIceFrameCount() {
+        return iceFrames.sum();
+    }
+
+    // ==================== ICE候选合并 ====================
+
+    private void enqueueCandidate(Long fromUserId, Long toUserId, String payload) {
+        String key = fromUserId + ":" + toUserId;
+        while (true) {
+            PendingCandidates batch = pending.computeIfAbsent(key, k -> new PendingCandidates(fromUserId, toUserId));
+            boolean flushNow;
+            synchronized (batch) {
+                if (batch.closed) {
+                    continue;
+                }
+                batch.payloads.add(payload);
+                flushNow = batch.payloads.size() >= iceBatchMaxCandidates;
+                if (!flushNow && !batch.scheduled) {
+                    batch.scheduled = true;
+                    batchExecutor.schedule(() -> flush(key), iceBatchWindowMs, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (flushNow) {
+                flush(key);
+            }
+            return;
+        }
+    }
+
+    /**
+     * 发出某方向上积压的候选：一条时按普通ICE候选帧发送，多条时合并为一帧
+     */
+    private void flush(String key) {
+        PendingCandidates batch = pending.get(key);
+        if (batch == null) {
+            return;
+        }
+        synchronized (batch) {
+            if (batch.closed) {
+                return;
+            }
+            batch.closed = true;
+            pending.remove(key, batch);
+            if (batch.payloads.isEmpty()) {
+                return;
+            }
+            String message = batch.payloads.size() == 1
+                    ? signalingMessage(CmdType.WEBRTC_ICE_CANDIDATE, batch.fromUserId, batch.toUserId, batch.payloads.get(0))
+                    : candidateBatchMessage(batch);
+            // 在锁内发送，保证同一方向上先积压的候选先写出
+            connectionManager.sendMessageToUser(batch.toUserId, message);
+        }
+        iceFrames.increment();
+    }
+
+    // ==================== 帧拼接 ====================
+
+    private static String signalingMessage(CmdType cmd, Long fromUserId, Long toUserId, String payload) {
+        return new StringBuilder(payload.length() + 128)
+                .append("{\"module\":\"ROOM\",\"cmd\":\"").append(cmd.name())
+                .append("\",\"code\":200,\"msg\":\"success\",\"data\":{\"from\":\"").append(fromUserId)
+                .append("\",\"to\":\"").append(toUserId)
+                .append("\",\"data\":").append(payload)
+                .append("}}")
+                .toString();
+    }
+
+    private static String candidateBatchMessage(PendingCandidates batch) {
+        StringBuilder out = new StringBuilder(batch.payloads.size() * 256 + 128)
+                .append("{\"module\":\"ROOM\",\"cmd\":\"").append(CmdType.WEBRTC_ICE_CANDIDATE_BATCH.name())
+                .append("\",\"code\":200,\"msg\":\"success\",\"data\":{\"from\":\"").append(batch.fromUserId)
+                .append("\",\"to\":\"").append(batch.toUserId)
+                .append("\",\"candidates\":[");
+        for (int i = 0; i < batch.payloads.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(batch.payloads.get(i));
+        }
+        return out.append("]}}").toString();
+    }
+}
@@ -4,7 +4,12 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 import com.lb.entity.UserEntity;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
 
 @Mapper
 public interface UserMapper extends BaseMapper<UserEntity> {
@@ -16,4 +21,18 @@ public interface UserMapper extends BaseMapper<UserEntity> {
     // 自定义方法：根据用户ID查用户（虽然BaseMapper已有，这里明确声明）
     @Select("SELECT * FROM user WHERE id = #{userId}")
     UserEntity findUserById(Long userId);
+
+    // 自定义方法：按ID键集分页，只取列表展示所需的列（不含密码）
+    @Select("SELECT id, name, email, about_me FROM user WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<UserEntity> selectPageAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    // 自定义方法：按ID顺序流式读取（fetchSize=Integer.MIN_VALUE 使MySQL驱动逐行返回），须在事务内遍历
+    @Select("SELECT id, name, email, about_me FROM user WHERE id > #{afterId} ORDER BY id")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<UserEntity> streamAfter(@Param("afterId") long afterId);
+
+    // 自定义方法：流式读取全部邮箱（启动时构建注册邮箱过滤器），须在事务内遍历
+    @Select("SELECT email FROM user")
+    @Options(fetchSize = Integer.MIN_VALUE)
+    Cursor<String> streamEmails();
 }
@@ -0,0 +1,30 @@
+package com.lb.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lb.entity.UserRatingEntity;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+@Mapper
+public interface UserRatingMapper extends BaseMapper<UserRatingEntity> {
+
+    // 自定义方法：加载全部战绩并关联用户昵称（启动时重建排行榜使用）
+    @Select("SELECT r.user_id, r.win_count, r.lose_count, r.rating, r.updated_at, u.name AS nick_name " +
+            "FROM user_rating r LEFT JOIN user u ON u.id = r.user_id")
+    List<UserRatingEntity> selectAllWithNickName();
+
+    // 自定义方法：批量写入战绩，已存在则覆盖（排行榜写入线程使用）
+    @Insert("<script>" +
+            "INSERT INTO user_rating (user_id, win_count, lose_count, rating, updated_at) VALUES " +
+            "<foreach collection='list' item='r' separator=','>" +
+            "(#{r.userId}, #{r.winCount}, #{r.loseCount}, #{r.rating}, #{r.updatedAt})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE win_count = VALUES(win_count), lose_count = VALUES(lose_count), " +
+            "rating = VALUES(rating), updated_at = VALUES(updated_at)" +
+            "</script>")
+    int upsertBatch(@Param("list") List<UserRatingEntity> ratings);
+}
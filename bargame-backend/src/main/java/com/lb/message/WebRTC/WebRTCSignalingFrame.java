@@ -0,0 +1,137 @@
+package com.lb.message.WebRTC;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lb.message.enums.CmdType;
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * WebRTC信令帧的流式解析结果
+ * 职责：只从原始帧文本中取出转发所需的 requestId、cmd、data.to，以及 data.data（SDP或ICE候选）在原文中的位置，
+ * 不构建Map或DTO，转发时直接截取原文
+ *
+ * 帧格式：{"requestId":..,"module":"ROOM","cmd":"WEBRTC_OFFER","data":{"from":..,"to":..,"data":{...}}}
+ * 字段顺序不限；客户端上报的 from 不采信，转发时由服务端按连接身份填写
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Getter
+public final class WebRTCSignalingFrame {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String requestId;
+
+    private CmdType cmd;
+
+    private String to;
+
+    private final String source;
+
+    // data.data 在原文中的起止位置 [payloadStart, payloadEnd)
+    private int payloadStart = -1;
+
+    private int payloadEnd = -1;
+
+    private WebRTCSignalingFrame(String source) {
+        this.source = source;
+    }
+
+    /**
+     * 快速判断帧是否可能是WebRTC信令（只做子串查找，不解析）
+     *
+     * @param text 帧文本
+     * @return false表示一定不是信令帧
+     */
+    public static boolean mightBeSignaling(String text) {
+        return text.contains("\"WEBRTC_");
+    }
+
+    /**
+     * 流式解析信令帧
+     *
+     * @param text 帧文本
+     * @return 解析结果；不是WebRTC信令或结构不符合快速转发要求时返回null，由常规流程处理
+     */
+    public static WebRTCSignalingFrame parse(String text) {
+        WebRTCSignalingFrame frame = new WebRTCSignalingFrame(text);
+        try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "requestId" -> frame.requestId = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    case "module" -> {
+                        if (!"ROOM".equals(parser.getText())) {
+                            return null;
+                        }
+                    }
+                    case "cmd" -> frame.cmd = signalingCmd(parser.getText());
+                    case "data" -> {
+                        if (value != JsonToken.START_OBJECT || !frame.parseData(parser)) {
+                            return null;
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (frame.cmd == null || frame.to == null || frame.payloadStart < 0) {
+            return null;
+        }
+        return frame;
+    }
+
+    /**
+     * 截取原文中的 data.data 片段
+     */
+    public String getPayload() {
+        return source.substring(payloadStart, payloadEnd);
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 解析 data 对象：取 to，记录 data.data 的位置，其余字段跳过
+     */
+    private boolean parseData(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("to".equals(field)) {
+                if (value != JsonToken.VALUE_STRING && value != JsonToken.VALUE_NUMBER_INT) {
+                    return false;
+                }
+                to = parser.getText();
+            } else if ("data".equals(field)) {
+                if (value != JsonToken.START_OBJECT) {
+                    return false;
+                }
+                payloadStart = (int) parser.currentTokenLocation().getCharOffset();
+                parser.skipChildren();
+                payloadEnd = (int) parser.currentLocation().getCharOffset();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    private static CmdType signalingCmd(String cmd) {
+        return switch (cmd) {
+            case "WEBRTC_OFFER" -> CmdType.WEBRTC_OFFER;
+            case "WEBRTC_ANSWER" -> CmdType.WEBRTC_ANSWER;
+            case "WEBRTC_ICE_CANDIDATE" -> CmdType.WEBRTC_ICE_CANDIDATE;
+            default -> null;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.lb.message;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.lb.message.enums.CmdType;
 import com.lb.message.enums.ModuleType;
 import lombok.Data;
@@ -9,6 +10,7 @@ import lombok.Data;
  * 说明：
  * - 推送类消息（如人员上线）：无需 requestId
  * - 请求-响应类消息（如获取房间列表）：requestId 用于关联请求和响应
+ * - 游戏/房间事件流推送：携带 stream + seq，断线重连时客户端据此请求补发
  */
 @Data
 public class WebSocketMsg<T> {
@@ -30,6 +32,14 @@ public class WebSocketMsg<T> {
     /** 业务数据体（根据 module + cmd 动态变化，如：在线列表数据、聊天内容） */
     private T data;
 
+    /** 事件流标识（如 game:1001、room:1000），仅事件流推送携带 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String stream;
+
+    /** 事件流内单调递增的序号，仅事件流推送携带 */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
     // 快捷构造方法（推送类消息）
     public static <T> WebSocketMsg<T> push(ModuleType module, CmdType cmd, T data) {
         WebSocketMsg<T> msg = new WebSocketMsg<>();
@@ -0,0 +1,18 @@
+package com.lb.message.dto.hall;
+
+import lombok.Data;
+
+/**
+ * 排行榜请求
+ */
+@Data
+public class LeaderboardRequest {
+    /** 排行类型（WINS=胜场，RATING=积分），默认RATING */
+    private String type;
+
+    /** 起始位置（从0开始），默认0 */
+    private Integer offset;
+
+    /** 条目数量（1-100），默认20 */
+    private Integer limit;
+}
@@ -0,0 +1,18 @@
+package com.lb.message.dto.hall;
+
+import lombok.Data;
+
+/**
+ * 房间目录订阅请求
+ */
+@Data
+public class RoomDirectorySubscribeRequest {
+    /** 游戏模式过滤（CLASSIC/QUICK/CUSTOM），为空表示全部模式 */
+    private String gameMode;
+
+    /** 是否只关注可加入（等待中且有空位）的房间，默认false */
+    private Boolean hasSlots;
+
+    /** 首屏快照条目数量（1-100），默认20 */
+    private Integer limit;
+}
@@ -0,0 +1,13 @@
+package com.lb.message.dto.room;
+
+import lombok.Data;
+
+/**
+ * 房间聊天请求
+ */
+@Data
+public class RoomChatRequest {
+
+    /** 聊天内容 */
+    private String content;
+}
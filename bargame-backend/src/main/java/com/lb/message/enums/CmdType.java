@@ -10,6 +10,10 @@ public enum CmdType {
     USER_ONLINE_PUSH("用户上线推送"),
     USER_OFFLINE_PUSH("用户下线推送"),
     RECONNECT("重连信息推送"),
+    LEADERBOARD("请求排行榜"),
+    ROOM_DIRECTORY_SUBSCRIBE("订阅房间目录"),
+    ROOM_DIRECTORY_UNSUBSCRIBE("取消订阅房间目录"),
+    ROOM_DIRECTORY_PUSH("房间目录增量推送"),
 
 
     // --------------- 房间模块 ---------------
@@ -29,6 +33,7 @@ public enum CmdType {
     WEBRTC_OFFER("WebRTC连接请求"),
     WEBRTC_ANSWER("WebRTC连接响应"),
     WEBRTC_ICE_CANDIDATE("WebRTC ICE候选信息"),
+    WEBRTC_ICE_CANDIDATE_BATCH("WebRTC ICE候选信息合并推送"),
 
     // --------------- 系统模块 ---------------
     HEARTBEAT("心跳检测"),
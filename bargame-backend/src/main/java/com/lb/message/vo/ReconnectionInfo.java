@@ -7,6 +7,7 @@ import com.lb.message.vo.hall.OnlineListResponse;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class ReconnectionInfo {
@@ -65,5 +66,7 @@ public class ReconnectionInfo {
 
     private List<Long> bulletCounts;    //其他玩家子弹数量
 
+    //事件流信息
+    private Map<String, Long> streamSeqs; //快照对应的各事件流序号（流标识 -> 序号），客户端据此重置补发游标
 
 }
@@ -1,5 +1,6 @@
 package com.lb.message.vo.game;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.lb.entity.game.CardType;
 import com.lb.entity.game.GamePlayer;
 import lombok.Data;
@@ -10,7 +11,8 @@ public class StartGameVO {
 
     private Long gameId;                   // 游戏 ID
 
-    private GamePlayer gamePlayers;       //每个玩家只返回自己的对象
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private GamePlayer gamePlayers;       //每个玩家只返回自己的对象，个性化模板以其null占位切分
 
     private Long firstPlayerId;            // 第一个出牌的人，前端需要高亮
 
@@ -0,0 +1,50 @@
+package com.lb.message.vo.hall;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 排行榜响应 VO
+ */
+@Data
+public class LeaderboardResponse {
+    /** 排行类型（WINS=胜场，RATING=积分） */
+    private String type;
+
+    /** 上榜玩家总数 */
+    private Integer total;
+
+    /** 本页起始位置（从0开始） */
+    private Integer offset;
+
+    /** 本页排行条目 */
+    private List<LeaderboardEntryVO> entries;
+
+    /** 请求者自身的排行条目（未上榜则为null） */
+    private LeaderboardEntryVO self;
+
+    /**
+     * 单个排行条目 VO
+     */
+    @Data
+    public static class LeaderboardEntryVO {
+        /** 名次（从1开始，分数相同名次相同） */
+        private Integer rank;
+
+        /** 用户ID */
+        private Long userId;
+
+        /** 昵称 */
+        private String nickName;
+
+        /** 胜利次数 */
+        private Integer winCount;
+
+        /** 失败次数 */
+        private Integer loseCount;
+
+        /** Elo积分 */
+        private Integer rating;
+    }
+}
@@ -0,0 +1,29 @@
+package com.lb.message.vo.hall;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.lb.util.RawJson;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 房间目录增量推送 VO
+ * 一个推送周期内的变化合并为一条：同一房间多次变化只推送最新状态
+ */
+@Data
+public class RoomDirectoryDeltaVO {
+    /** 新进入订阅视图的房间（RoomVO的预序列化JSON） */
+    private List<RawJson> added = new ArrayList<>();
+
+    /** 视图内发生变化的房间（RoomVO的预序列化JSON） */
+    private List<RawJson> changed = new ArrayList<>();
+
+    /** 离开订阅视图的房间ID（已解散、已满或开始游戏） */
+    private List<Long> removed = new ArrayList<>();
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,31 @@
+package com.lb.message.vo.room;
+
+import lombok.Data;
+
+/**
+ * 房间聊天消息
+ */
+@Data
+public class RoomChatMessageVO {
+
+    /** 房间内单调递增的消息序号，客户端据此去重与排序 */
+    private Long messageId;
+
+    /** 房间ID */
+    private Long roomId;
+
+    /** 发送者ID */
+    private Long userId;
+
+    /** 发送者用户名 */
+    private String username;
+
+    /** 发送者昵称 */
+    private String nickName;
+
+    /** 聊天内容 */
+    private String content;
+
+    /** 发送时间（毫秒时间戳） */
+    private Long timestamp;
+}
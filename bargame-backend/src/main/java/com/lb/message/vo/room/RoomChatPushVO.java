@@ -0,0 +1,23 @@
+package com.lb.message.vo.room;
+
+import com.lb.util.RawJson;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 房间聊天推送（ROOM_CHAT_PUSH）
+ * 一帧携带一个推送周期内的多条消息；加入房间或重连时以 history=true 推送最近的历史消息
+ */
+@Data
+public class RoomChatPushVO {
+
+    /** 房间ID */
+    private Long roomId;
+
+    /** 是否为历史消息（客户端应以此替换本地聊天记录） */
+    private Boolean history;
+
+    /** 按序号升序排列的消息（预序列化的 RoomChatMessageVO） */
+    private List<RawJson> messages;
+}
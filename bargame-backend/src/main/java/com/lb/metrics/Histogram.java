@@ -0,0 +1,108 @@
+package com.lb.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶直方图
+ * 职责：以无锁方式记录数值分布（延迟、广播扇出等），导出为Prometheus histogram格式
+ *
+ * 每个桶一个LongAdder，记录时只做一次桶定位（有序上界数组上的二分查找）和两次累加，
+ * 高并发下各线程写入分散的cell，不存在锁竞争；导出时再累加为累计分布
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class Histogram {
+
+    /**
+     * 延迟分桶上界（纳秒）：50µs ~ 5s
+     */
+    public static final long[] LATENCY_BOUNDS_NANOS = {
+            50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 5_000_000_000L
+    };
+
+    /**
+     * 数量分桶上界：0 ~ 4096，按2的幂增长
+     */
+    public static final long[] SIZE_BOUNDS = {
+            0, 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 4096
+    };
+
+    private final long[] bounds;
+
+    // 最后一个为 +Inf 桶
+    private final LongAdder[] buckets;
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * @param bounds 递增的桶上界（包含）
+     */
+    public Histogram(long[] bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一个观测值
+     *
+     * @param value 观测值（单位与桶上界一致）
+     */
+    public void record(long value) {
+        buckets[bucketIndex(value)].increment();
+        sum.add(value);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * 以Prometheus文本格式写出
+     *
+     * @param out 输出
+     * @param name 指标名
+     * @param labels 额外标签（形如 module="HALL",cmd="LEADERBOARD"），无标签时为空串
+     * @param scale 导出时的单位换算系数（如纳秒转秒为1e-9）
+     */
+    public void writeTo(StringBuilder out, String name, String labels, double scale) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{").append(prefix).append("le=\"")
+                    .append(PrometheusFormat.number(bounds[i] * scale)).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[bounds.length].sum();
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(PrometheusFormat.number(sum.sum() * scale)).append('\n');
+        out.append(name).append("_count").append(suffix).append(cumulative).append('\n');
+    }
+
+    private int bucketIndex(long value) {
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (value <= bounds[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,134 @@
+package com.lb.metrics;
+
+import com.lb.dispatcher.AdmissionController;
+import com.lb.dispatcher.ModuleLanes;
+import com.lb.entity.Room;
+import com.lb.manager.EmailFilterManager;
+import com.lb.manager.GameManager;
+import com.lb.manager.HallSubscriptionManager;
+import com.lb.manager.RoomChatManager;
+import com.lb.manager.RoomManager;
+import com.lb.manager.UserStateManager;
+import com.lb.manager.WebRTCRelayManager;
+import com.lb.message.enums.ModuleType;
+import com.lb.net.netty.EventLoopGuard;
+import com.lb.net.netty.EventLoopWatchdog;
+import com.lb.net.netty.InboundRateLimiter;
+import com.lb.net.netty.auth.HandshakeAdmissionHandler;
+import com.lb.net.netty.handler.NettyWebSocketServerHandler;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 指标绑定器
+ * 职责：启动时把各管理器的瞬时状态登记为MetricsRegistry中的gauge，累计计数登记为counter
+ * 单独成类，避免管理器之间因指标登记产生依赖
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Component
+public class MetricsBinder {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private NettyWebSocketServerHandler webSocketServerHandler;
+
+    @Autowired
+    private UserStateManager userStateManager;
+
+    @Autowired
+    private RoomManager roomManager;
+
+    @Autowired
+    private GameManager gameManager;
+
+    @Autowired
+    private HallSubscriptionManager hallSubscriptionManager;
+
+    @Autowired
+    private EmailFilterManager emailFilterManager;
+
+    @Autowired
+    private EventLoopWatchdog eventLoopWatchdog;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private InboundRateLimiter inboundRateLimiter;
+
+    @Autowired
+    private HandshakeAdmissionHandler handshakeAdmissionHandler;
+
+    @Autowired
+    private ModuleLanes moduleLanes;
+
+    @Autowired
+    private WebRTCRelayManager webRTCRelayManager;
+
+    @Autowired
+    private RoomChatManager roomChatManager;
+
+    @PostConstruct
+    public void bind() {
+        metricsRegistry.registerGauge("bargame_ws_connections", "当前打开的WebSocket连接数", "",
+                webSocketServerHandler::getOpenConnections);
+        metricsRegistry.registerGauge("bargame_reconnect_pending", "等待重连的延迟断联检查数", "",
+                webSocketServerHandler::getPendingDisconnectionChecks);
+        metricsRegistry.registerGauge("bargame_users_online", "在线用户数", "",
+                userStateManager::getOnlineUserCount);
+        metricsRegistry.registerGauge("bargame_users_tracked", "内存中的用户状态数", "",
+                userStateManager::getTotalUserCount);
+        for (Room.RoomStatus status : Room.RoomStatus.values()) {
+            metricsRegistry.registerGauge("bargame_rooms", "按状态统计的房间数", "status=\"" + status + "\"",
+                    () -> roomManager.countRoomsByStatus(status));
+        }
+        metricsRegistry.registerGauge("bargame_games", "进行中的游戏数", "",
+                gameManager::getGameCount);
+        metricsRegistry.registerGauge("bargame_hall_directory_subscribers", "房间目录订阅者数", "",
+                hallSubscriptionManager::getSubscriberCount);
+        metricsRegistry.registerGauge("bargame_email_filter_expected_fpp", "注册邮箱过滤器估算误判率", "",
+                () -> (Number) emailFilterManager.getStatistics().get("expectedFpp"));
+        metricsRegistry.registerGauge("bargame_email_filter_observed_fpp", "注册邮箱过滤器实测误判率", "",
+                () -> (Number) emailFilterManager.getStatistics().get("observedFpp"));
+        metricsRegistry.registerCounter("bargame_event_loop_stalls", "EventLoop累计卡顿次数", "",
+                eventLoopWatchdog::getStallCount);
+        metricsRegistry.registerCounter("bargame_event_loop_blocking_calls", "EventLoop线程上的累计阻塞调用次数", "",
+                EventLoopGuard::getViolationCount);
+        for (AdmissionController.Priority priority : AdmissionController.Priority.values()) {
+            metricsRegistry.registerCounter("bargame_admission_shed", "过载时按优先级累计拒绝的命令数",
+                    "priority=\"" + priority + "\"", () -> admissionController.getShedCount(priority));
+        }
+        for (InboundRateLimiter.LimitClass limitClass : InboundRateLimiter.LimitClass.values()) {
+            metricsRegistry.registerCounter("bargame_rate_limited", "按类别累计超出连接限流的请求数",
+                    "class=\"" + limitClass + "\"", () -> inboundRateLimiter.getViolationCount(limitClass));
+        }
+        metricsRegistry.registerGauge("bargame_handshakes_in_flight", "进行中的WebSocket握手数", "",
+                handshakeAdmissionHandler::getInFlight);
+        for (HandshakeAdmissionHandler.RejectReason reason : HandshakeAdmissionHandler.RejectReason.values()) {
+            metricsRegistry.registerCounter("bargame_handshakes_rejected", "按原因累计拒绝的WebSocket握手数",
+                    "reason=\"" + reason + "\"", () -> handshakeAdmissionHandler.getRejectionCount(reason));
+        }
+        for (ModuleType module : ModuleType.values()) {
+            String labels = "lane=\"" + module + "\"";
+            metricsRegistry.registerGauge("bargame_lane_queued", "模块执行通道中已接纳未执行的命令数", labels,
+                    () -> moduleLanes.getQueued(module));
+            metricsRegistry.registerGauge("bargame_lane_active", "模块执行通道中正在执行的任务数", labels,
+                    () -> moduleLanes.getActive(module));
+            metricsRegistry.registerCounter("bargame_lane_rejected", "模块执行通道因队列已满累计拒绝的命令数", labels,
+                    () -> moduleLanes.getRejected(module));
+        }
+        metricsRegistry.registerCounter("bargame_webrtc_relayed", "快速转发的WebRTC信令累计数", "",
+                webRTCRelayManager::getRelayedCount);
+        metricsRegistry.registerCounter("bargame_webrtc_ice_frames", "合并后发出的ICE候选帧累计数", "",
+                webRTCRelayManager::getIceFrameCount);
+        metricsRegistry.registerCounter("bargame_room_chat_messages", "房间聊天消息累计数", "",
+                roomChatManager::getMessageCount);
+        metricsRegistry.registerCounter("bargame_room_chat_push_frames", "合并后发出的房间聊天推送帧累计数", "",
+                roomChatManager::getPushFrameCount);
+    }
+}
@@ -0,0 +1,264 @@
+package com.lb.metrics;
+
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 运行时指标注册表
+ * 职责：集中记录WebSocket命令的调用次数、错误数与延迟分布、广播扇出分布、抽样请求的分阶段耗时，
+ * 以及各管理器登记的瞬时值（连接数、在线人数、房间数等），并以Prometheus文本格式导出
+ *
+ * 命令指标按 (ModuleType, CmdType) 下标存放在定长数组中，记录路径上没有哈希查找和对象分配；
+ * 瞬时值在抓取时才读取，不占用业务线程
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class MetricsRegistry {
+
+    private static final double NANOS_TO_SECONDS = 1e-9;
+
+    /**
+     * 单个命令的指标
+     */
+    private static final class CommandMetrics {
+        private final ModuleType module;
+        private final CmdType cmd;
+        private final Histogram latency = new Histogram(Histogram.LATENCY_BOUNDS_NANOS);
+        private final LongAdder errors = new LongAdder();
+
+        private CommandMetrics(ModuleType module, CmdType cmd) {
+            this.module = module;
+            this.cmd = cmd;
+        }
+
+        private String labels() {
+            return "module=\"" + module + "\",cmd=\"" + cmd + "\"";
+        }
+    }
+
+    /**
+     * 瞬时值：同名指标可按标签登记多个样本
+     */
+    private static final class ScrapeSample {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String labels;
+        private final Supplier<? extends Number> supplier;
+
+        private ScrapeSample(String name, String help, String type, String labels, Supplier<? extends Number> supplier) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labels = labels;
+            this.supplier = supplier;
+        }
+    }
+
+    private static final int CMD_COUNT = CmdType.values().length;
+
+    // [module.ordinal() * CMD_COUNT + cmd.ordinal()] -> 命令指标，首次调用时创建
+    private final AtomicReferenceArray<CommandMetrics> commands =
+            new AtomicReferenceArray<>(ModuleType.values().length * CMD_COUNT);
+
+    // 广播组类型 -> 扇出分布
+    private final Map<String, Histogram> fanout = new ConcurrentHashMap<>();
+
+    // 请求追踪阶段 -> 耗时分布
+    private final Map<String, Histogram> stages = new ConcurrentHashMap<>();
+
+    // 模块执行通道 -> 排队等待分布
+    private final Map<String, Histogram> laneWait = new ConcurrentHashMap<>();
+
+    // EventLoop探测任务的投递到执行延迟
+    private final Histogram eventLoopLag = new Histogram(Histogram.LATENCY_BOUNDS_NANOS);
+
+    // 登记的瞬时值与累计计数（按登记顺序导出）
+    private final List<ScrapeSample> samples = new CopyOnWriteArrayList<>();
+
+    // ==================== 记录相关 ====================
+
+    /**
+     * 记录一次命令处理
+     *
+     * @param module 模块
+     * @param cmd 命令
+     * @param elapsedNanos 处理耗时（纳秒）
+     * @param error 是否失败（抛出异常或返回错误码）
+     */
+    public void recordCommand(ModuleType module, CmdType cmd, long elapsedNanos, boolean error) {
+        if (module == null || cmd == null) {
+            return;
+        }
+        int index = module.ordinal() * CMD_COUNT + cmd.ordinal();
+        CommandMetrics metrics = commands.get(index);
+        if (metrics == null) {
+            commands.compareAndSet(index, null, new CommandMetrics(module, cmd));
+            metrics = commands.get(index);
+        }
+        metrics.latency.record(elapsedNanos);
+        if (error) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * 获取某类广播组的扇出直方图（广播组创建时取得并持有，广播时直接记录）
+     *
+     * @param kind 广播组类型，如 room、game、hall-rooms
+     * @return 扇出直方图
+     */
+    public Histogram fanoutHistogram(String kind) {
+        return fanout.computeIfAbsent(kind, key -> new Histogram(Histogram.SIZE_BOUNDS));
+    }
+
+    /**
+     * 获取请求追踪某一阶段的耗时直方图（纳秒）
+     *
+     * @param stage 阶段名
+     * @return 耗时直方图
+     */
+    public Histogram stageHistogram(String stage) {
+        return stages.computeIfAbsent(stage, key -> new Histogram(Histogram.LATENCY_BOUNDS_NANOS));
+    }
+
+    /**
+     * 获取模块执行通道的排队等待直方图（纳秒）
+     *
+     * @param lane 通道名（模块名）
+     * @return 等待直方图
+     */
+    public Histogram laneWaitHistogram(String lane) {
+        return laneWait.computeIfAbsent(lane, key -> new Histogram(Histogram.LATENCY_BOUNDS_NANOS));
+    }
+
+    /**
+     * 获取EventLoop滞后直方图（纳秒）
+     *
+     * @return 滞后直方图
+     */
+    public Histogram eventLoopLagHistogram() {
+        return eventLoopLag;
+    }
+
+    /**
+     * 登记瞬时值，抓取时调用supplier读取
+     *
+     * @param name 指标名
+     * @param help 说明
+     * @param labels 标签（形如 status="WAITING"），无标签时为空串
+     * @param supplier 取值函数
+     */
+    public void registerGauge(String name, String help, String labels, Supplier<? extends Number> supplier) {
+        samples.add(new ScrapeSample(name, help, "gauge", labels, supplier));
+    }
+
+    /**
+     * 登记累计计数，抓取时调用supplier读取；导出为counter类型，指标名自动追加 _total 后缀
+     * 计数须单调不减（进程重启归零由Prometheus按计数器重置处理）
+     *
+     * @param name 指标名（不含 _total 后缀）
+     * @param help 说明
+     * @param labels 标签（形如 reason="RATE"），无标签时为空串
+     * @param supplier 取值函数
+     */
+    public void registerCounter(String name, String help, String labels, Supplier<? extends Number> supplier) {
+        samples.add(new ScrapeSample(name + "_total", help, "counter", labels, supplier));
+    }
+
+    // ==================== 导出相关 ====================
+
+    /**
+     * 以Prometheus文本格式导出全部指标
+     *
+     * @return 指标文本
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        writeCommands(out);
+        writeFanout(out);
+        writeStages(out);
+        writeLaneWait(out);
+        writeEventLoopLag(out);
+        writeSamples(out);
+        return out.toString();
+    }
+
+    private void writeCommands(StringBuilder out) {
+        PrometheusFormat.header(out, "bargame_ws_command_duration_seconds", "WebSocket命令处理耗时", "histogram");
+        for (int i = 0; i < commands.length(); i++) {
+            CommandMetrics metrics = commands.get(i);
+            if (metrics != null) {
+                metrics.latency.writeTo(out, "bargame_ws_command_duration_seconds", metrics.labels(), NANOS_TO_SECONDS);
+            }
+        }
+
+        PrometheusFormat.header(out, "bargame_ws_command_errors_total", "WebSocket命令失败次数", "counter");
+        for (int i = 0; i < commands.length(); i++) {
+            CommandMetrics metrics = commands.get(i);
+            if (metrics != null) {
+                out.append("bargame_ws_command_errors_total{").append(metrics.labels()).append("} ")
+                        .append(metrics.errors.sum()).append('\n');
+            }
+        }
+    }
+
+    private void writeFanout(StringBuilder out) {
+        PrometheusFormat.header(out, "bargame_broadcast_fanout", "单次广播写出的连接数", "histogram");
+        fanout.forEach((kind, histogram) ->
+                histogram.writeTo(out, "bargame_broadcast_fanout", "group=\"" + kind + "\"", 1));
+    }
+
+    private void writeStages(StringBuilder out) {
+        PrometheusFormat.header(out, "bargame_request_stage_duration_seconds", "抽样请求各阶段耗时", "histogram");
+        stages.forEach((stage, histogram) -> histogram.writeTo(out, "bargame_request_stage_duration_seconds",
+                "stage=\"" + stage + "\"", NANOS_TO_SECONDS));
+    }
+
+    private void writeLaneWait(StringBuilder out) {
+        PrometheusFormat.header(out, "bargame_lane_wait_seconds", "命令在模块执行通道中的排队时间", "histogram");
+        laneWait.forEach((lane, histogram) -> histogram.writeTo(out, "bargame_lane_wait_seconds",
+                "lane=\"" + lane + "\"", NANOS_TO_SECONDS));
+    }
+
+    private void writeEventLoopLag(StringBuilder out) {
+        PrometheusFormat.header(out, "bargame_event_loop_lag_seconds", "EventLoop探测任务的排队延迟", "histogram");
+        eventLoopLag.writeTo(out, "bargame_event_loop_lag_seconds", "", NANOS_TO_SECONDS);
+    }
+
+    private void writeSamples(StringBuilder out) {
+        String currentName = null;
+        for (ScrapeSample sample : samples) {
+            if (!sample.name.equals(currentName)) {
+                PrometheusFormat.header(out, sample.name, sample.help, sample.type);
+                currentName = sample.name;
+            }
+            double value;
+            try {
+                Number number = sample.supplier.get();
+                value = number != null ? number.doubleValue() : Double.NaN;
+            } catch (Exception e) {
+                log.warn("读取指标失败: name={}, error={}", sample.name, e.getMessage());
+                value = Double.NaN;
+            }
+            out.append(sample.name);
+            if (!sample.labels.isEmpty()) {
+                out.append('{').append(sample.labels).append('}');
+            }
+            out.append(' ').append(PrometheusFormat.number(value)).append('\n');
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.lb.metrics;
+
+/**
+ * Prometheus文本格式辅助方法
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+final class PrometheusFormat {
+
+    private PrometheusFormat() {
+    }
+
+    /**
+     * 格式化数值：整数不带小数部分，其余使用Java默认表示
+     */
+    static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * 写出指标头部（HELP与TYPE）
+     */
+    static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+}
@@ -0,0 +1,47 @@
+package com.lb.net;
+
+/**
+ * 广播组抽象接口
+ * 维护一组成员连接（如一个房间、一局游戏），一次写入即可发送给全部成员
+ * 与具体网络框架解耦，便于后续扩展
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public interface BroadcastGroup {
+
+    /**
+     * 加入成员连接，同一用户的旧连接会被替换
+     *
+     * @param connectionContext 连接上下文（必须已绑定用户ID）
+     */
+    void add(ConnectionContext connectionContext);
+
+    /**
+     * 移除成员
+     *
+     * @param userId 用户ID
+     */
+    void remove(Long userId);
+
+    /**
+     * 向所有在线成员广播消息
+     * 已关闭的连接会被自动移出，无需逐个检查在线状态
+     *
+     * @param message 已序列化的消息内容
+     * @return 本次实际写出的连接数量（不含已断开的连接）
+     */
+    int broadcast(String message);
+
+    /**
+     * 获取当前在线成员连接数
+     *
+     * @return 连接数量
+     */
+    int size();
+
+    /**
+     * 清空所有成员（房间解散、游戏结束时调用）
+     */
+    void clear();
+}
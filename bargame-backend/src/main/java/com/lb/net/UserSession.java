@@ -0,0 +1,76 @@
+package com.lb.net;
+
+import com.lb.entity.Player;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 用户会话
+ * 将一个用户的玩家状态与其当前连接聚合为一个对象，由UserStateManager按long型用户ID统一登记
+ * 连接的绑定与解绑通过CAS完成：旧连接的迟到断开事件不会覆盖新连接
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class UserSession {
+
+    private final long userId;
+
+    private volatile Player player;
+
+    // 当前连接，离线时为null
+    private final AtomicReference<ConnectionContext> connection = new AtomicReference<>();
+
+    public UserSession(long userId, Player player) {
+        this.userId = userId;
+        this.player = player;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Player player) {
+        this.player = player;
+    }
+
+    /**
+     * 获取当前连接
+     *
+     * @return 连接上下文，离线时返回null
+     */
+    public ConnectionContext getConnection() {
+        return connection.get();
+    }
+
+    /**
+     * 是否有绑定的连接
+     */
+    public boolean isOnline() {
+        return connection.get() != null;
+    }
+
+    /**
+     * 绑定新连接
+     *
+     * @param connectionContext 新连接
+     * @return 被替换的旧连接，之前离线则返回null
+     */
+    public ConnectionContext bind(ConnectionContext connectionContext) {
+        return connection.getAndSet(connectionContext);
+    }
+
+    /**
+     * 解绑连接，仅当当前绑定的仍是该连接时生效
+     *
+     * @param connectionContext 要解绑的连接
+     * @return 是否解绑成功；false表示该连接已被新连接替换
+     */
+    public boolean unbind(ConnectionContext connectionContext) {
+        return connection.compareAndSet(connectionContext, null);
+    }
+}
@@ -0,0 +1,137 @@
+package com.lb.net.netty;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EventLoop阻塞调用守卫
+ * 职责：登记Netty工作线程，供数据库访问等阻塞操作在执行前检查自己是否运行在EventLoop上
+ *
+ * 默认只记录违规次数并按操作限频输出带调用栈的告警；
+ * 测试模式（fail-on-blocking）下直接抛出异常并保留违规记录，使测试用例失败
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+public final class EventLoopGuard {
+
+    // 同一操作两次告警的最小间隔
+    private static final long WARN_INTERVAL_MS = 60_000L;
+
+    // 测试模式下最多保留的违规记录条数
+    private static final int MAX_RECORDED_VIOLATIONS = 100;
+
+    private static final Set<Thread> EVENT_LOOP_THREADS = ConcurrentHashMap.newKeySet();
+
+    private static final Map<String, Long> LAST_WARNED = new ConcurrentHashMap<>();
+
+    private static final List<String> VIOLATIONS = Collections.synchronizedList(new ArrayList<>());
+
+    private static final AtomicLong VIOLATION_COUNT = new AtomicLong();
+
+    private static volatile boolean failOnBlocking;
+
+    private EventLoopGuard() {
+    }
+
+    /**
+     * 登记EventLoop线程
+     *
+     * @param thread EventLoop线程
+     */
+    public static void register(Thread thread) {
+        EVENT_LOOP_THREADS.add(thread);
+    }
+
+    /**
+     * 注销EventLoop线程（EventLoopGroup关闭时调用）
+     *
+     * @param thread EventLoop线程
+     */
+    public static void unregister(Thread thread) {
+        EVENT_LOOP_THREADS.remove(thread);
+    }
+
+    /**
+     * 设置测试模式：检测到阻塞调用时抛出异常
+     */
+    public static void setFailOnBlocking(boolean enabled) {
+        failOnBlocking = enabled;
+    }
+
+    /**
+     * 是否处于测试模式
+     */
+    public static boolean isFailOnBlocking() {
+        return failOnBlocking;
+    }
+
+    /**
+     * 当前线程是否为已登记的EventLoop线程
+     */
+    public static boolean isEventLoopThread() {
+        return EVENT_LOOP_THREADS.contains(Thread.currentThread());
+    }
+
+    /**
+     * 阻塞操作执行前调用：运行在EventLoop线程上时记录违规
+     *
+     * @param operation 操作描述（如MyBatis语句ID）
+     * @throws IllegalStateException 测试模式下运行在EventLoop线程上
+     */
+    public static void checkBlocking(String operation) {
+        if (EVENT_LOOP_THREADS.isEmpty() || !isEventLoopThread()) {
+            return;
+        }
+        VIOLATION_COUNT.incrementAndGet();
+        String thread = Thread.currentThread().getName();
+
+        if (failOnBlocking) {
+            if (VIOLATIONS.size() < MAX_RECORDED_VIOLATIONS) {
+                VIOLATIONS.add(operation + " @ " + thread);
+            }
+            throw new IllegalStateException("EventLoop线程上执行了阻塞调用: operation=" + operation + ", thread=" + thread);
+        }
+
+        long now = System.currentTimeMillis();
+        Long last = LAST_WARNED.get(operation);
+        if (last == null || now - last >= WARN_INTERVAL_MS) {
+            LAST_WARNED.put(operation, now);
+            log.warn("EventLoop线程上执行了阻塞调用: operation={}, thread={}", operation, thread,
+                    new Throwable("阻塞调用栈"));
+        }
+    }
+
+    /**
+     * 获取累计违规次数
+     */
+    public static long getViolationCount() {
+        return VIOLATION_COUNT.get();
+    }
+
+    /**
+     * 获取测试模式下记录的违规（操作 @ 线程）
+     */
+    public static List<String> getViolations() {
+        synchronized (VIOLATIONS) {
+            return new ArrayList<>(VIOLATIONS);
+        }
+    }
+
+    /**
+     * 清空违规记录（测试用例之间调用）
+     */
+    public static void resetViolations() {
+        VIOLATIONS.clear();
+        VIOLATION_COUNT.set(0);
+        LAST_WARNED.clear();
+    }
+}
@@ -0,0 +1,244 @@
+package com.lb.net.netty;
+
+import com.lb.metrics.Histogram;
+import com.lb.metrics.MetricsRegistry;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EventLoop看门狗
+ * 职责：周期性地向每个EventLoop投递探测任务，以“投递到执行”的延迟度量EventLoop滞后，
+ * 滞后超过阈值时视为卡顿，输出该EventLoop线程当时的调用栈；同时把EventLoop线程登记到 {@link EventLoopGuard}
+ *
+ * 每个EventLoop同一时刻最多只有一个未执行的探测任务，卡顿期间不会堆积探测；
+ * 同一次卡顿只报告一次，恢复后记录恢复日志；
+ * EventLoop线程上的代码可通过 {@link #currentLagMillis()} / {@link #currentPendingTasks()} 读取所在EventLoop的负载
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class EventLoopWatchdog {
+
+    /**
+     * 单个EventLoop的探测状态
+     */
+    private static final class LoopState {
+        private final EventLoopGroup group;
+        private final EventExecutor executor;
+        private volatile Thread thread;
+        // 未执行探测任务的投递时间（System.nanoTime()），0表示没有未执行的探测
+        private volatile long pendingSince;
+        // 最近一次完成的探测的排队延迟（纳秒）
+        private volatile long lastLagNanos;
+        private volatile boolean stallReported;
+
+        private LoopState(EventLoopGroup group, EventExecutor executor) {
+            this.group = group;
+            this.executor = executor;
+        }
+    }
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * 探测周期（毫秒）
+     */
+    @Value("${diagnostics.event-loop.probe-interval-ms:100}")
+    private long probeIntervalMs;
+
+    /**
+     * 卡顿阈值（毫秒）
+     */
+    @Value("${diagnostics.event-loop.stall-threshold-ms:200}")
+    private long stallThresholdMs;
+
+    /**
+     * 测试模式：EventLoop线程上出现阻塞调用时直接抛出异常
+     */
+    @Value("${diagnostics.event-loop.fail-on-blocking:false}")
+    private boolean failOnBlocking;
+
+    private final List<LoopState> loops = new CopyOnWriteArrayList<>();
+
+    // EventLoop线程 -> 探测状态（登记任务执行后写入）
+    private final Map<Thread, LoopState> loopsByThread = new ConcurrentHashMap<>();
+
+    private final AtomicLong stallCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    private Histogram lagHistogram;
+
+    @PostConstruct
+    public void init() {
+        EventLoopGuard.setFailOnBlocking(failOnBlocking);
+        lagHistogram = metricsRegistry.eventLoopLagHistogram();
+    }
+
+    /**
+     * 开始监控EventLoopGroup
+     *
+     * @param group EventLoopGroup
+     */
+    public synchronized void watch(EventLoopGroup group) {
+        for (EventExecutor executor : group) {
+            LoopState state = new LoopState(group, executor);
+            loops.add(state);
+            executor.execute(() -> {
+                state.thread = Thread.currentThread();
+                loopsByThread.put(state.thread, state);
+                EventLoopGuard.register(state.thread);
+            });
+        }
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-loop-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::probe, probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("EventLoop看门狗已启动: loops={}, probeInterval={}ms, stallThreshold={}ms, failOnBlocking={}",
+                loops.size(), probeIntervalMs, stallThresholdMs, failOnBlocking);
+    }
+
+    /**
+     * 停止监控EventLoopGroup（关闭前调用）
+     *
+     * @param group EventLoopGroup
+     */
+    public synchronized void unwatch(EventLoopGroup group) {
+        for (LoopState state : loops) {
+            if (state.group == group) {
+                loops.remove(state);
+                if (state.thread != null) {
+                    loopsByThread.remove(state.thread);
+                    EventLoopGuard.unregister(state.thread);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 获取累计卡顿次数
+     */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /**
+     * 当前线程所在EventLoop的滞后：最近一次探测的排队延迟，
+     * 若有未执行的探测且已等待更久，则取其等待时长
+     *
+     * @return 滞后毫秒数，非EventLoop线程返回0
+     */
+    public long currentLagMillis() {
+        LoopState state = loopsByThread.get(Thread.currentThread());
+        if (state == null) {
+            return 0;
+        }
+        long lag = state.lastLagNanos;
+        long pendingSince = state.pendingSince;
+        if (pendingSince != 0) {
+            lag = Math.max(lag, System.nanoTime() - pendingSince);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(lag);
+    }
+
+    /**
+     * 当前线程所在EventLoop的任务队列长度
+     *
+     * @return 排队任务数，非EventLoop线程返回0
+     */
+    public int currentPendingTasks() {
+        LoopState state = loopsByThread.get(Thread.currentThread());
+        if (state != null && state.executor instanceof SingleThreadEventExecutor executor) {
+            return executor.pendingTasks();
+        }
+        return 0;
+    }
+
+    // ==================== 探测相关 ====================
+
+    /**
+     * 检查各EventLoop上未执行的探测，并为空闲的EventLoop投递新探测
+     */
+    void probe() {
+        long now = System.nanoTime();
+        for (LoopState state : loops) {
+            if (state.executor.isShuttingDown()) {
+                continue;
+            }
+
+            long pendingSince = state.pendingSince;
+            if (pendingSince != 0) {
+                long lagMs = TimeUnit.NANOSECONDS.toMillis(now - pendingSince);
+                if (lagMs >= stallThresholdMs && !state.stallReported) {
+                    state.stallReported = true;
+                    stallCount.incrementAndGet();
+                    reportStall(state, lagMs);
+                }
+                continue;
+            }
+
+            state.pendingSince = now;
+            try {
+                state.executor.execute(() -> {
+                    long lag = System.nanoTime() - now;
+                    lagHistogram.record(lag);
+                    state.lastLagNanos = lag;
+                    if (state.stallReported) {
+                        state.stallReported = false;
+                        log.info("EventLoop已恢复: thread={}, lag={}ms",
+                                Thread.currentThread().getName(), TimeUnit.NANOSECONDS.toMillis(lag));
+                    }
+                    state.pendingSince = 0;
+                });
+            } catch (Exception e) {
+                // EventLoop正在关闭
+                state.pendingSince = 0;
+            }
+        }
+    }
+
+    private void reportStall(LoopState state, long lagMs) {
+        Thread thread = state.thread;
+        if (thread == null) {
+            log.warn("EventLoop卡顿: thread=unknown, lag={}ms", lagMs);
+            return;
+        }
+        StringBuilder stack = new StringBuilder();
+        for (StackTraceElement element : thread.getStackTrace()) {
+            stack.append("\n\tat ").append(element);
+        }
+        log.warn("EventLoop卡顿: thread={}, state={}, lag={}ms{}", thread.getName(), thread.getState(), lagMs, stack);
+    }
+}
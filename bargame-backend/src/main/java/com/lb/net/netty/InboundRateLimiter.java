@@ -0,0 +1,273 @@
+package com.lb.net.netty;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lb.message.WebSocketMsg;
+import com.lb.message.enums.CmdType;
+import com.lb.message.enums.ModuleType;
+import com.lb.util.TokenBucket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接入站限流器
+ * 职责：为每个WebSocket连接维护令牌桶，限制单个客户端的帧速率以及高放大命令的调用频率
+ *
+ * 两级限流：
+ * 1. 帧级：在解码文本、解析JSON之前判断；超限帧不做完整解析，只流式读出 requestId/module/cmd 用于回复429，
+ *    连续超限帧数达到上限时由调用方关闭连接
+ * 2. 命令类级：解析后按命令类判断（如准备/取消准备会触发整房间广播、在线列表会构建全量列表），
+ *    超限时返回429并携带 retryAfterMs
+ *
+ * 令牌桶与连续超限计数存放在Channel属性中，只在连接所在的EventLoop上访问，无需同步
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class InboundRateLimiter {
+
+    /**
+     * 限流类别
+     */
+    public enum LimitClass {
+        // 全部入站文本帧
+        FRAME,
+        // 准备/取消准备：每次触发整房间广播
+        PREPARE_TOGGLE,
+        // 大厅列表查询/订阅：每次构建全量列表
+        LIST_QUERY,
+        // 房间聊天：每条消息进入房间历史并广播给全部成员
+        CHAT
+    }
+
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * 单个连接的限流状态
+     */
+    private static final class ConnectionLimits {
+        private final TokenBucket[] buckets = new TokenBucket[CLASSES.length];
+        // 连续被拒绝的帧数，放行一帧即清零
+        private int consecutiveFrameViolations;
+    }
+
+    private static final AttributeKey<ConnectionLimits> LIMITS_ATTR = AttributeKey.valueOf("rateLimits");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final LimitClass[] CLASSES = LimitClass.values();
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.frame.rate-per-second:30}")
+    private double frameRate;
+
+    @Value("${rate-limit.frame.burst:60}")
+    private int frameBurst;
+
+    /**
+     * 连续超限帧数达到该值时关闭连接
+     */
+    @Value("${rate-limit.frame.max-consecutive-violations:50}")
+    private int maxConsecutiveFrameViolations;
+
+    @Value("${rate-limit.prepare-toggle.rate-per-second:2}")
+    private double prepareToggleRate;
+
+    @Value("${rate-limit.prepare-toggle.burst:5}")
+    private int prepareToggleBurst;
+
+    @Value("${rate-limit.list-query.rate-per-second:1}")
+    private double listQueryRate;
+
+    @Value("${rate-limit.list-query.burst:5}")
+    private int listQueryBurst;
+
+    @Value("${rate-limit.chat.rate-per-second:2}")
+    private double chatRate;
+
+    @Value("${rate-limit.chat.burst:5}")
+    private int chatBurst;
+
+    // 限流类别 -> 累计超限次数
+    private final Map<LimitClass, LongAdder> violations = new EnumMap<>(LimitClass.class);
+
+    public InboundRateLimiter() {
+        for (LimitClass limitClass : CLASSES) {
+            violations.put(limitClass, new LongAdder());
+        }
+    }
+
+    /**
+     * 帧级限流，在解码帧内容之前调用
+     *
+     * @param channel 连接
+     * @param content 帧内容（UTF-8 JSON），仅在超限时流式读取请求头字段
+     * @return null表示放行；否则为应直接返回给客户端的429响应
+     */
+    public WebSocketMsg<?> checkFrame(Channel channel, ByteBuf content) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.nanoTime();
+        ConnectionLimits limits = limits(channel);
+        TokenBucket bucket = limits.buckets[LimitClass.FRAME.ordinal()];
+        if (bucket.tryAcquire(now)) {
+            limits.consecutiveFrameViolations = 0;
+            return null;
+        }
+        limits.consecutiveFrameViolations++;
+        recordViolation(LimitClass.FRAME, channel);
+
+        WebSocketMsg<Map<String, Object>> response = readHeader(content);
+        response.setCode(TOO_MANY_REQUESTS);
+        response.setMsg("消息发送过于频繁，请稍后重试");
+        Map<String, Object> data = new HashMap<>();
+        data.put("retryAfterMs", bucket.millisUntilAvailable(now));
+        response.setData(data);
+        return response;
+    }
+
+    /**
+     * 连续超限帧数是否已达上限（达到时调用方应关闭连接）
+     *
+     * @param channel 连接
+     * @return 是否应关闭连接
+     */
+    public boolean exceedsFrameViolationLimit(Channel channel) {
+        return enabled && limits(channel).consecutiveFrameViolations >= maxConsecutiveFrameViolations;
+    }
+
+    /**
+     * 命令类级限流，在消息解析后、分发前调用
+     *
+     * @param channel 连接
+     * @param msg 请求消息
+     * @return null表示放行；否则为应直接返回给客户端的429响应
+     */
+    public WebSocketMsg<?> checkCommand(Channel channel, WebSocketMsg<?> msg) {
+        if (!enabled) {
+            return null;
+        }
+        LimitClass limitClass = classify(msg.getCmd());
+        if (limitClass == null) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket bucket = limits(channel).buckets[limitClass.ordinal()];
+        if (bucket.tryAcquire(now)) {
+            return null;
+        }
+        recordViolation(limitClass, channel);
+
+        WebSocketMsg<Map<String, Object>> response = WebSocketMsg.error(
+                msg.getRequestId(), msg.getModule(), msg.getCmd(), TOO_MANY_REQUESTS, "操作过于频繁，请稍后重试");
+        Map<String, Object> data = new HashMap<>();
+        data.put("retryAfterMs", bucket.millisUntilAvailable(now));
+        response.setData(data);
+        return response;
+    }
+
+    /**
+     * 获取某类别累计超限次数
+     */
+    public long getViolationCount(LimitClass limitClass) {
+        return violations.get(limitClass).sum();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static LimitClass classify(CmdType cmd) {
+        if (cmd == null) {
+            return null;
+        }
+        return switch (cmd) {
+            case PLAYER_PREPARE, PLAYER_CANCEL_PREPARE -> LimitClass.PREPARE_TOGGLE;
+            case ONLINE_LIST, LEADERBOARD, ROOM_DIRECTORY_SUBSCRIBE -> LimitClass.LIST_QUERY;
+            case ROOM_CHAT -> LimitClass.CHAT;
+            default -> null;
+        };
+    }
+
+    /**
+     * 获取连接的限流状态，首次访问时创建（只在连接所在EventLoop上调用）
+     */
+    private ConnectionLimits limits(Channel channel) {
+        ConnectionLimits limits = channel.attr(LIMITS_ATTR).get();
+        if (limits == null) {
+            limits = new ConnectionLimits();
+            limits.buckets[LimitClass.FRAME.ordinal()] = new TokenBucket(frameRate, frameBurst);
+            limits.buckets[LimitClass.PREPARE_TOGGLE.ordinal()] = new TokenBucket(prepareToggleRate, prepareToggleBurst);
+            limits.buckets[LimitClass.LIST_QUERY.ordinal()] = new TokenBucket(listQueryRate, listQueryBurst);
+            limits.buckets[LimitClass.CHAT.ordinal()] = new TokenBucket(chatRate, chatBurst);
+            channel.attr(LIMITS_ATTR).set(limits);
+        }
+        return limits;
+    }
+
+    /**
+     * 流式读取帧顶层的 requestId/module/cmd，读齐即停止，其余字段只跳过不解析
+     * 内容不是合法JSON时返回不带请求信息的响应
+     */
+    private static WebSocketMsg<Map<String, Object>> readHeader(ByteBuf content) {
+        WebSocketMsg<Map<String, Object>> header = new WebSocketMsg<>();
+        try (JsonParser parser = JSON_FACTORY.createParser((InputStream) new ByteBufInputStream(content.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return header;
+            }
+            int found = 0;
+            while (found < 3 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "requestId" -> {
+                        header.setRequestId(value == JsonToken.VALUE_NULL ? null : parser.getText());
+                        found++;
+                    }
+                    case "module" -> {
+                        header.setModule(enumOrNull(ModuleType.class, parser.getText()));
+                        found++;
+                    }
+                    case "cmd" -> {
+                        header.setCmd(enumOrNull(CmdType.class, parser.getText()));
+                        found++;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // 非法内容：按已读到的字段回复
+        }
+        return header;
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> type, String name) {
+        try {
+            return name != null ? Enum.valueOf(type, name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void recordViolation(LimitClass limitClass, Channel channel) {
+        violations.get(limitClass).increment();
+        log.debug("连接入站超限: class={}, channelId={}", limitClass, channel.id().asShortText());
+    }
+}
@@ -0,0 +1,186 @@
+package com.lb.net.netty;
+
+import com.lb.diagnostics.BroadcastEvent;
+import com.lb.diagnostics.RequestTrace;
+import com.lb.metrics.Histogram;
+import com.lb.net.BroadcastGroup;
+import com.lb.net.ConnectionContext;
+import com.lb.net.netty.context.NettyConnectionContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 广播组的Netty实现：按用户ID维护成员连接，不依赖ChannelGroup
+ * 消息只编码一次，每个Channel写出同一缓冲区的引用副本；写成功后计入对应连接的发送计数
+ *
+ * 每个Channel只注册一个关闭监听器，Channel属性中记录它所在的广播组，关闭时逐组移出；
+ * 成员被移除或广播组清空时同步从该集合中删除，已解散的房间、游戏不会被长连接持有
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+public class NettyBroadcastGroup implements BroadcastGroup {
+
+    // Channel属性键：该Channel当前所在的广播组
+    private static final AttributeKey<Set<NettyBroadcastGroup>> GROUPS_ATTR = AttributeKey.valueOf("broadcastGroups");
+
+    private final String name;
+
+    // 扇出分布，为null时不记录
+    private final Histogram fanout;
+
+    // 用户ID -> 当前连接，重连时替换旧连接
+    private final Map<Long, NettyConnectionContext> members = new ConcurrentHashMap<>();
+
+    public NettyBroadcastGroup(String name) {
+        this(name, null);
+    }
+
+    public NettyBroadcastGroup(String name, Histogram fanout) {
+        this.name = name;
+        this.fanout = fanout;
+    }
+
+    @Override
+    public void add(ConnectionContext connectionContext) {
+        if (!(connectionContext instanceof NettyConnectionContext nettyContext) || connectionContext.getUserId() == null) {
+            return;
+        }
+
+        NettyConnectionContext previous = members.put(nettyContext.getUserId(), nettyContext);
+        if (previous == nettyContext) {
+            return;
+        }
+        if (previous != null) {
+            leave(previous);
+        }
+        groupsOf(nettyContext).add(this);
+        // 加入前Channel已关闭时关闭监听器可能已经执行过，直接移出
+        if (!nettyContext.getChannel().isOpen()) {
+            detach(nettyContext);
+        }
+    }
+
+    @Override
+    public void remove(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        NettyConnectionContext removed = members.remove(userId);
+        if (removed != null) {
+            leave(removed);
+        }
+    }
+
+    @Override
+    public int broadcast(String message) {
+        int size = members.size();
+        if (fanout != null) {
+            fanout.record(size);
+        }
+        if (size == 0) {
+            return 0;
+        }
+
+        RequestTrace.mark(RequestTrace.Stage.BROADCAST_SERIALIZED);
+        BroadcastEvent event = new BroadcastEvent();
+        event.begin();
+        ByteBuf content = Unpooled.copiedBuffer(message, StandardCharsets.UTF_8);
+        int bytes = content.readableBytes();
+        int written = 0;
+        try {
+            for (NettyConnectionContext member : members.values()) {
+                Channel channel = member.getChannel();
+                if (!channel.isActive()) {
+                    continue;
+                }
+                channel.writeAndFlush(new TextWebSocketFrame(content.retainedDuplicate()))
+                        .addListener((ChannelFutureListener) future -> {
+                            if (future.isSuccess()) {
+                                member.incrementSentMessageCount();
+                            }
+                        });
+                written++;
+            }
+        } finally {
+            content.release();
+        }
+        RequestTrace.mark(RequestTrace.Stage.BROADCAST_WRITTEN);
+        if (event.shouldCommit()) {
+            event.group = name;
+            event.fanout = written;
+            event.bytes = bytes;
+            event.commit();
+        }
+        log.debug("广播组写出完成: group={}, members={}, written={}", name, size, written);
+        return written;
+    }
+
+    @Override
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public void clear() {
+        for (NettyConnectionContext member : members.values()) {
+            leave(member);
+        }
+        members.clear();
+    }
+
+    // ==================== 关闭监听 ====================
+
+    /**
+     * 获取Channel所在广播组的集合，首次获取时注册该Channel唯一的关闭监听器
+     */
+    private static Set<NettyBroadcastGroup> groupsOf(NettyConnectionContext member) {
+        Channel channel = member.getChannel();
+        Attribute<Set<NettyBroadcastGroup>> attr = channel.attr(GROUPS_ATTR);
+        Set<NettyBroadcastGroup> groups = attr.get();
+        if (groups != null) {
+            return groups;
+        }
+        Set<NettyBroadcastGroup> created = ConcurrentHashMap.newKeySet();
+        groups = attr.setIfAbsent(created);
+        if (groups != null) {
+            return groups;
+        }
+        channel.closeFuture().addListener(future -> {
+            for (NettyBroadcastGroup group : created) {
+                group.detach(member);
+            }
+            created.clear();
+        });
+        return created;
+    }
+
+    /**
+     * 成员离开本组：从其Channel的广播组集合中删除本组
+     */
+    private void leave(NettyConnectionContext member) {
+        Set<NettyBroadcastGroup> groups = member.getChannel().attr(GROUPS_ATTR).get();
+        if (groups != null) {
+            groups.remove(this);
+        }
+    }
+
+    /**
+     * Channel关闭时移出成员；只移除仍指向这条连接的条目，避免旧连接关闭时把重连后的新连接移出
+     */
+    private void detach(NettyConnectionContext member) {
+        members.computeIfPresent(member.getUserId(), (id, current) -> current == member ? null : current);
+    }
+}
@@ -2,6 +2,7 @@ package com.lb.net.netty;
 
 import com.lb.Auth.JwtHelper;
 import com.lb.net.netty.handler.NettyWebSocketServerHandler;
+import com.lb.net.netty.auth.HandshakeAdmissionHandler;
 import com.lb.net.netty.auth.HandshakeAuthHandler;
 import com.lb.mapper.UserMapper;
 import io.netty.bootstrap.ServerBootstrap;
@@ -59,6 +60,8 @@ public class NettyWebSocketServer {
     @Autowired private JwtHelper jwtHelper;
     @Autowired private UserMapper userMapper;
     @Autowired private NettyWebSocketServerHandler webSocketServerHandler;
+    @Autowired private EventLoopWatchdog eventLoopWatchdog;
+    @Autowired private HandshakeAdmissionHandler handshakeAdmissionHandler;
 
     @PostConstruct
     public void start() {
@@ -67,6 +70,7 @@ public class NettyWebSocketServer {
 
         bossGroup = new NioEventLoopGroup(1);
         workerGroup = new NioEventLoopGroup();
+        eventLoopWatchdog.watch(workerGroup);
 
         try {
             // ------------------ ① 启用 SSL 让 8090 可使用 wss:// ------------------
@@ -102,6 +106,8 @@ public class NettyWebSocketServer {
                             }
 
                             pipeline.addLast(new HttpServerCodec());
+                            // 握手准入在聚合请求体、JWT校验与数据库查询之前执行
+                            pipeline.addLast(handshakeAdmissionHandler);
                             pipeline.addLast(new HttpObjectAggregator(65536));
 
                             pipeline.addLast(new HandshakeAuthHandler(jwtHelper, userMapper));
@@ -130,6 +136,7 @@ public class NettyWebSocketServer {
     public void stop() {
         log.info("正在关闭 Netty WebSocketServer ...");
         if (serverChannel != null) serverChannel.close();
+        if (workerGroup != null) eventLoopWatchdog.unwatch(workerGroup);
         if (workerGroup != null) workerGroup.shutdownGracefully();
         if (bossGroup != null) bossGroup.shutdownGracefully();
         log.info("Netty WebSocketServer 已关闭");
@@ -0,0 +1,270 @@
+package com.lb.net.netty.auth;
+
+import com.lb.util.TokenBucket;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket握手准入处理器
+ * 职责：位于HTTP解码器之后、请求体聚合与握手认证之前，在做任何JWT校验和数据库查询之前决定是否接纳握手：
+ * 1. 全局握手速率（令牌桶）
+ * 2. 同时进行中的握手数
+ * 3. 单个客户端IP的连接数
+ *
+ * 超限时直接返回带 Retry-After 的503并关闭连接，重连风暴或恶意突发时节点按容量降级而不是被压垮；
+ * 握手槽位在握手完成或连接关闭时释放，IP连接数在连接关闭时释放
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@Sharable
+public class HandshakeAdmissionHandler extends ChannelInboundHandlerAdapter {
+
+    /**
+     * 拒绝原因
+     */
+    public enum RejectReason {
+        RATE,
+        CONCURRENCY,
+        PER_IP
+    }
+
+    private static final AttributeKey<String> CLIENT_IP_ATTR = AttributeKey.valueOf("admissionClientIp");
+    private static final AttributeKey<Boolean> HANDSHAKE_SLOT_ATTR = AttributeKey.valueOf("admissionHandshakeSlot");
+    private static final AttributeKey<Boolean> REJECTED_ATTR = AttributeKey.valueOf("admissionRejected");
+
+    private static final byte[] REJECT_BODY =
+            "{\"code\":503,\"message\":\"服务器繁忙，请稍后重连\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${netty.websocket.handshake.enabled:true}")
+    private boolean enabled;
+
+    @Value("${netty.websocket.handshake.rate-per-second:200}")
+    private double ratePerSecond;
+
+    @Value("${netty.websocket.handshake.burst:400}")
+    private int burst;
+
+    @Value("${netty.websocket.handshake.max-concurrent:256}")
+    private int maxConcurrent;
+
+    @Value("${netty.websocket.handshake.max-connections-per-ip:20}")
+    private int maxConnectionsPerIp;
+
+    @Value("${netty.websocket.handshake.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    /**
+     * 是否信任反向代理写入的客户端IP（部署在反向代理之后时开启）
+     * 优先取代理以 $remote_addr 写入的 X-Real-IP；没有时取 X-Forwarded-For 最右侧（由代理追加）的地址，
+     * 左侧各项由客户端自行填写，不可信
+     */
+    @Value("${netty.websocket.handshake.trust-proxy-headers:false}")
+    private boolean trustProxyHeaders;
+
+    // 全局握手速率，跨EventLoop访问，加锁使用
+    private TokenBucket handshakeRate;
+
+    // 进行中的握手数
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // 客户端IP -> 连接数
+    private final Map<String, AtomicInteger> connectionsPerIp = new ConcurrentHashMap<>();
+
+    // 拒绝原因 -> 累计拒绝次数
+    private final Map<RejectReason, LongAdder> rejections = new EnumMap<>(RejectReason.class);
+
+    // 上次输出拒绝日志的时间（限频）
+    private final AtomicLong lastRejectLog = new AtomicLong();
+
+    public HandshakeAdmissionHandler() {
+        for (RejectReason reason : RejectReason.values()) {
+            rejections.put(reason, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        handshakeRate = new TokenBucket(ratePerSecond, burst);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        Channel channel = ctx.channel();
+        if (channel.attr(REJECTED_ATTR).get() != null) {
+            // 已拒绝的连接：丢弃剩余的请求体
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        if (enabled && msg instanceof HttpRequest request && channel.attr(CLIENT_IP_ATTR).get() == null) {
+            RejectReason reason = admit(channel, request);
+            if (reason != null) {
+                ReferenceCountUtil.release(msg);
+                reject(ctx, reason);
+                return;
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        release(ctx.channel());
+        String ip = ctx.channel().attr(CLIENT_IP_ATTR).getAndSet(null);
+        if (ip != null) {
+            releaseIp(ip);
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 释放连接占用的握手槽位（握手完成时调用，重复调用无影响）
+     *
+     * @param channel 连接
+     */
+    public void release(Channel channel) {
+        Boolean held = channel.attr(HANDSHAKE_SLOT_ATTR).getAndSet(null);
+        if (held != null) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 获取进行中的握手数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 获取某原因累计拒绝次数
+     */
+    public long getRejectionCount(RejectReason reason) {
+        return rejections.get(reason).sum();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    /**
+     * 判断是否接纳握手，接纳时占用握手槽位与IP连接数
+     *
+     * @return null表示接纳，否则为拒绝原因
+     */
+    private RejectReason admit(Channel channel, HttpRequest request) {
+        // 最便宜的检查放在最前：检查与占用IP连接数在同一次compute中完成，并发握手不会越过上限
+        String ip = clientIp(channel, request);
+        if (!reserveIp(ip)) {
+            return RejectReason.PER_IP;
+        }
+
+        RejectReason reason = null;
+        synchronized (handshakeRate) {
+            if (!handshakeRate.tryAcquire(System.nanoTime())) {
+                reason = RejectReason.RATE;
+            }
+        }
+        if (reason == null && inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            reason = RejectReason.CONCURRENCY;
+        }
+        if (reason != null) {
+            releaseIp(ip);
+            return reason;
+        }
+
+        channel.attr(HANDSHAKE_SLOT_ATTR).set(Boolean.TRUE);
+        channel.attr(CLIENT_IP_ATTR).set(ip);
+        return null;
+    }
+
+    /**
+     * 占用一个IP连接数，已达上限时不占用
+     *
+     * @return 是否占用成功
+     */
+    private boolean reserveIp(String ip) {
+        boolean[] reserved = new boolean[1];
+        connectionsPerIp.compute(ip, (key, count) -> {
+            AtomicInteger current = count != null ? count : new AtomicInteger();
+            if (current.get() < maxConnectionsPerIp) {
+                current.incrementAndGet();
+                reserved[0] = true;
+            }
+            return current.get() > 0 ? current : null;
+        });
+        return reserved[0];
+    }
+
+    private void releaseIp(String ip) {
+        connectionsPerIp.computeIfPresent(ip, (key, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    private void reject(ChannelHandlerContext ctx, RejectReason reason) {
+        rejections.get(reason).increment();
+        ctx.channel().attr(REJECTED_ATTR).set(Boolean.TRUE);
+
+        long now = System.currentTimeMillis();
+        long last = lastRejectLog.get();
+        if (now - last >= 1000 && lastRejectLog.compareAndSet(last, now)) {
+            log.warn("拒绝WebSocket握手: reason={}, remoteAddress={}, inFlight={}",
+                    reason, ctx.channel().remoteAddress(), inFlight.get());
+        }
+
+        // 随机抖动避免被拒绝的客户端同时重连
+        int retryAfter = retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                HttpResponseStatus.SERVICE_UNAVAILABLE, Unpooled.wrappedBuffer(REJECT_BODY));
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, REJECT_BODY.length);
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, retryAfter);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    private String clientIp(Channel channel, HttpRequest request) {
+        if (trustProxyHeaders) {
+            String realIp = request.headers().get("X-Real-IP");
+            if (realIp != null && !realIp.isBlank()) {
+                return realIp.trim();
+            }
+            String forwarded = request.headers().get("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            }
+        }
+        if (channel.remoteAddress() instanceof InetSocketAddress address) {
+            return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+        }
+        return String.valueOf(channel.remoteAddress());
+    }
+}
@@ -1,6 +1,7 @@
 package com.lb.net.netty.auth;
 
 import com.lb.Auth.JwtHelper;
+import com.lb.diagnostics.HandshakeAuthEvent;
 import com.lb.entity.UserEntity;
 import com.lb.mapper.UserMapper;
 import io.netty.channel.ChannelHandlerContext;
@@ -14,8 +15,11 @@ import io.netty.handler.codec.http.HttpVersion;
 import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * WebSocket握手认证处理器
@@ -33,6 +37,8 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
     // Channel属性键
     public static final AttributeKey<Long> USER_ID_ATTR = AttributeKey.valueOf("userId");
     public static final AttributeKey<String> USERNAME_ATTR = AttributeKey.valueOf("username");
+    // 客户端上报的事件流补发游标（流标识 -> 最后收到的序号）
+    public static final AttributeKey<Map<String, Long>> RESUME_ATTR = AttributeKey.valueOf("resume");
 
 
     public HandshakeAuthHandler(JwtHelper jwtHelper, UserMapper userMapper) {
@@ -42,16 +48,23 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        log.info("HandshakeAuthHandler接收到消息: {}, Channel: {}",
+        log.debug("HandshakeAuthHandler接收到消息: {}, Channel: {}",
                 msg.getClass().getSimpleName(), ctx.channel().id().asShortText());
 
         if (msg instanceof FullHttpRequest) {
             FullHttpRequest request = (FullHttpRequest) msg;
-            log.info("处理HTTP请求: URI={}, Method={}, RemoteAddress={}",
+            log.debug("处理HTTP请求: URI={}, Method={}, RemoteAddress={}",
                     request.uri(), request.method().name(), ctx.channel().remoteAddress());
 
             // 执行认证
+            HandshakeAuthEvent authEvent = new HandshakeAuthEvent();
+            authEvent.begin();
             AuthResult authResult = authenticateUser(request);
+            if (authEvent.shouldCommit()) {
+                authEvent.success = authResult != null;
+                authEvent.userId = authResult != null ? authResult.getUserId() : 0L;
+                authEvent.commit();
+            }
             if (authResult == null) {
                 log.warn("WebSocket握手认证失败: {}", ctx.channel().remoteAddress());
                 sendAuthErrorResponse(ctx, request);
@@ -61,6 +74,7 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
             // 存储用户信息到Channel属性中
             ctx.channel().attr(USER_ID_ATTR).set(authResult.getUserId());
             ctx.channel().attr(USERNAME_ATTR).set(authResult.getUsername());
+            ctx.channel().attr(RESUME_ATTR).set(parseResumeCursors(request.uri()));
 
             log.info("WebSocket握手认证成功: userId={}, username={}, channel={}",
                     authResult.getUserId(), authResult.getUsername(), ctx.channel().id().asShortText());
@@ -71,7 +85,7 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
             if (queryIndex != -1) {
                 String cleanUri = originalUri.substring(0, queryIndex);
                 request.setUri(cleanUri);
-                log.info("修改URI从 {} 到 {}", originalUri, cleanUri);
+                log.debug("修改URI从 {} 到 {}", originalUri, cleanUri);
             }
 
         }
@@ -108,7 +122,7 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
         try {
             // 1. 从请求URI中获取query参数
             String uri = request.uri();
-            log.info("uri={}", uri);
+            log.debug("uri={}", uri);
             String query = null;
 
             // 查找问号分隔符，提取query部分
@@ -191,7 +205,38 @@ public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-  
+    /**
+     * 解析resume查询参数
+     * 格式：resume=game:1001:57,room:1000:12（流标识:最后收到的序号，逗号分隔）
+     */
+    private static Map<String, Long> parseResumeCursors(String uri) {
+        Map<String, Long> cursors = new HashMap<>();
+        int queryIndex = uri.indexOf('?');
+        if (queryIndex == -1) {
+            return cursors;
+        }
+
+        for (String param : uri.substring(queryIndex + 1).split("&")) {
+            String[] keyValue = param.split("=");
+            if (keyValue.length != 2 || !"resume".equals(keyValue[0])) {
+                continue;
+            }
+            String value = URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
+            for (String cursor : value.split(",")) {
+                int sep = cursor.lastIndexOf(':');
+                if (sep <= 0) {
+                    continue;
+                }
+                try {
+                    cursors.put(cursor.substring(0, sep), Long.parseLong(cursor.substring(sep + 1)));
+                } catch (NumberFormatException e) {
+                    log.debug("忽略无效的补发游标: {}", cursor);
+                }
+            }
+        }
+        return cursors;
+    }
+
     /**
      * 发送认证失败响应
      */
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lb.net.ConnectionContext;
 import io.netty.channel.Channel;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
@@ -21,6 +22,9 @@ import java.util.concurrent.atomic.AtomicLong;
 @Slf4j
 public class NettyConnectionContext implements ConnectionContext {
 
+    // Channel属性键：连接上下文随Channel保存，消息热路径无需查表
+    public static final AttributeKey<NettyConnectionContext> CONTEXT_ATTR = AttributeKey.valueOf("connectionContext");
+
     private final String connectionId;
     private final Channel channel;
     private final long connectTime;
@@ -1,6 +1,8 @@
 package com.lb.net.netty.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.diagnostics.MessageDecodeEvent;
+import com.lb.diagnostics.RequestTrace;
 import com.lb.dispatcher.Dispatcher;
 import com.lb.entity.UserEntity;
 import com.lb.entity.Player;
@@ -8,12 +10,18 @@ import com.lb.entity.Room;
 import com.lb.entity.game.Game;
 import com.lb.entity.game.GamePlayer;
 import com.lb.manager.ConnectionManager;
+import com.lb.manager.EventStreamManager;
 import com.lb.manager.GameManager;
+import com.lb.manager.HallSubscriptionManager;
+import com.lb.manager.RoomChatManager;
 import com.lb.manager.RoomManager;
 import com.lb.mapper.UserMapper;
+import com.lb.net.netty.InboundRateLimiter;
 import com.lb.net.netty.context.NettyConnectionContext;
+import com.lb.net.netty.auth.HandshakeAdmissionHandler;
 import com.lb.net.netty.auth.HandshakeAuthHandler;
 import com.lb.net.ConnectionContext;
+import com.lb.message.WebRTC.WebRTCSignalingFrame;
 import com.lb.message.WebSocketMsg;
 import com.lb.message.dto.game.LeaveGameRequest;
 import com.lb.message.enums.CmdType;
@@ -24,6 +32,7 @@ import com.lb.message.vo.room.RoomVO;
 import com.lb.service.imp.GameService;
 import com.lb.service.imp.HallService;
 import com.lb.service.imp.RoomService;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.ChannelHandler.Sharable;
@@ -43,6 +52,7 @@ import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Netty WebSocket服务器处理器
@@ -64,11 +74,22 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
     private  GameManager gameManager;
     private  RoomManager roomManager;
     private  Dispatcher dispatcher;
+    private  EventStreamManager eventStreamManager;
+    private  HallSubscriptionManager hallSubscriptionManager;
+    private  InboundRateLimiter inboundRateLimiter;
+    private  HandshakeAdmissionHandler handshakeAdmissionHandler;
+    private  RoomChatManager roomChatManager;
     private  final ObjectMapper objectMapper = new ObjectMapper();
 
     // 延迟任务执行器
     private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
 
+    // 当前打开的连接数
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    // 尚未执行的延迟断联检查数（等待重连中的用户）
+    private final AtomicInteger pendingDisconnectionChecks = new AtomicInteger();
+
 
     @Autowired
     public void setUserMapper(UserMapper userMapper) {
@@ -105,23 +126,66 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
         this.dispatcher = dispatcher;
     }
 
+    @Autowired
+    public void setHallSubscriptionManager(HallSubscriptionManager hallSubscriptionManager) {
+        this.hallSubscriptionManager = hallSubscriptionManager;
+    }
+
+    @Autowired
+    public void setInboundRateLimiter(InboundRateLimiter inboundRateLimiter) {
+        this.inboundRateLimiter = inboundRateLimiter;
+    }
+
+    @Autowired
+    public void setHandshakeAdmissionHandler(HandshakeAdmissionHandler handshakeAdmissionHandler) {
+        this.handshakeAdmissionHandler = handshakeAdmissionHandler;
+    }
+
+    @Autowired
+    public void setRoomChatManager(RoomChatManager roomChatManager) {
+        this.roomChatManager = roomChatManager;
+    }
+
+    @Autowired
+    public void setEventStreamManager(EventStreamManager eventStreamManager) {
+        this.eventStreamManager = eventStreamManager;
+    }
+
+
+    /**
+     * 通道激活时调用 - 连接建立
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        openConnections.incrementAndGet();
+        super.channelActive(ctx);
+    }
 
     /**
      * 通道非激活时调用 - 连接关闭
      */
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        openConnections.decrementAndGet();
         String channelId = ctx.channel().id().asShortText();
         Long userId = ctx.channel().attr(HandshakeAuthHandler.USER_ID_ATTR).get();
-        ConnectionContext connectionContext = connectionManager.getConnection(ctx.channel().id().asShortText());
+        ConnectionContext connectionContext = ctx.channel().attr(NettyConnectionContext.CONTEXT_ATTR).get();
 
         log.info("WebSocket连接关闭: channelId={}, userId={}", channelId, userId);
 
-        // 执行初步断联逻辑
-        handleTemporaryDisconnection(channelId, userId);
+        Runnable cleanup = () -> {
+            // 执行初步断联逻辑
+            handleTemporaryDisconnection(connectionContext, channelId, userId);
 
-        // 安排延迟任务，30秒后检查用户状态
-        scheduleDelayedDisconnectionCheck(channelId, userId, connectionContext);
+            // 安排延迟任务，30秒后检查用户状态
+            scheduleDelayedDisconnectionCheck(channelId, userId, connectionContext);
+        };
+        if (connectionContext != null) {
+            // 等该连接已提交到执行通道的命令执行完再清理，避免排队中的加入房间等命令在清理之后生效
+            dispatcher.closeConnection(connectionContext, cleanup);
+        } else {
+            cleanup.run();
+        }
 
         super.channelInactive(ctx);
     }
@@ -131,12 +195,25 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
      */
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
+        long frameReadNanos = System.nanoTime();
         String channelId = ctx.channel().id().asShortText();
         Long userId = ctx.channel().attr(HandshakeAuthHandler.USER_ID_ATTR).get();
 
         // 处理不同类型的WebSocket帧
         if (frame instanceof TextWebSocketFrame) {
-            handleTextMessage(ctx, (TextWebSocketFrame) frame, userId);
+            // 帧级限流在解码文本之前判断，超限帧回复429，持续超限时关闭连接
+            WebSocketMsg<?> limited = inboundRateLimiter.checkFrame(ctx.channel(), frame.content());
+            if (limited != null) {
+                if (inboundRateLimiter.exceedsFrameViolationLimit(ctx.channel())) {
+                    log.warn("连接持续超出帧速率限制，关闭连接: channelId={}, userId={}", channelId, userId);
+                    ctx.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.POLICY_VIOLATION))
+                            .addListener(ChannelFutureListener.CLOSE);
+                } else {
+                    sendWebSocketMessage(ctx, limited);
+                }
+                return;
+            }
+            handleTextMessage(ctx, (TextWebSocketFrame) frame, userId, frameReadNanos);
         } else if (frame instanceof PongWebSocketFrame) {
             handlePongFrame(ctx, (PongWebSocketFrame) frame);
         } else if (frame instanceof CloseWebSocketFrame) {
@@ -159,14 +236,7 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
         log.error("WebSocket连接发生异常: channelId={}, userId={}, error={}",
                  channelId, userId, cause.getMessage(), cause);
 
-        try {
-            // 清理连接资源
-            connectionManager.removeConnection(channelId);
-            connectionManager.broadcastAllOnlineUsers();
-        } catch (Exception e) {
-            log.error("清理异常连接时发生异常: channelId={}, error={}", channelId, e.getMessage(), e);
-        }
-
+        // 连接资源在channelInactive中按命令顺序清理
         ctx.close();
     }
 
@@ -176,8 +246,12 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof HandshakeComplete) {
-            // WebSocket握手完成，执行用户连接逻辑
-            handleHandshakeComplete(ctx);
+            // WebSocket握手完成，执行用户连接逻辑，结束后释放握手槽位
+            try {
+                handleHandshakeComplete(ctx);
+            } finally {
+                handshakeAdmissionHandler.release(ctx.channel());
+            }
         } else if (evt instanceof IdleStateEvent event) {
             String channelId = ctx.channel().id().asShortText();
             Long userId = ctx.channel().attr(HandshakeAuthHandler.USER_ID_ATTR).get();
@@ -185,16 +259,7 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
             if (event.state() == IdleState.READER_IDLE) {
                 log.info("客户端读空闲超时，主动断开连接: channelId={}, userId={}", channelId, userId);
 
-                // 获取ConnectionContext
-                ConnectionContext connectionContext = connectionManager.getConnection(channelId);
-
-                // 执行初步断联逻辑
-                handleTemporaryDisconnection(channelId, userId);
-
-                // 安排延迟任务，30秒后检查用户状态
-                scheduleDelayedDisconnectionCheck(channelId, userId, connectionContext);
-
-                // 关闭连接
+                // 关闭连接，断联逻辑在channelInactive中执行
                 ctx.close();
             }
         } else {
@@ -243,13 +308,19 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
 
 
         // 创建ConnectionContext并管理连接
-        ConnectionContext connectionContext = new NettyConnectionContext(ctx.channel());
+        NettyConnectionContext connectionContext = new NettyConnectionContext(ctx.channel());
         connectionContext.setUserId(userId);
-        connectionManager.addConnection(channelId, connectionContext, player);
+        ctx.channel().attr(NettyConnectionContext.CONTEXT_ATTR).set(connectionContext);
+        connectionManager.addConnection(connectionContext, player);
 
 
         if(isReconnect) {
-            handleReconnection(userId, connectionContext);
+            // 新连接替换房间、游戏广播组中的旧连接
+            roomManager.attachConnection(userId, connectionContext);
+            gameManager.attachConnection(userId, connectionContext);
+            handleReconnection(userId, connectionContext, ctx.channel().attr(HandshakeAuthHandler.RESUME_ATTR).get());
+            // 聊天不进入事件流，重连后推送所在房间的最近聊天记录
+            sendChatHistory(connectionContext);
             return;
         }
 
@@ -266,15 +337,18 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
      * 处理初步断联逻辑
      * 职责：断开连接状态，但保留用户的游戏和房间状态
      *
+     * @param connectionContext 连接上下文，握手未完成时为null
      * @param channelId 连接ID
      * @param userId 用户ID
      */
-    private void handleTemporaryDisconnection(String channelId, Long userId) {
+    private void handleTemporaryDisconnection(ConnectionContext connectionContext, String channelId, Long userId) {
         try {
-            // 移除连接状态
-            Long disconnectedUserId = connectionManager.removeConnection(channelId);
+            // 移除连接状态（已被新连接替换的旧连接不会影响在线状态）
+            Long disconnectedUserId = connectionContext != null ? connectionManager.removeConnection(connectionContext) : null;
 
             if (disconnectedUserId != null) {
+                // 断线即取消房间目录订阅，重连后由客户端重新订阅
+                hallSubscriptionManager.unsubscribe(disconnectedUserId);
                 log.info("初步断联完成: userId={}, channelId={}, 状态保留", disconnectedUserId, channelId);
             }
 
@@ -354,16 +428,38 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
     /**
      * 处理文本消息
      */
-    private void handleTextMessage(ChannelHandlerContext ctx, TextWebSocketFrame frame, Long userId) {
+    private void handleTextMessage(ChannelHandlerContext ctx, TextWebSocketFrame frame, Long userId, long frameReadNanos) {
         String channelId = ctx.channel().id().asShortText();
         String messageContent = frame.text();
         log.debug("收到WebSocket消息: userId={}, channelId={}, message={}", userId, channelId, messageContent);
 
+        // 抽样追踪本次请求的分阶段耗时，未命中时为null
+        RequestTrace trace = RequestTrace.start(frameReadNanos);
+        boolean handedOff = false;
         try {
+            // WebRTC信令快速转发：流式取出目标用户后原文转发，不走完整解析
+            if (WebRTCSignalingFrame.mightBeSignaling(messageContent) && relaySignaling(ctx, messageContent, trace)) {
+                handedOff = true;
+                return;
+            }
+
             // 解析消息
             WebSocketMsg<?> msg;
+            MessageDecodeEvent decodeEvent = new MessageDecodeEvent();
+            decodeEvent.begin();
             try {
                 msg = objectMapper.readValue(messageContent, WebSocketMsg.class);
+                if (decodeEvent.shouldCommit()) {
+                    decodeEvent.userId = userId != null ? userId : 0L;
+                    decodeEvent.module = String.valueOf(msg.getModule());
+                    decodeEvent.cmd = String.valueOf(msg.getCmd());
+                    decodeEvent.bytes = frame.content().readableBytes();
+                    decodeEvent.commit();
+                }
+                if (trace != null) {
+                    trace.markStage(RequestTrace.Stage.PARSED);
+                    trace.describe(msg.getRequestId(), msg.getModule() + "/" + msg.getCmd());
+                }
             } catch (Exception parseException) {
                 log.warn("收到无法解析的消息，可能是未实现的功能: userId={}, channelId={}, message={}",
                         userId, channelId, messageContent);
@@ -371,27 +467,81 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
             }
 
             // 获取ConnectionContext
-            ConnectionContext connectionContext = connectionManager.getConnection(ctx.channel().id().asShortText());
+            ConnectionContext connectionContext = ctx.channel().attr(NettyConnectionContext.CONTEXT_ATTR).get();
             if (connectionContext == null) {
                 log.warn("无法找到ConnectionContext，可能连接已断开: channelId={}", channelId);
                 sendErrorResponse(ctx, "连接状态异常，请重新连接");
                 return;
             }
 
-            // 通过Dispatcher处理消息
-            WebSocketMsg<?> response = dispatcher.dispatch(msg, connectionContext);
-            if (response != null) {
-                sendWebSocketMessage(ctx, response);
+            // 命令类级限流，超限时直接返回429
+            WebSocketMsg<?> limited = inboundRateLimiter.checkCommand(ctx.channel(), msg);
+            if (limited != null) {
+                sendWebSocketMessage(ctx, limited);
+                return;
             }
 
+            // 提交到模块执行通道处理，响应在通道线程上写出，追踪由响应回调结束
+            dispatcher.submit(msg, connectionContext, response -> {
+                if (trace != null) {
+                    trace.markStage(RequestTrace.Stage.HANDLED);
+                }
+                if (response != null) {
+                    sendWebSocketMessage(ctx, response);
+                    // 加入房间成功后，在响应之后推送房间最近的聊天记录
+                    if (response.getCmd() == CmdType.ROOM_JOIN && Integer.valueOf(200).equals(response.getCode())) {
+                        sendChatHistory(connectionContext);
+                    }
+                } else if (trace != null) {
+                    trace.finish();
+                }
+            });
+            handedOff = true;
+
         } catch (Exception e) {
             log.error("处理WebSocket消息时发生异常: userId={}, channelId={}, error={}",
                      userId, channelId, e.getMessage(), e);
             sendErrorResponse(ctx, "消息处理异常: " + e.getMessage());
+        } finally {
+            if (trace != null) {
+                // 已提交到执行通道时由响应回调结束；有响应时在写出完成回调中结束，否则在此结束（finish只生效一次）
+                RequestTrace.attach(null);
+                if (!handedOff && !trace.isMarked(RequestTrace.Stage.RESPONSE_SERIALIZED)) {
+                    trace.finish();
+                }
+            }
         }
     }
 
 
+    /**
+     * 快速转发WebRTC信令：跳过完整解析，提交到ROOM执行通道，排在该连接之前的加入房间等命令之后
+     *
+     * @return 是否已提交；帧结构不符合快速转发要求或连接上下文缺失时返回false，由常规流程处理
+     */
+    private boolean relaySignaling(ChannelHandlerContext ctx, String messageContent, RequestTrace trace) {
+        WebRTCSignalingFrame signaling = WebRTCSignalingFrame.parse(messageContent);
+        ConnectionContext connectionContext = ctx.channel().attr(NettyConnectionContext.CONTEXT_ATTR).get();
+        if (signaling == null || connectionContext == null) {
+            return false;
+        }
+        if (trace != null) {
+            trace.markStage(RequestTrace.Stage.PARSED);
+            trace.describe(signaling.getRequestId(), ModuleType.ROOM + "/" + signaling.getCmd());
+        }
+        dispatcher.submitSignaling(signaling, connectionContext, response -> {
+            if (trace != null) {
+                trace.markStage(RequestTrace.Stage.HANDLED);
+            }
+            if (response != null) {
+                sendWebSocketMessage(ctx, response);
+            } else if (trace != null) {
+                trace.finish();
+            }
+        });
+        return true;
+    }
+
     /**
      * 处理Pong帧
      */
@@ -482,13 +632,32 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
     }
 
 
+    /**
+     * 推送用户所在房间的最近聊天记录（加入房间成功、断线重连时）
+     */
+    private void sendChatHistory(ConnectionContext connectionContext) {
+        Long roomId = roomManager.getPlayerRoomId(connectionContext.getUserId());
+        if (roomId != null) {
+            roomChatManager.sendHistory(roomId, connectionContext);
+        }
+    }
+
     /**
      * 发送WebSocket消息
      */
     private void sendWebSocketMessage(ChannelHandlerContext ctx, Object message) {
         try {
             String messageJson = objectMapper.writeValueAsString(message);
-            ctx.writeAndFlush(new TextWebSocketFrame(messageJson));
+            RequestTrace trace = RequestTrace.current();
+            if (trace == null) {
+                ctx.writeAndFlush(new TextWebSocketFrame(messageJson));
+                return;
+            }
+            trace.markStage(RequestTrace.Stage.RESPONSE_SERIALIZED);
+            ctx.writeAndFlush(new TextWebSocketFrame(messageJson)).addListener(future -> {
+                trace.markStage(RequestTrace.Stage.WRITTEN);
+                trace.finish();
+            });
         } catch (IOException e) {
             log.error("发送WebSocket消息失败: {}", e.getMessage(), e);
         }
@@ -527,7 +696,9 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
             return;
         }
 
+        pendingDisconnectionChecks.incrementAndGet();
         scheduler.schedule(() -> {
+            pendingDisconnectionChecks.decrementAndGet();
             try {
                 // 检查UserStateManager中的userStates是否还存储该用户的Player对象且用户状态为在线
                 Player player = connectionManager.getPlayerByUserId(userId);
@@ -545,16 +716,58 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
         }, 30, TimeUnit.SECONDS);
     }
 
+    /**
+     * 获取当前打开的连接数
+     *
+     * @return 连接数
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * 获取尚未执行的延迟断联检查数
+     *
+     * @return 待执行的检查数
+     */
+    public int getPendingDisconnectionChecks() {
+        return pendingDisconnectionChecks.get();
+    }
+
     /**
      * 处理重连逻辑
+     * 优先按客户端上报的事件流游标补发缺失事件；任一事件流无法补发时回退为全量快照
      * @param userId 用户ID
      * @param connectionContext 连接上下文
+     * @param resumeCursors 客户端上报的补发游标（流标识 -> 最后收到的序号），可能为null
      */
-    private void handleReconnection(Long userId, ConnectionContext connectionContext) {
+    private void handleReconnection(Long userId, ConnectionContext connectionContext, Map<String, Long> resumeCursors) {
         try {
+            // 0. 确定玩家当前所属的事件流
+            java.util.List<String> streamKeys = new java.util.ArrayList<>(2);
+            Long currentRoomId = roomManager.getPlayerRoomId(userId);
+            if (currentRoomId != null) {
+                streamKeys.add(EventStreamManager.roomStream(currentRoomId));
+            }
+            Game currentGame = gameManager.getGameByPlayer(userId);
+            if (currentGame != null) {
+                streamKeys.add(EventStreamManager.gameStream(currentGame.getGameId()));
+            }
+
+            if (replayMissedEvents(userId, connectionContext, streamKeys, resumeCursors)) {
+                return;
+            }
+
             // 创建重连信息对象
             ReconnectionInfo reconnectionInfo = new ReconnectionInfo();
 
+            // 先记录快照对应的事件流序号，之后的事件会通过新连接实时推送
+            Map<String, Long> streamSeqs = new HashMap<>();
+            for (String streamKey : streamKeys) {
+                streamSeqs.put(streamKey, eventStreamManager.getLastSeq(streamKey));
+            }
+            reconnectionInfo.setStreamSeqs(streamSeqs);
+
             // 1. 填充大厅信息 - 所有重连用户都需要
             java.util.List<Player> onlinePlayers = connectionManager.getAllOnlinePlayers();
             OnlineListResponse onlineListResponse = new OnlineListResponse();
@@ -642,4 +855,41 @@ public class NettyWebSocketServerHandler extends SimpleChannelInboundHandler<Web
             log.error("处理重连逻辑时发生异常: userId={}, error={}", userId, e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 按事件流游标补发重连期间错过的事件
+     * @param userId 用户ID
+     * @param connectionContext 连接上下文
+     * @param streamKeys 玩家当前所属的事件流
+     * @param resumeCursors 客户端上报的补发游标
+     * @return true 表示已完成补发，false 表示需要回退为全量快照
+     */
+    private boolean replayMissedEvents(Long userId, ConnectionContext connectionContext,
+                                       java.util.List<String> streamKeys, Map<String, Long> resumeCursors) {
+        if (streamKeys.isEmpty() || resumeCursors == null || resumeCursors.isEmpty()) {
+            return false;
+        }
+
+        // 所有事件流都能补发时才走增量路径，避免房间与游戏状态不一致
+        java.util.List<String> missedEvents = new java.util.ArrayList<>();
+        for (String streamKey : streamKeys) {
+            Long afterSeq = resumeCursors.get(streamKey);
+            java.util.List<String> missed = afterSeq != null
+                ? eventStreamManager.replaySince(streamKey, afterSeq, userId)
+                : null;
+            if (missed == null) {
+                log.info("事件流缺口无法补发，回退为全量快照: userId={}, stream={}, afterSeq={}",
+                    userId, streamKey, afterSeq);
+                return false;
+            }
+            missedEvents.addAll(missed);
+        }
+
+        for (String event : missedEvents) {
+            connectionContext.sendMessage(event);
+        }
+
+        log.info("重连补发完成: userId={}, streams={}, 补发事件数={}", userId, streamKeys, missedEvents.size());
+        return true;
+    }
+}
@@ -1,13 +1,18 @@
 package com.lb.service;
 
 import com.lb.dto.req.UserRequestDto;
+import com.lb.dto.resp.UserPageResponse;
 import com.lb.dto.resp.UserResponseDto;
+import com.lb.util.VersionedResponseCache;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface UserService extends UserDetailsService {
-    List<UserResponseDto> getAllUser();
+    UserPageResponse getUserPage(Long afterId, int limit);
+    VersionedResponseCache.Entry getUserPageCached(Long afterId, int limit);
+    void streamUsers(Long afterId, OutputStream out) throws IOException;
     public UserResponseDto createUser(UserRequestDto userRequestDto);
 
 }
@@ -6,7 +6,9 @@ import com.lb.entity.Room;
 import com.lb.entity.game.*;
 import com.lb.exp.CardException;
 import com.lb.manager.ConnectionManager;
+import com.lb.manager.EventStreamManager;
 import com.lb.manager.GameManager;
+import com.lb.manager.LeaderboardManager;
 import com.lb.manager.RoomManager;
 import com.lb.manager.UserStateManager;
 import com.lb.message.WebSocketMsg;
@@ -26,7 +28,9 @@ import com.lb.net.ConnectionContext;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import static com.lb.entity.Room.RoomStatus.PLAYING;
 
 @Component
@@ -48,6 +52,12 @@ public class GameService {
     @Resource
     private UserStateManager userStateManager;
 
+    @Resource
+    private LeaderboardManager leaderboardManager;
+
+    @Resource
+    private EventStreamManager eventStreamManager;
+
     /**
      * 向游戏内所有玩家广播消息
      * @param gameId 游戏ID
@@ -63,38 +73,67 @@ public class GameService {
                 return 0;
             }
 
-            // 获取游戏中所有玩家ID
-            List<Long> playerIds = gameManager.getGamePlayers(gameId);
-            if (playerIds.isEmpty()) {
-                log.warn("游戏中没有玩家，无法广播消息：gameId={}", gameId);
-                return 0;
+            // 分配事件流序号并序列化为JSON字符串（同时写入补发缓冲，离线玩家重连后补发）
+            String jsonMessage = eventStreamManager.publish(EventStreamManager.gameStream(gameId), message);
+
+            // 通过游戏广播组一次写出给所有在线玩家
+            int successCount = game.getBroadcastGroup().broadcast(jsonMessage);
+
+            log.info("向游戏广播消息完成：gameId={}, 成功发送数={}", gameId, successCount);
+
+            return successCount;
+
+        } catch (Exception e) {
+            log.error("向游戏广播消息失败：gameId={}, error={}", gameId, e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 向游戏内所有玩家推送本轮开始数据（游戏开始或新一轮）
+     * 轮次、目标牌、首个出牌玩家对所有人相同，只序列化一次；每个玩家只拼入自己的GamePlayer
+     * @param game 游戏实例
+     * @param cmd 推送指令（GAME_STARTED 或 NEW_ROUND）
+     * @return 成功发送的消息数量
+     */
+    private int broadcastRoundStart(Game game, CmdType cmd) {
+        Long gameId = game.getGameId();
+        List<GamePlayer> gamePlayers = game.getPlayers();
+        try {
+            StartGameVO sharedVO = new StartGameVO();
+            sharedVO.setGameId(gameId);
+            sharedVO.setFirstPlayerId(game.getCurrentRound().getCurrentPlayer().getPlayerId());
+            sharedVO.setTargetCardType(game.getCurrentRound().getTargetCardType());
+            sharedVO.setRoundNumber(game.getCurrentRound().getRoundNumber());
+
+            Map<Long, GamePlayer> fragments = new LinkedHashMap<>(gamePlayers.size() * 2);
+            for (GamePlayer gamePlayer : gamePlayers) {
+                fragments.put(gamePlayer.getPlayerId(), gamePlayer);
             }
 
-            // 将消息序列化为JSON字符串
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            int successCount = 0;
+            Map<Long, String> messages = eventStreamManager.publishPersonalized(
+                    EventStreamManager.gameStream(gameId),
+                    WebSocketMsg.push(ModuleType.GAME, cmd, sharedVO),
+                    "gamePlayers",
+                    fragments
+            );
 
-            // 向游戏中每个在线玩家发送消息
-            for (Long playerId : playerIds) {
-                if (connectionManager.isUserOnline(playerId)) {
-                    boolean success = connectionManager.sendMessageToUser(playerId, jsonMessage);
-                    if (success) {
-                        successCount++;
-                    } else {
-                        log.warn("向游戏内玩家发送消息失败：gameId={}, playerId={}", gameId, playerId);
-                    }
+            int successCount = 0;
+            for (Map.Entry<Long, String> message : messages.entrySet()) {
+                if (connectionManager.sendMessageToUser(message.getKey(), message.getValue())) {
+                    successCount++;
                 } else {
-                    log.warn("玩家离线，跳过发送：gameId={}, playerId={}", gameId, playerId);
+                    log.warn("向玩家发送个性化消息失败：playerId={}, gameId={}, cmd={}",
+                            message.getKey(), gameId, cmd);
                 }
             }
 
-            log.info("向游戏广播消息完成：gameId={}, 成功发送数={}, 目标玩家数={}",
-                    gameId, successCount, playerIds.size());
-
+            log.info("个性化广播完成：gameId={}, cmd={}, roundNumber={}, 成功发送数={}, 目标玩家数={}",
+                    gameId, cmd, sharedVO.getRoundNumber(), successCount, gamePlayers.size());
             return successCount;
 
         } catch (Exception e) {
-            log.error("向游戏广播消息失败：gameId={}, error={}", gameId, e.getMessage(), e);
+            log.error("个性化广播失败：gameId={}, cmd={}, error={}", gameId, cmd, e.getMessage(), e);
             return 0;
         }
     }
@@ -205,7 +244,7 @@ public class GameService {
                 );
             }
             game.startGame();
-            currentRoom.setRoomStatus(PLAYING);
+            roomManager.updateRoomStatus(roomId, PLAYING);
 
             // 先向所有玩家广播座位信息
             PlayerSeatsVO seatsVO = new PlayerSeatsVO();
@@ -222,47 +261,8 @@ public class GameService {
 
             broadcastToGame(game.getGameId(), seatsMsg);
 
-            // 为每个玩家创建专属的StartGameVO并单独发送
-            List<GamePlayer> allGamePlayers = game.getPlayers();
-            int successCount = 0;
-
-            for (GamePlayer gamePlayer : allGamePlayers) {
-                try {
-                    // 创建只包含当前玩家信息的StartGameVO
-                    StartGameVO personalVO = new StartGameVO();
-                    personalVO.setGameId(game.getGameId());
-                    personalVO.setGamePlayers(gamePlayer); // 只设置当前玩家的信息
-                    personalVO.setFirstPlayerId(game.getCurrentRound().getCurrentPlayer().getPlayerId());
-                    personalVO.setTargetCardType(game.getCurrentRound().getTargetCardType());
-                    personalVO.setRoundNumber(game.getCurrentRound().getRoundNumber());
-
-                    // 创建给当前玩家的消息
-                    WebSocketMsg<StartGameVO> personalMsg = WebSocketMsg.push(
-                            ModuleType.GAME,
-                            CmdType.GAME_STARTED,
-                            personalVO
-                    );
-
-                    // 只向当前玩家发送消息
-                    String jsonMessage = objectMapper.writeValueAsString(personalMsg);
-                    boolean success = connectionManager.sendMessageToUser(gamePlayer.getPlayerId(), jsonMessage);
-
-                    if (success) {
-                        successCount++;
-                        log.debug("成功向玩家发送游戏开始消息：playerId={}, gameId={}",
-                                gamePlayer.getPlayerId(), game.getGameId());
-                    } else {
-                        log.warn("向玩家发送游戏开始消息失败：playerId={}, gameId={}",
-                                gamePlayer.getPlayerId(), game.getGameId());
-                    }
-                } catch (Exception e) {
-                    log.error("为玩家创建消息失败：playerId={}, error={}",
-                            gamePlayer.getPlayerId(), e.getMessage(), e);
-                }
-            }
-
-            log.info("个性化游戏开始广播完成，成功发送消息数: {}, 目标玩家数: {}",
-                    successCount, allGamePlayers.size());
+            // 向每个玩家推送只包含自己手牌的游戏开始数据
+            broadcastRoundStart(game, CmdType.GAME_STARTED);
 
             log.info("游戏开始成功，房间ID: {}, 游戏ID: {}, 玩家数: {}",
                     roomId, game.getGameId(), game.getPlayers().size());
@@ -557,51 +557,15 @@ public class GameService {
                 log.info("游戏结束，游戏ID: {}, 获胜者: {}, 总轮数: {}",
                         gameId, WinnerId, game.getRoundNumber());
 
+                // 更新排行榜
+                leaderboardManager.recordGameResult(WinnerId, game.getParticipantIds());
+
                 //清理游戏状态
-                game.endGame();
+                game.endGame(userStateManager::getUserState);
                 gameManager.cleanupGame(gameId);
             } else {
-                // 游戏继续，为下一轮创建个性化数据并分别发送给玩家
-                List<GamePlayer> currentGamePlayers = game.getPlayers();
-                int successCount = 0;
-
-                for (GamePlayer gamePlayer : currentGamePlayers) {
-                    try {
-                        // 创建只包含当前玩家信息的StartGameVO用于新一轮
-                        StartGameVO nextRoundVO = new StartGameVO();
-                        nextRoundVO.setGameId(gameId);
-                        nextRoundVO.setGamePlayers(gamePlayer); // 只设置当前玩家的信息
-                        nextRoundVO.setFirstPlayerId(game.getCurrentRound().getCurrentPlayer().getPlayerId());
-                        nextRoundVO.setTargetCardType(game.getCurrentRound().getTargetCardType());
-                        nextRoundVO.setRoundNumber(game.getCurrentRound().getRoundNumber());
-
-                        // 创建给当前玩家的消息
-                        WebSocketMsg<StartGameVO> nextRoundMsg = WebSocketMsg.push(
-                                ModuleType.GAME,
-                                CmdType.NEW_ROUND,
-                                nextRoundVO
-                        );
-
-                        // 只向当前玩家发送消息
-                        String jsonMessage = objectMapper.writeValueAsString(nextRoundMsg);
-                        boolean success = connectionManager.sendMessageToUser(gamePlayer.getPlayerId(), jsonMessage);
-
-                        if (success) {
-                            successCount++;
-                            log.debug("成功向玩家发送新一轮消息：playerId={}, gameId={}, roundNumber={}",
-                                    gamePlayer.getPlayerId(), gameId, game.getCurrentRound().getRoundNumber());
-                        } else {
-                            log.warn("向玩家发送新一轮消息失败：playerId={}, gameId={}",
-                                    gamePlayer.getPlayerId(), gameId);
-                        }
-                    } catch (Exception e) {
-                        log.error("为玩家创建新一轮消息失败：playerId={}, error={}",
-                                gamePlayer.getPlayerId(), e.getMessage(), e);
-                    }
-                }
-
-                log.info("新一轮个性化广播完成，成功发送消息数: {}, 目标玩家数: {}",
-                        successCount, currentGamePlayers.size());
+                // 游戏继续，向每个玩家推送新一轮的个性化数据
+                broadcastRoundStart(game, CmdType.NEW_ROUND);
             }
 
                         // 返回出牌成功的响应
@@ -745,51 +709,15 @@ public class GameService {
                 log.info("游戏结束，游戏ID: {}, 获胜者: {}, 总轮数: {}",
                         gameId, winnerId, game.getRoundNumber());
 
+                // 更新排行榜
+                leaderboardManager.recordGameResult(winnerId, game.getParticipantIds());
+
                 //清理游戏状态
-                game.endGame();
+                game.endGame(userStateManager::getUserState);
                 gameManager.cleanupGame(gameId);
             } else {
-                // 游戏继续，为下一轮创建个性化数据并分别发送给玩家
-                List<GamePlayer> currentGamePlayers = game.getPlayers();
-                int successCount = 0;
-
-                for (GamePlayer gamePlayer : currentGamePlayers) {
-                    try {
-                        // 创建只包含当前玩家信息的StartGameVO用于新一轮
-                        StartGameVO nextRoundVO = new StartGameVO();
-                        nextRoundVO.setGameId(gameId);
-                        nextRoundVO.setGamePlayers(gamePlayer); // 只设置当前玩家的信息
-                        nextRoundVO.setFirstPlayerId(game.getCurrentRound().getCurrentPlayer().getPlayerId());
-                        nextRoundVO.setTargetCardType(game.getCurrentRound().getTargetCardType());
-                        nextRoundVO.setRoundNumber(game.getCurrentRound().getRoundNumber());
-
-                        // 创建给当前玩家的消息
-                        WebSocketMsg<StartGameVO> nextRoundMsg = WebSocketMsg.push(
-                                ModuleType.GAME,
-                                CmdType.NEW_ROUND,
-                                nextRoundVO
-                        );
-
-                        // 只向当前玩家发送消息
-                        String jsonMessage = objectMapper.writeValueAsString(nextRoundMsg);
-                        boolean success = connectionManager.sendMessageToUser(gamePlayer.getPlayerId(), jsonMessage);
-
-                        if (success) {
-                            successCount++;
-                            log.debug("成功向玩家发送新一轮消息：playerId={}, gameId={}, roundNumber={}",
-                                    gamePlayer.getPlayerId(), gameId, game.getCurrentRound().getRoundNumber());
-                        } else {
-                            log.warn("向玩家发送新一轮消息失败：playerId={}, gameId={}",
-                                    gamePlayer.getPlayerId(), gameId);
-                        }
-                    } catch (Exception e) {
-                        log.error("为玩家创建新一轮消息失败：playerId={}, error={}",
-                                gamePlayer.getPlayerId(), e.getMessage(), e);
-                    }
-                }
-
-                log.info("新一轮个性化广播完成，成功发送消息数: {}, 目标玩家数: {}",
-                        successCount, currentGamePlayers.size());
+                // 游戏继续，向每个玩家推送新一轮的个性化数据
+                broadcastRoundStart(game, CmdType.NEW_ROUND);
             }
 
             // 返回离开游戏成功的响应
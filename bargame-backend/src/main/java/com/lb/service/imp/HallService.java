@@ -1,6 +1,14 @@
 package com.lb.service.imp;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.dto.resp.RoomResponse;
 import com.lb.entity.Player;
+import com.lb.entity.Room;
+import com.lb.manager.HallSubscriptionManager;
+import com.lb.manager.LeaderboardManager;
+import com.lb.message.dto.hall.LeaderboardRequest;
+import com.lb.message.dto.hall.RoomDirectorySubscribeRequest;
+import com.lb.message.vo.hall.LeaderboardResponse;
 import com.lb.message.vo.hall.OnlineListResponse;
 import com.lb.message.WebSocketMsg;
 import com.lb.message.enums.CmdType;
@@ -21,6 +29,18 @@ public class HallService {
     @Autowired
     private ConnectionManager connectionManager;
 
+    @Autowired
+    private LeaderboardManager leaderboardManager;
+
+    @Autowired
+    private HallSubscriptionManager hallSubscriptionManager;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 返回向用户返回当前玩家列表
      *
@@ -76,4 +96,135 @@ public class HallService {
             );
         }
     }
+
+    /**
+     * 返回排行榜分页及请求者自身名次
+     *
+     * @param msg WebSocket消息对象
+     * @param connectionContext 连接上下文，封装了WebSocket连接的所有必要信息
+     * @return WebSocketMsg<?> 响应消息
+     */
+    public WebSocketMsg<?> leaderboard(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
+        try {
+            LeaderboardRequest request = msg.getData() != null
+                ? objectMapper.convertValue(msg.getData(), LeaderboardRequest.class)
+                : new LeaderboardRequest();
+
+            LeaderboardManager.RankType type = LeaderboardManager.RankType.fromName(request.getType());
+            int offset = request.getOffset() != null ? Math.max(0, request.getOffset()) : 0;
+            int limit = request.getLimit() != null ? Math.min(100, Math.max(1, request.getLimit())) : 20;
+
+            LeaderboardResponse responseData = leaderboardManager.buildResponse(
+                type, offset, limit, connectionContext.getUserId());
+
+            log.debug("处理排行榜请求完成: type={}, offset={}, limit={}", type, offset, limit);
+            return WebSocketMsg.response(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.LEADERBOARD,
+                responseData
+            );
+
+        } catch (IllegalArgumentException e) {
+            return WebSocketMsg.error(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.LEADERBOARD,
+                400,
+                "排行榜参数错误: " + e.getMessage()
+            );
+        } catch (Exception e) {
+            log.error("处理排行榜请求时发生异常: error={}", e.getMessage(), e);
+            return WebSocketMsg.error(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.LEADERBOARD,
+                500,
+                "获取排行榜失败: " + e.getMessage()
+            );
+        }
+    }
+
+    /**
+     * 订阅房间目录：返回首屏快照，之后按周期推送合并后的增量（ROOM_DIRECTORY_PUSH）
+     * 先登记订阅再生成快照，快照与首个增量可能重叠，客户端按roomId覆盖即可
+     *
+     * @param msg WebSocket消息对象
+     * @param connectionContext 连接上下文，封装了WebSocket连接的所有必要信息
+     * @return WebSocketMsg<?> 响应消息，携带首屏房间列表
+     */
+    public WebSocketMsg<?> subscribeRoomDirectory(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
+        try {
+            Long userId = connectionContext.getUserId();
+            if (userId == null) {
+                return WebSocketMsg.error(
+                    msg.getRequestId(),
+                    ModuleType.HALL,
+                    CmdType.ROOM_DIRECTORY_SUBSCRIBE,
+                    401,
+                    "用户未认证或连接无效"
+                );
+            }
+
+            RoomDirectorySubscribeRequest request = msg.getData() != null
+                ? objectMapper.convertValue(msg.getData(), RoomDirectorySubscribeRequest.class)
+                : new RoomDirectorySubscribeRequest();
+
+            Room.GameMode gameMode = request.getGameMode() != null && !request.getGameMode().isBlank()
+                ? Room.GameMode.valueOf(request.getGameMode().trim().toUpperCase())
+                : null;
+            boolean hasSlots = Boolean.TRUE.equals(request.getHasSlots());
+            int limit = request.getLimit() != null ? Math.min(100, Math.max(1, request.getLimit())) : 20;
+
+            hallSubscriptionManager.subscribe(userId, connectionContext,
+                new HallSubscriptionManager.Filter(gameMode, hasSlots));
+
+            RoomResponse snapshot = hasSlots
+                ? roomService.getAvailableRooms(1, limit, null, gameMode)
+                : roomService.getAllRooms(1, limit, null, null, gameMode);
+
+            log.debug("订阅房间目录完成: userId={}, gameMode={}, hasSlots={}", userId, gameMode, hasSlots);
+            return WebSocketMsg.response(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.ROOM_DIRECTORY_SUBSCRIBE,
+                snapshot
+            );
+
+        } catch (IllegalArgumentException e) {
+            return WebSocketMsg.error(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.ROOM_DIRECTORY_SUBSCRIBE,
+                400,
+                "订阅参数错误: " + e.getMessage()
+            );
+        } catch (Exception e) {
+            log.error("处理房间目录订阅时发生异常: error={}", e.getMessage(), e);
+            return WebSocketMsg.error(
+                msg.getRequestId(),
+                ModuleType.HALL,
+                CmdType.ROOM_DIRECTORY_SUBSCRIBE,
+                500,
+                "订阅房间目录失败: " + e.getMessage()
+            );
+        }
+    }
+
+    /**
+     * 取消订阅房间目录
+     *
+     * @param msg WebSocket消息对象
+     * @param connectionContext 连接上下文，封装了WebSocket连接的所有必要信息
+     * @return WebSocketMsg<?> 响应消息
+     */
+    public WebSocketMsg<?> unsubscribeRoomDirectory(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
+        hallSubscriptionManager.unsubscribe(connectionContext.getUserId());
+        return WebSocketMsg.response(
+            msg.getRequestId(),
+            ModuleType.HALL,
+            CmdType.ROOM_DIRECTORY_UNSUBSCRIBE,
+            null
+        );
+    }
 }
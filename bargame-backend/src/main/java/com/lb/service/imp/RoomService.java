@@ -5,7 +5,10 @@ import com.lb.entity.Room;
 import com.lb.entity.Player;
 import com.lb.manager.RoomManager;
 import com.lb.manager.ConnectionManager;
+import com.lb.manager.EventStreamManager;
+import com.lb.manager.RoomChatManager;
 import com.lb.message.dto.room.JoinRoomRequest;
+import com.lb.message.dto.room.RoomChatRequest;
 import com.lb.message.vo.room.RoomVO;
 import com.lb.message.WebSocketMsg;
 import com.lb.message.enums.ModuleType;
@@ -14,14 +17,21 @@ import com.lb.message.WebRTC.WebRTCMsgData;
 import com.lb.message.WebRTC.WebRTCOffer;
 import com.lb.message.WebRTC.WebRTCAnswer;
 import com.lb.message.WebRTC.WebRTCIceCandidate;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
 import com.lb.net.ConnectionContext;
+import com.lb.util.RawJson;
+import com.lb.util.RoomDirectory;
+import com.lb.util.VersionedResponseCache;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -39,7 +49,30 @@ public class RoomService {
     @Autowired
     private ConnectionManager connectionManager;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private EventStreamManager eventStreamManager;
+
+    @Autowired
+    private RoomChatManager roomChatManager;
+
+    /**
+     * 单条聊天消息的最大长度
+     */
+    @Value("${room.chat.max-length:200}")
+    private int chatMaxLength;
+
+    // 与HallSubscriptionManager使用同一个Spring配置的序列化器：Room.toRoomJson 的缓存与调用方无关，
+    // 两处序列化配置不同时，缓存中的JSON形式取决于谁先渲染
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 房间列表响应缓存，按目录版本号失效
+    private VersionedResponseCache roomListCache;
+
+    @PostConstruct
+    public void init() {
+        roomListCache = new VersionedResponseCache("rooms", 1024, objectMapper);
+    }
 
     /**
      * 创建房间
@@ -87,24 +120,22 @@ public class RoomService {
 
     /**
      * 获取所有房间列表（分页）
+     * 按创建时间由新到旧排序；传入cursor时按游标取下一页，否则按页码定位
      *
-     * @param current 当前页码，从1开始
+     * @param current 当前页码，从1开始（未传cursor时生效）
      * @param size 每页大小
+     * @param cursor 上一页返回的nextCursor，可为null
+     * @param status 房间状态过滤，可为null
+     * @param gameMode 游戏模式过滤，可为null
      * @return 分页房间列表响应
      */
-    public RoomResponse getAllRooms(int current, int size) {
+    public RoomResponse getAllRooms(int current, int size, Long cursor, Room.RoomStatus status, Room.GameMode gameMode) {
         try {
-            // 参数验证
-            if (current < 1) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "页码必须大于0");
-            }
-            if (size < 1 || size > 100) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "每页大小必须在1-100之间");
-            }
+            validatePage(current, size);
 
-            // 获取所有活跃房间列表
-            List<Room> allRooms = roomManager.getActiveRoomList();
-            return paginateRooms(allRooms, current, size);
+            RoomDirectory.Page page = roomManager.queryRooms(status, gameMode, false,
+                    cursor, (current - 1) * size, size);
+            return toRoomResponse(page, current, size);
 
         } catch (ResponseStatusException e) {
             throw e;
@@ -116,24 +147,21 @@ public class RoomService {
 
     /**
      * 获取可加入的房间列表（分页）
+     * 按创建时间由新到旧排序；传入cursor时按游标取下一页，否则按页码定位
      *
-     * @param current 当前页码，从1开始
+     * @param current 当前页码，从1开始（未传cursor时生效）
      * @param size 每页大小
+     * @param cursor 上一页返回的nextCursor，可为null
+     * @param gameMode 游戏模式过滤，可为null
      * @return 分页可加入房间列表响应
      */
-    public RoomResponse getAvailableRooms(int current, int size) {
+    public RoomResponse getAvailableRooms(int current, int size, Long cursor, Room.GameMode gameMode) {
         try {
-            // 参数验证
-            if (current < 1) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "页码必须大于0");
-            }
-            if (size < 1 || size > 100) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "每页大小必须在1-100之间");
-            }
+            validatePage(current, size);
 
-            // 获取可加入的房间列表
-            List<Room> availableRooms = roomManager.getAvailableRoomList();
-            return paginateRooms(availableRooms, current, size);
+            RoomDirectory.Page page = roomManager.queryRooms(null, gameMode, true,
+                    cursor, (current - 1) * size, size);
+            return toRoomResponse(page, current, size);
 
         } catch (ResponseStatusException e) {
             throw e;
@@ -144,39 +172,66 @@ public class RoomService {
     }
 
     /**
-     * 房间列表分页处理
+     * 获取所有房间列表的缓存响应（含ETag），参数同 {@link #getAllRooms}
+     * 目录版本号未变时直接复用已序列化的响应体
      *
-     * @param rooms   房间列表
+     * @return 缓存条目
+     */
+    public VersionedResponseCache.Entry getAllRoomsCached(int current, int size, Long cursor,
+                                                         Room.RoomStatus status, Room.GameMode gameMode) {
+        validatePage(current, size);
+        String key = "all:" + current + ":" + size + ":" + cursor + ":" + status + ":" + gameMode;
+        return roomListCache.get(key, roomManager.getDirectoryVersion(),
+                () -> getAllRooms(current, size, cursor, status, gameMode));
+    }
+
+    /**
+     * 获取可加入房间列表的缓存响应（含ETag），参数同 {@link #getAvailableRooms}
+     *
+     * @return 缓存条目
+     */
+    public VersionedResponseCache.Entry getAvailableRoomsCached(int current, int size, Long cursor,
+                                                               Room.GameMode gameMode) {
+        validatePage(current, size);
+        String key = "available:" + current + ":" + size + ":" + cursor + ":" + gameMode;
+        return roomListCache.get(key, roomManager.getDirectoryVersion(),
+                () -> getAvailableRooms(current, size, cursor, gameMode));
+    }
+
+    /**
+     * 分页参数校验
+     */
+    private void validatePage(int current, int size) {
+        if (current < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "页码必须大于0");
+        }
+        if (size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "每页大小必须在1-100之间");
+        }
+    }
+
+    /**
+     * 将目录分页结果转换为响应
+     *
+     * @param page    分页结果
      * @param current 当前页码
      * @param size    每页大小
      * @return 分页响应
      */
-    private RoomResponse paginateRooms(List<Room> rooms, int current, int size) {
+    private RoomResponse toRoomResponse(RoomDirectory.Page page, int current, int size)
+            throws JsonProcessingException {
         RoomResponse response = new RoomResponse();
-
-        // 设置分页基本信息
         response.setCurrent(current);
         response.setSize(size);
-        response.setTotal(rooms.size());
-
-        // 计算分页范围
-        int totalRecords = rooms.size();
-        int startIndex = (current - 1) * size;
-        int endIndex = Math.min(startIndex + size, totalRecords);
+        response.setTotal(page.getTotal());
+        response.setNextCursor(page.getNextCursor());
 
-        // 如果开始索引超出范围，返回空列表
-        if (startIndex >= totalRecords) {
-            response.setRooms(List.of());
-            return response;
+        // 列表条目直接复用各房间当前版本的预序列化JSON
+        List<RawJson> rooms = new ArrayList<>(page.getRooms().size());
+        for (Room room : page.getRooms()) {
+            rooms.add(room.toRoomJson(objectMapper));
         }
-
-        // 获取当前页的数据并转换为RoomVO列表
-        List<RoomVO> roomVOList = rooms.subList(startIndex, endIndex)
-                .stream()
-                .map(Room::toRoomVO)
-                .collect(java.util.stream.Collectors.toList());
-
-        response.setRooms(roomVOList);
+        response.setRooms(rooms);
         return response;
     }
 
@@ -226,7 +281,7 @@ public class RoomService {
             // 7. 向房间内所有玩家广播房间状态更新
             broadcastRoomUpdate(updatedRoom);
 
-            // 8. 返回成功响应
+            // 8. 返回成功响应（聊天历史由连接处理器在响应写出之后推送）
             return WebSocketMsg.response(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_JOIN, roomVO);
 
         } catch (Exception e) {
@@ -243,17 +298,15 @@ public class RoomService {
      */
     private void  broadcastRoomUpdate(Room room) {
         try {
-            RoomVO roomVO = room.toRoomVO();
-            String message = objectMapper.writeValueAsString(
-                WebSocketMsg.push(ModuleType.ROOM, CmdType.ROOM_MEMBERS_PUSH, roomVO)
+            // 复用房间当前版本的预序列化JSON，同一版本内不重复序列化RoomVO
+            RawJson roomJson = room.toRoomJson(objectMapper);
+            String message = eventStreamManager.publish(
+                EventStreamManager.roomStream(room.getRoomId()),
+                WebSocketMsg.push(ModuleType.ROOM, CmdType.ROOM_MEMBERS_PUSH, roomJson)
             );
 
-            // 向房间内每个玩家发送更新消息
-            for (Player player : room.getAllPlayers().values()) {
-                if (connectionManager.isUserOnline(player.getUserId())) {
-                    connectionManager.sendMessageToUser(player.getUserId(), message);
-                }
-            }
+            // 通过房间广播组一次写出给所有在线成员
+            room.getBroadcastGroup().broadcast(message);
 
             log.debug("房间状态更新已广播: roomId={}, playerCount={}",
                      room.getRoomId(), room.getCurrentPlayerCount());
@@ -263,6 +316,62 @@ public class RoomService {
         }
     }
 
+    /**
+     * 房间聊天：校验后写入房间聊天记录，由聊天管理器在下一个推送周期合并广播
+     *
+     * @param msg WebSocket消息
+     * @param connectionContext 连接上下文
+     * @return 响应消息（携带消息序号）
+     */
+    public WebSocketMsg<?> sendChat(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
+        try {
+            // 1. 从ConnectionContext获取用户ID
+            Long userId = connectionContext.getUserId();
+            if (userId == null) {
+                return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       401, "用户未认证或连接无效");
+            }
+
+            // 2. 解析请求数据
+            RoomChatRequest request;
+            if (msg.getData() instanceof Map) {
+                request = objectMapper.convertValue(msg.getData(), RoomChatRequest.class);
+            } else {
+                return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       400, "请求参数格式错误");
+            }
+
+            // 3. 内容校验
+            String content = request.getContent() != null ? request.getContent().trim() : "";
+            if (content.isEmpty()) {
+                return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       400, "聊天内容不能为空");
+            }
+            if (content.length() > chatMaxLength) {
+                return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       400, "聊天内容不能超过" + chatMaxLength + "个字符");
+            }
+
+            // 4. 确认发送者在房间中
+            Room room = roomManager.getPlayerRoom(userId);
+            Player sender = room != null ? room.getAllPlayers().get(userId) : null;
+            if (sender == null) {
+                return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       400, "您不在任何房间中");
+            }
+
+            // 5. 写入聊天记录，等待合并推送
+            long messageId = roomChatManager.post(room, sender, content);
+            return WebSocketMsg.response(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                       Map.of("messageId", messageId));
+
+        } catch (Exception e) {
+            log.error("房间聊天失败: msg={}, error={}", msg, e.getMessage(), e);
+            return WebSocketMsg.error(msg.getRequestId(), ModuleType.ROOM, CmdType.ROOM_CHAT,
+                                   500, "服务器内部错误");
+        }
+    }
+
     public WebSocketMsg<RoomVO> leaveRoom(WebSocketMsg<?> msg, ConnectionContext connectionContext) {
         try {
             // 1. 从ConnectionContext获取用户ID
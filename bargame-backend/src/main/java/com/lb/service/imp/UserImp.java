@@ -2,18 +2,33 @@ package com.lb.service.imp;
 
 import com.lb.config.AuthConfig;
 import com.lb.dto.req.UserRequestDto;
+import com.lb.dto.resp.UserPageResponse;
 import com.lb.dto.resp.UserResponseDto;
 import com.lb.entity.UserEntity;
 import com.lb.exp.UserAlreadyExistsException;
+import com.lb.manager.EmailFilterManager;
 import com.lb.mapper.UserMapper;
 import com.lb.service.UserService;
+import com.lb.util.VersionedResponseCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class UserImp implements UserService {
@@ -27,12 +42,45 @@ public class UserImp implements UserService {
     @Autowired
     private AuthConfig authConfig;
 
+    @Autowired
+    private EmailFilterManager emailFilterManager;
+
+    // 用户表版本号，经本服务写入用户时递增；超过存活时间后也递增，
+    // 使其他节点或直接写入数据库的用户最多延迟一个存活时间可见
+    private final AtomicLong userListVersion = new AtomicLong();
+
+    // 当前版本号开始的时间
+    private volatile long userListVersionAt = System.currentTimeMillis();
+
+    /**
+     * 用户列表缓存的存活时间（毫秒），超过后按新版本重新查询
+     */
+    @Value("${user.list-cache.ttl-ms:5000}")
+    private long userListCacheTtlMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 用户列表响应缓存，按用户表版本号失效
+    private final VersionedResponseCache userListCache = new VersionedResponseCache("users", 1024, objectMapper);
+
+    // 流式输出时每写出多少行刷新一次
+    private static final int STREAM_FLUSH_ROWS = 256;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        // 过滤器只包含本节点启动扫描与本节点注册的邮箱，其他节点新注册的用户在这里会被判定为不存在，
+        // 认证不能依据它跳过数据库；判定结果只用于统计误判率，并把漏掉的邮箱补入本节点过滤器
+        boolean mightExist = emailFilterManager.mightExist(username);
         UserEntity user = UserMapper.findByEmail(username);
         if (user == null) {
+            if (mightExist) {
+                emailFilterManager.recordFalsePositive();
+            }
             throw new UsernameNotFoundException("用户不存在");
         }
+        if (!mightExist) {
+            emailFilterManager.add(user.getEmail());
+        }
 
         System.out.println("从数据库加载用户信息：");
         System.out.println("邮箱：" + user.getEmail());
@@ -41,32 +89,110 @@ public class UserImp implements UserService {
         return user;
     }
 
+    /**
+     * 按ID键集分页获取用户列表
+     *
+     * @param afterId 上一页返回的nextCursor，null表示第一页
+     * @param limit 每页大小（1-100）
+     * @return 分页用户列表
+     */
     @Override
-    public List<UserResponseDto> getAllUser() {
-        List<UserEntity> userList = UserMapper.selectList(null);
-        return userList.stream()
-                .map(this::userEntityToUserRespDto)
-                .collect(Collectors.toList());
+    public UserPageResponse getUserPage(Long afterId, int limit) {
+        validateLimit(limit);
+        // 多取一条判断是否还有下一页
+        List<UserEntity> rows = UserMapper.selectPageAfter(afterId != null ? afterId : 0L, limit + 1);
+        boolean hasMore = rows.size() > limit;
+
+        List<UserResponseDto> users = new ArrayList<>(Math.min(rows.size(), limit));
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            users.add(UserResponseDto.from(rows.get(i)));
+        }
+
+        UserPageResponse response = new UserPageResponse();
+        response.setUsers(users);
+        response.setSize(users.size());
+        response.setNextCursor(hasMore ? users.get(users.size() - 1).getId() : null);
+        return response;
+    }
+
+    /**
+     * 获取用户分页的缓存响应（含ETag），用户表未变化时复用已序列化的响应体
+     */
+    @Override
+    public VersionedResponseCache.Entry getUserPageCached(Long afterId, int limit) {
+        validateLimit(limit);
+        return userListCache.get(afterId + ":" + limit, currentUserListVersion(), () -> getUserPage(afterId, limit));
+    }
+
+    /**
+     * 获取用户表当前版本号，当前版本超过存活时间时先递增
+     * 并发下可能多递增一次，只会多一次缓存失效
+     */
+    private long currentUserListVersion() {
+        long now = System.currentTimeMillis();
+        if (now - userListVersionAt >= userListCacheTtlMs) {
+            userListVersionAt = now;
+            return userListVersion.incrementAndGet();
+        }
+        return userListVersion.get();
+    }
+
+    /**
+     * 以JSON数组流式输出ID大于afterId的全部用户
+     * 逐行读取MyBatis游标并直接写出，内存占用与用户总数无关；游标须在事务内遍历
+     *
+     * @param afterId 起始游标，null表示从头开始
+     * @param out 输出流（写完后关闭）
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUsers(Long afterId, OutputStream out) throws IOException {
+        try (Cursor<UserEntity> cursor = UserMapper.streamAfter(afterId != null ? afterId : 0L);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            int written = 0;
+            for (UserEntity user : cursor) {
+                generator.writeObject(UserResponseDto.from(user));
+                if (++written % STREAM_FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "每页大小必须在1-100之间");
+        }
     }
 
     @Override
     public UserResponseDto createUser(UserRequestDto userRequestDto) {
-        UserEntity foundUser = UserMapper.findByEmail(userRequestDto.getEmail());
-        if (foundUser != null) {
-            throw new UserAlreadyExistsException("邮箱 " + userRequestDto.getEmail() + " 已存在");
+        // 过滤器判定一定未注册时跳过查重查询：过滤器可能缺少其他节点注册的邮箱，
+        // 此时由邮箱唯一索引兜底（db/user_email_unique.sql），冲突同样按已存在处理
+        if (emailFilterManager.mightExist(userRequestDto.getEmail())) {
+            UserEntity foundUser = UserMapper.findByEmail(userRequestDto.getEmail());
+            if (foundUser != null) {
+                throw new UserAlreadyExistsException("邮箱 " + userRequestDto.getEmail() + " 已存在");
+            }
+            emailFilterManager.recordFalsePositive();
         }
 
         UserEntity user = this.userReqDtoToUserEntity(userRequestDto);
         user.setPassword(authConfig.passwordEncoder().encode(user.getPassword()));
-        UserMapper.insert(user);
-        return this.userEntityToUserRespDto(user);
+        try {
+            UserMapper.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw new UserAlreadyExistsException("邮箱 " + userRequestDto.getEmail() + " 已存在");
+        }
+        emailFilterManager.add(user.getEmail());
+        userListVersion.incrementAndGet();
+        userListVersionAt = System.currentTimeMillis();
+        return UserResponseDto.from(user);
     }
 
     public UserEntity userReqDtoToUserEntity(UserRequestDto userReqDto) {
         return this.modelMapper.map(userReqDto, UserEntity.class);
     }
-
-    public UserResponseDto userEntityToUserRespDto(UserEntity user) {
-        return this.modelMapper.map(user, UserResponseDto.class);
-    }
 }
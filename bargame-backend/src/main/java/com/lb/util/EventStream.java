@@ -0,0 +1,108 @@
+package com.lb.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 事件流
+ * 职责：为一个游戏或房间的推送分配单调递增的序号，并在有界环形缓冲中保留最近的已序列化消息
+ * 断线重连时按客户端最后收到的序号补发缺失事件；缺口已被淘汰时由调用方回退为全量快照
+ *
+ * 个性化推送（每个玩家内容不同）共享同一个序号，按目标用户分别记录
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class EventStream {
+
+    /**
+     * 缓冲条目
+     */
+    private static final class Entry {
+        private final long seq;
+        private final Long targetUserId;
+        private final String json;
+
+        private Entry(long seq, Long targetUserId, String json) {
+            this.seq = seq;
+            this.targetUserId = targetUserId;
+            this.json = json;
+        }
+    }
+
+    private final int capacity;
+
+    private final ArrayDeque<Entry> buffer;
+
+    // 当前已分配的最大序号
+    private long lastSeq;
+
+    // 已被淘汰条目中的最大序号，客户端序号小于它时无法完整补发
+    private long evictedSeq;
+
+    public EventStream(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.buffer = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * 分配下一个序号
+     *
+     * @return 新序号（从1开始）
+     */
+    public synchronized long nextSeq() {
+        return ++lastSeq;
+    }
+
+    /**
+     * 记录一条已序列化的事件
+     *
+     * @param seq 事件序号（由nextSeq分配）
+     * @param targetUserId 目标用户ID，null表示发给流内所有成员
+     * @param json 序列化后的消息
+     */
+    public synchronized void append(long seq, Long targetUserId, String json) {
+        if (buffer.size() >= capacity) {
+            evictedSeq = Math.max(evictedSeq, buffer.pollFirst().seq);
+        }
+        buffer.addLast(new Entry(seq, targetUserId, json));
+    }
+
+    /**
+     * 获取指定用户在某序号之后错过的事件
+     *
+     * @param afterSeq 客户端最后收到的序号
+     * @param userId 用户ID
+     * @return 按序号排列的消息列表；缺口已被淘汰或序号不属于本流时返回null
+     */
+    public synchronized List<String> replaySince(long afterSeq, Long userId) {
+        if (afterSeq < evictedSeq || afterSeq > lastSeq) {
+            return null;
+        }
+        List<Entry> missed = new ArrayList<>();
+        for (Entry entry : buffer) {
+            if (entry.seq > afterSeq && (entry.targetUserId == null || entry.targetUserId.equals(userId))) {
+                missed.add(entry);
+            }
+        }
+        // 个性化推送与广播可能交错写入，按序号稳定排序后返回
+        missed.sort(Comparator.comparingLong(entry -> entry.seq));
+
+        List<String> messages = new ArrayList<>(missed.size());
+        for (Entry entry : missed) {
+            messages.add(entry.json);
+        }
+        return messages;
+    }
+
+    /**
+     * 获取当前已分配的最大序号
+     *
+     * @return 最大序号，尚无事件时为0
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+}
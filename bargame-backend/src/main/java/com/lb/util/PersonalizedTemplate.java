@@ -0,0 +1,70 @@
+package com.lb.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 个性化消息模板
+ * 职责：将一条推送中所有玩家共享的部分只序列化一次，发送时再拼入每个玩家的私有片段
+ *
+ * 用法：共享消息中的私有字段先置为null并序列化，以 "字段名":null 为界切分为前缀与后缀，
+ * 渲染时输出 前缀 + "字段名": + 私有片段 + 后缀
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class PersonalizedTemplate {
+
+    private final ObjectMapper objectMapper;
+
+    // 私有片段之前的部分（包含 "字段名":）
+    private final String prefix;
+
+    // 私有片段之后的部分
+    private final String suffix;
+
+    private PersonalizedTemplate(ObjectMapper objectMapper, String prefix, String suffix) {
+        this.objectMapper = objectMapper;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param objectMapper 序列化器
+     * @param sharedMessage 共享消息，私有字段必须为null
+     * @param fieldName 私有字段名
+     * @return 模板
+     * @throws IllegalStateException 共享消息中找不到唯一的私有字段占位
+     */
+    public static PersonalizedTemplate compile(ObjectMapper objectMapper, Object sharedMessage, String fieldName)
+            throws JsonProcessingException {
+        String json = objectMapper.writeValueAsString(sharedMessage);
+        String placeholder = "\"" + fieldName + "\":null";
+
+        int index = json.indexOf(placeholder);
+        if (index == -1 || index != json.lastIndexOf(placeholder)) {
+            throw new IllegalStateException("无法定位个性化字段占位: " + fieldName);
+        }
+
+        int valueStart = index + placeholder.length() - "null".length();
+        return new PersonalizedTemplate(objectMapper, json.substring(0, valueStart),
+                json.substring(index + placeholder.length()));
+    }
+
+    /**
+     * 渲染单个玩家的完整消息
+     *
+     * @param fragment 私有字段的值
+     * @return 完整的JSON字符串
+     */
+    public String render(Object fragment) throws JsonProcessingException {
+        String fragmentJson = objectMapper.writeValueAsString(fragment);
+        return new StringBuilder(prefix.length() + fragmentJson.length() + suffix.length())
+                .append(prefix)
+                .append(fragmentJson)
+                .append(suffix)
+                .toString();
+    }
+}
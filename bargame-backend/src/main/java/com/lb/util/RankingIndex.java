@@ -0,0 +1,296 @@
+package com.lb.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 排名索引
+ * 职责：基于带子树大小的Treap维护 (分数降序, ID升序) 的有序集合
+ * 排名查询、分数更新均为 O(log n)，Top-K 分页为 O(log n + K)
+ * 排名采用竞赛排名：分数相同的成员名次相同
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class RankingIndex {
+
+    /**
+     * Treap节点
+     */
+    private static final class Node {
+        private final long id;
+        private final long score;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(long id, long score, int priority) {
+            this.id = id;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * 排名条目
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        /** 成员ID */
+        private final long id;
+        /** 分数 */
+        private final long score;
+        /** 名次，从1开始 */
+        private final int rank;
+    }
+
+    // 成员ID -> 当前分数，用于更新时定位旧节点
+    private final Map<Long, Long> scores = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 仅在写锁内使用
+    private final Random random = new Random();
+
+    private Node root;
+
+    // ==================== 写操作 ====================
+
+    /**
+     * 新增或更新成员分数
+     *
+     * @param id 成员ID
+     * @param score 新分数
+     */
+    public void update(long id, long score) {
+        lock.writeLock().lock();
+        try {
+            Long oldScore = scores.put(id, score);
+            if (oldScore != null) {
+                if (oldScore == score) {
+                    return;
+                }
+                root = erase(root, id, oldScore);
+            }
+            Node node = new Node(id, score, random.nextInt());
+            Node[] parts = split(root, id, score);
+            root = merge(merge(parts[0], node), parts[1]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除成员
+     *
+     * @param id 成员ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Long oldScore = scores.remove(id);
+            if (oldScore != null) {
+                root = erase(root, id, oldScore);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== 读操作 ====================
+
+    /**
+     * 查询成员名次
+     *
+     * @param id 成员ID
+     * @return 名次（从1开始），成员不存在返回0
+     */
+    public int rankOf(long id) {
+        lock.readLock().lock();
+        try {
+            Long score = scores.get(id);
+            return score != null ? countGreater(score) + 1 : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询成员分数
+     *
+     * @param id 成员ID
+     * @return 分数，成员不存在返回null
+     */
+    public Long scoreOf(long id) {
+        lock.readLock().lock();
+        try {
+            return scores.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取Top-K分页
+     *
+     * @param offset 起始位置（从0开始）
+     * @param limit 条目数量
+     * @return 排名条目列表
+     */
+    public List<Entry> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Node> nodes = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - offset)));
+            collect(root, Math.max(0, offset), limit, nodes);
+
+            List<Entry> entries = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                entries.add(new Entry(node.id, node.score, countGreater(node.score) + 1));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取成员总数
+     *
+     * @return 成员数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== Treap内部实现 ====================
+
+    /**
+     * 排序规则：分数降序，分数相同按ID升序
+     */
+    private static int compare(long idA, long scoreA, long idB, long scoreB) {
+        if (scoreA != scoreB) {
+            return scoreA > scoreB ? -1 : 1;
+        }
+        return Long.compare(idA, idB);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static Node refresh(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    /**
+     * 按键拆分：返回 [严格排在键之前的节点, 其余节点]
+     */
+    private static Node[] split(Node node, long id, long score) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(node.id, node.score, id, score) < 0) {
+            Node[] parts = split(node.right, id, score);
+            node.right = parts[0];
+            return new Node[]{refresh(node), parts[1]};
+        }
+        Node[] parts = split(node.left, id, score);
+        node.left = parts[1];
+        return new Node[]{parts[0], refresh(node)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return refresh(left);
+        }
+        right.left = merge(left, right.left);
+        return refresh(right);
+    }
+
+    private static Node erase(Node node, long id, long score) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(id, score, node.id, node.score);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = erase(node.left, id, score);
+        } else {
+            node.right = erase(node.right, id, score);
+        }
+        return refresh(node);
+    }
+
+    /**
+     * 统计分数严格大于指定分数的成员数量
+     */
+    private int countGreater(long score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 中序遍历收集 [offset, offset + limit) 区间的节点，按子树大小剪枝
+     */
+    private static void collect(Node node, int offset, int limit, List<Node> out) {
+        if (node == null || out.size() >= limit) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (offset < leftSize) {
+            collect(node.left, offset, limit, out);
+        }
+        if (out.size() < limit && offset <= leftSize) {
+            out.add(node);
+        }
+        if (out.size() < limit) {
+            collect(node.right, Math.max(0, offset - leftSize - 1), limit, out);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.lb.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 定长环形缓冲区
+ * 职责：保留最近写入的固定条数元素，写满后覆盖最旧的元素，内存占用不随写入量增长
+ *
+ * 非线程安全，由调用方加锁
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class RingBuffer<T> {
+
+    private final Object[] elements;
+
+    // 下一个写入位置
+    private int head;
+
+    private int size;
+
+    /**
+     * @param capacity 容量
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * 写入元素，已满时覆盖最旧的元素
+     *
+     * @param element 元素
+     */
+    public void add(T element) {
+        elements[head] = element;
+        head = (head + 1) % elements.length;
+        if (size < elements.length) {
+            size++;
+        }
+    }
+
+    /**
+     * 按写入顺序（从旧到新）复制当前元素
+     *
+     * @return 元素列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        List<T> result = new ArrayList<>(size);
+        int start = (head - size + elements.length) % elements.length;
+        for (int i = 0; i < size; i++) {
+            result.add((T) elements[(start + i) % elements.length]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
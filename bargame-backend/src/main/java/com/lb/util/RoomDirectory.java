@@ -0,0 +1,279 @@
+package com.lb.util;
+
+import com.lb.entity.Room;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 房间目录索引
+ * 职责：按房间ID降序（即创建时间由新到旧）维护房间的有序索引，
+ * 并按 状态 × 游戏模式 × 是否有空位 的每种过滤组合维护组合索引，支持键集游标分页
+ *
+ * 每个过滤维度都有“不过滤”一档，房间同时进入其键对应的全部组合（至多8个），
+ * 任意过滤组合的查询都直接命中一个恰好匹配的索引，只遍历游标之后的一段，开销与页大小相关而与房间总数无关；
+ * 索引在房间创建、成员变动、状态变化时由RoomManager调用 {@link #update(Room)} 维护；
+ * 目录版本号在任一房间的列表视图变化时递增，供HTTP列表接口生成ETag
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class RoomDirectory {
+
+    /**
+     * 有序ID索引，带独立计数（ConcurrentSkipListSet.size() 为O(n)）
+     */
+    private static final class IdIndex {
+        private final NavigableSet<Long> ids = new ConcurrentSkipListSet<Long>().descendingSet();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private void add(Long roomId) {
+            if (ids.add(roomId)) {
+                size.incrementAndGet();
+            }
+        }
+
+        private void remove(Long roomId) {
+            if (ids.remove(roomId)) {
+                size.decrementAndGet();
+            }
+        }
+
+        private void clear() {
+            ids.clear();
+            size.set(0);
+        }
+    }
+
+    /**
+     * 房间上次入索引时的键，更新时据此从旧索引中移除
+     */
+    private static final class IndexedKeys {
+        private final Room.RoomStatus status;
+        private final Room.GameMode gameMode;
+        private final boolean joinable;
+
+        private IndexedKeys(Room room) {
+            this.status = room.getRoomStatus();
+            this.gameMode = room.getGameMode();
+            this.joinable = room.canJoin();
+        }
+    }
+
+    /**
+     * 分页结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Page {
+        /** 当前页房间 */
+        private final List<Room> rooms;
+        /** 下一页游标（本页最后一个房间ID），没有更多时为null */
+        private final Long nextCursor;
+        /** 所查询索引中的房间总数 */
+        private final int total;
+    }
+
+    // 房间ID -> 房间
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+
+    // 房间ID -> 上次入索引时的键
+    private final Map<Long, IndexedKeys> indexedKeys = new ConcurrentHashMap<>();
+
+    private static final Room.RoomStatus[] NO_STATUS = {null};
+
+    private static final Room.GameMode[] NO_MODE = {null};
+
+    private static final int STATUS_SLOTS = Room.RoomStatus.values().length + 1;
+
+    private static final int MODE_SLOTS = Room.GameMode.values().length + 1;
+
+    // [(状态槽 * MODE_SLOTS + 模式槽) * 2 + 是否只含可加入] -> 房间，状态/模式槽的最后一档表示不过滤
+    private final IdIndex[] indexes = new IdIndex[STATUS_SLOTS * MODE_SLOTS * 2];
+
+    // 全部房间
+    private final IdIndex all;
+
+    // 目录版本号
+    private final AtomicLong version = new AtomicLong();
+
+    public RoomDirectory() {
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new IdIndex();
+        }
+        all = index(null, null, false);
+    }
+
+    // ==================== 维护相关 ====================
+
+    /**
+     * 新增或刷新房间的索引（创建、成员变动、状态变化后调用）
+     *
+     * @param room 房间
+     */
+    public synchronized void update(Room room) {
+        Long roomId = room.getRoomId();
+        IndexedKeys previous = indexedKeys.get(roomId);
+        IndexedKeys current = new IndexedKeys(room);
+        if (previous == null || previous.status != current.status
+                || previous.gameMode != current.gameMode || previous.joinable != current.joinable) {
+            if (previous != null) {
+                unindex(roomId, previous);
+            }
+
+            rooms.put(roomId, room);
+            indexedKeys.put(roomId, current);
+            forEachIndex(current, index -> index.add(roomId));
+        }
+        // 索引键未变时房间视图（如人数）仍可能变化，同样推进版本号
+        touch();
+    }
+
+    /**
+     * 移除房间（解散或无成员时调用）
+     *
+     * @param roomId 房间ID
+     */
+    public synchronized void remove(Long roomId) {
+        IndexedKeys previous = indexedKeys.remove(roomId);
+        if (previous != null) {
+            unindex(roomId, previous);
+        }
+        rooms.remove(roomId);
+        touch();
+    }
+
+    /**
+     * 清空目录
+     */
+    public synchronized void clear() {
+        rooms.clear();
+        indexedKeys.clear();
+        for (IdIndex index : indexes) {
+            index.clear();
+        }
+        touch();
+    }
+
+    /**
+     * 推进目录版本号（房间视图变化但索引键未变时同样需要调用）
+     * 必须在数据修改完成之后调用：读取方先取版本号再读数据，
+     * 先推进版本号会让并发读取方把旧数据缓存在新版本号下
+     */
+    public void touch() {
+        version.incrementAndGet();
+    }
+
+    // ==================== 查询相关 ====================
+
+    /**
+     * 分页查询房间
+     *
+     * @param status 状态过滤，null表示不过滤
+     * @param gameMode 游戏模式过滤，null表示不过滤
+     * @param joinableOnly 是否只返回可加入的房间
+     * @param cursor 上一页返回的游标，null表示第一页
+     * @param skip 无游标时跳过的条目数（兼容页码分页）
+     * @param limit 每页大小
+     * @return 分页结果
+     */
+    public Page page(Room.RoomStatus status, Room.GameMode gameMode, boolean joinableOnly,
+                     Long cursor, int skip, int limit) {
+        // 组合索引恰好覆盖全部过滤条件，遍历时无需逐条校验
+        IdIndex source = index(status, gameMode, joinableOnly);
+
+        NavigableSet<Long> range = cursor != null ? source.ids.tailSet(cursor, false) : source.ids;
+        Iterator<Long> iterator = range.iterator();
+        int toSkip = cursor != null ? 0 : Math.max(0, skip);
+
+        List<Room> page = new ArrayList<>(limit);
+        Long lastId = null;
+        boolean hasMore = false;
+        while (iterator.hasNext()) {
+            Long roomId = iterator.next();
+            Room room = rooms.get(roomId);
+            if (room == null) {
+                continue;
+            }
+            if (toSkip > 0) {
+                toSkip--;
+                continue;
+            }
+            if (page.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            page.add(room);
+            lastId = roomId;
+        }
+
+        return new Page(page, hasMore ? lastId : null, source.size.get());
+    }
+
+    /**
+     * 获取目录版本号，版本号不变时同一查询的结果不变
+     *
+     * @return 目录版本号
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 获取目录中的房间总数
+     *
+     * @return 房间数量
+     */
+    public int size() {
+        return all.size.get();
+    }
+
+    /**
+     * 获取指定状态的房间数量
+     *
+     * @param status 房间状态
+     * @return 房间数量
+     */
+    public int countByStatus(Room.RoomStatus status) {
+        return index(status, null, false).size.get();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void unindex(Long roomId, IndexedKeys keys) {
+        forEachIndex(keys, index -> index.remove(roomId));
+    }
+
+    /**
+     * 获取过滤组合对应的索引，null表示该维度不过滤
+     */
+    private IdIndex index(Room.RoomStatus status, Room.GameMode gameMode, boolean joinableOnly) {
+        int statusSlot = status != null ? status.ordinal() : STATUS_SLOTS - 1;
+        int modeSlot = gameMode != null ? gameMode.ordinal() : MODE_SLOTS - 1;
+        return indexes[(statusSlot * MODE_SLOTS + modeSlot) * 2 + (joinableOnly ? 1 : 0)];
+    }
+
+    /**
+     * 遍历房间键所属的全部组合索引：状态、模式各取“本身/不过滤”，可加入的房间另入只含可加入的一档
+     */
+    private void forEachIndex(IndexedKeys keys, Consumer<IdIndex> action) {
+        for (Room.RoomStatus status : keys.status != null ? new Room.RoomStatus[]{keys.status, null} : NO_STATUS) {
+            for (Room.GameMode mode : keys.gameMode != null ? new Room.GameMode[]{keys.gameMode, null} : NO_MODE) {
+                action.accept(index(status, mode, false));
+                if (keys.joinable) {
+                    action.accept(index(status, mode, true));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.lb.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式ID生成器（Snowflake风格）
+ * 职责：为房间、游戏等内存对象分配跨节点、跨重启唯一的ID
+ *
+ * ID布局（共53位，保证前端Number可精确表示）：
+ * 41位毫秒时间戳（相对2025-01-01） | 5位节点ID | 7位毫秒内序号
+ *
+ * 时间戳与序号打包在一个AtomicLong中通过CAS推进，无锁且单节点内严格递增；
+ * 同一毫秒内序号用尽或时钟回拨时沿用上次时间戳继续递增（向未来借用），不阻塞等待
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class SnowflakeIdGenerator {
+
+    /**
+     * 起始纪元：2025-01-01T00:00:00Z
+     */
+    private static final long EPOCH = 1735689600000L;
+
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 7;
+
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    /**
+     * 当前节点ID（0-31），多实例部署时每个节点必须不同
+     */
+    @Value("${id-generator.node-id:0}")
+    private long nodeId;
+
+    // 上次分配的状态：时间戳 << SEQUENCE_BITS | 序号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator() {
+    }
+
+    public SnowflakeIdGenerator(long nodeId) {
+        this.nodeId = nodeId;
+        validateNodeId();
+    }
+
+    @PostConstruct
+    public void validateNodeId() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("id-generator.node-id 必须在0-" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        log.info("ID生成器已初始化: nodeId={}", nodeId);
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return 新ID，单节点内严格递增
+     */
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH;
+        long prev;
+        long next;
+        do {
+            prev = state.get();
+            long candidate = now << SEQUENCE_BITS;
+            // 进入新的毫秒从序号0开始，否则在上次状态上加一（序号溢出时自然进位到下一毫秒）
+            next = candidate > prev ? candidate : prev + 1;
+        } while (!state.compareAndSet(prev, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << TIMESTAMP_SHIFT) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * 从ID中解析生成时间
+     *
+     * @param id 由本生成器分配的ID
+     * @return 生成时的毫秒时间戳
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * 从ID中解析节点ID
+     *
+     * @param id 由本生成器分配的ID
+     * @return 节点ID
+     */
+    public static long extractNodeId(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+}
@@ -0,0 +1,73 @@
+package com.lb.util;
+
+/**
+ * 令牌桶
+ * 职责：按固定速率补充令牌、以桶容量限制突发，判断一次操作是否放行
+ *
+ * 只有两个基本类型字段，判断过程无对象分配；非线程安全，
+ * 须由同一线程（如连接所在的EventLoop）访问
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class TokenBucket {
+
+    private final double ratePerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param burst 桶容量（允许的突发次数），初始为满
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("令牌桶速率与容量必须大于0: rate=" + ratePerSecond + ", burst=" + burst);
+        }
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @param nowNanos 当前时间（System.nanoTime()）
+     * @return 是否放行
+     */
+    public boolean tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 距离下一个令牌可用的时间
+     *
+     * @param nowNanos 当前时间（System.nanoTime()）
+     * @return 等待毫秒数，已有令牌时为0
+     */
+    public long millisUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / ratePerNano / 1e6);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * ratePerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
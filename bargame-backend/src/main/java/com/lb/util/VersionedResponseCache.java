@@ -0,0 +1,152 @@
+package com.lb.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按版本号缓存的HTTP响应体
+ * 职责：为只读列表接口缓存序列化后的响应体，并生成对应的强ETag，支持条件请求返回304
+ *
+ * 数据源维护一个单调递增的版本号，版本号不变时同一查询键的响应体必然相同：
+ * ETag由缓存名、缓存实例标识、版本号和查询键摘要构成，无需渲染响应体即可算出；
+ * 响应体在首次需要时渲染一次，版本号变化后旧条目在下次访问时被替换
+ *
+ * 版本号只在本进程内单调递增，重启后从0开始，各节点之间也互不相关；
+ * 实例标识每次创建缓存时随机生成，重启或换节点后旧ETag不会与新版本号碰撞
+ *
+ * @author LiarBar
+ * @version 1.0
+ */
+public class VersionedResponseCache {
+
+    /**
+     * 缓存条目：同一 (查询键, 版本号) 的ETag与惰性渲染的响应体
+     */
+    public static final class Entry {
+        private final long version;
+        private final String etag;
+        private final Supplier<?> renderer;
+        private final ObjectMapper objectMapper;
+        private volatile String body;
+
+        private Entry(long version, String etag, Supplier<?> renderer, ObjectMapper objectMapper) {
+            this.version = version;
+            this.etag = etag;
+            this.renderer = renderer;
+            this.objectMapper = objectMapper;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * 获取响应体JSON，首次调用时渲染（并发首次调用可能重复渲染，结果一致）
+         *
+         * @return 响应体JSON
+         */
+        public String getBody() {
+            String current = body;
+            if (current == null) {
+                try {
+                    current = objectMapper.writeValueAsString(renderer.get());
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("序列化响应失败: " + e.getMessage(), e);
+                }
+                body = current;
+            }
+            return current;
+        }
+    }
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final String name;
+
+    // 缓存实例标识（每次启动随机生成），区分不同进程下相同的版本号
+    private final String instanceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final int maxEntries;
+
+    private final ObjectMapper objectMapper;
+
+    // 查询键 -> 最近一次的缓存条目
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param name 缓存名，作为ETag前缀区分不同接口
+     * @param maxEntries 最大条目数，超出时整体清空（查询键组合有限，正常不会触发）
+     * @param objectMapper 序列化器
+     */
+    public VersionedResponseCache(String name, int maxEntries, ObjectMapper objectMapper) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 获取查询键在指定版本下的缓存条目
+     * 版本号须在读取数据之前取得，保证条目内容不旧于其版本号
+     *
+     * @param key 查询键（包含全部影响响应的参数）
+     * @param version 数据源当前版本号
+     * @param renderer 渲染响应对象，仅在需要响应体且未缓存时调用
+     * @return 缓存条目
+     */
+    public Entry get(String key, long version, Supplier<?> renderer) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            return entry;
+        }
+
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        Entry created = new Entry(version, etag(key, version), renderer, objectMapper);
+        entries.merge(key, created, (old, fresh) -> old.version >= fresh.version ? old : fresh);
+        return entries.getOrDefault(key, created);
+    }
+
+    /**
+     * 按ETag处理条件请求：If-None-Match命中时返回304（不渲染响应体），否则返回缓存的响应体
+     * 显式声明 no-cache（允许缓存但每次须验证），覆盖Spring Security默认的 no-store
+     *
+     * @param entry 缓存条目
+     * @param webRequest 当前请求
+     * @return HTTP响应
+     */
+    public static ResponseEntity<String> respond(Entry entry, WebRequest webRequest) {
+        if (webRequest.checkNotModified(entry.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(entry.getEtag())
+                    .cacheControl(REVALIDATE)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.getEtag())
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.getBody());
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private String etag(String key, long version) {
+        return "\"" + name + "-" + instanceId + "-" + Long.toHexString(version) + "-" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+}
@@ -0,0 +1,4 @@
+-- 用户邮箱唯一索引：注册时邮箱布隆过滤器判定“一定未注册”会跳过查重查询，
+-- 过滤器可能缺少其他节点注册或直接写入数据库的邮箱，重复注册由此索引拒绝（插入抛出DuplicateKeyException）
+-- 执行前先确认没有重复邮箱：SELECT email, COUNT(*) FROM user GROUP BY email HAVING COUNT(*) > 1;
+ALTER TABLE user ADD UNIQUE KEY uk_user_email (email);
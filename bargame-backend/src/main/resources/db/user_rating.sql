@@ -0,0 +1,9 @@
+-- 玩家战绩表：排行榜启动时从此表重建，游戏结束后由排行榜写入线程批量upsert
+CREATE TABLE IF NOT EXISTS user_rating (
+    user_id    BIGINT   NOT NULL COMMENT '用户ID，关联 user.id',
+    win_count  INT      NOT NULL DEFAULT 0 COMMENT '胜利次数',
+    lose_count INT      NOT NULL DEFAULT 0 COMMENT '失败次数',
+    rating     INT      NOT NULL DEFAULT 1000 COMMENT 'Elo积分',
+    updated_at DATETIME NULL COMMENT '更新时间',
+    PRIMARY KEY (user_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '玩家战绩';
@@ -0,0 +1,92 @@
+package com.lb.dispatcher;
+
+import com.lb.message.enums.ModuleType;
+import com.lb.metrics.MetricsRegistry;
+import com.lb.net.netty.context.NettyConnectionContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模块执行通道测试
+ * 验证连接关闭时的断联清理排在该连接已接纳的全部命令之后，且关闭后不再接纳新命令
+ */
+class ModuleLanesTest {
+
+    private ModuleLanes moduleLanes;
+
+    @BeforeEach
+    void setUp() {
+        moduleLanes = new ModuleLanes();
+        ReflectionTestUtils.setField(moduleLanes, "metricsRegistry", new MetricsRegistry());
+        for (String lane : new String[]{"hall", "room", "game", "system"}) {
+            ReflectionTestUtils.setField(moduleLanes, lane + "Threads", 2);
+            ReflectionTestUtils.setField(moduleLanes, lane + "Capacity", 100);
+        }
+        moduleLanes.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        moduleLanes.shutdown();
+    }
+
+    @Test
+    void cleanupRunsAfterQueuedCommandsOnEveryLane() throws Exception {
+        NettyConnectionContext connection = new NettyConnectionContext(new EmbeddedChannel());
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch cleaned = new CountDownLatch(1);
+
+        // ROOM通道上第一条命令阻塞，后面排队的加入房间命令须在清理之前执行
+        assertTrue(moduleLanes.submit(connection, ModuleType.ROOM, () -> await(release)));
+        assertTrue(moduleLanes.submit(connection, ModuleType.ROOM, () -> order.add("ROOM_JOIN")));
+        assertTrue(moduleLanes.submit(connection, ModuleType.GAME, () -> order.add("PLAY_CARDS")));
+
+        moduleLanes.close(connection, () -> {
+            order.add("cleanup");
+            cleaned.countDown();
+        });
+        assertFalse(moduleLanes.submit(connection, ModuleType.ROOM, () -> order.add("late")));
+
+        Thread.sleep(50);
+        assertFalse(order.contains("cleanup"), "清理不应越过仍在排队的命令");
+
+        release.countDown();
+        assertTrue(cleaned.await(5, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals("cleanup", order.get(2));
+        assertTrue(order.containsAll(List.of("ROOM_JOIN", "PLAY_CARDS")));
+        assertEquals(0, moduleLanes.getQueued(ModuleType.ROOM));
+        assertEquals(0, moduleLanes.getQueued(ModuleType.GAME));
+    }
+
+    @Test
+    void cleanupRunsImmediatelyWhenNothingWasSubmitted() {
+        NettyConnectionContext connection = new NettyConnectionContext(new EmbeddedChannel());
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        moduleLanes.close(connection, () -> order.add("cleanup"));
+
+        assertEquals(List.of("cleanup"), order);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
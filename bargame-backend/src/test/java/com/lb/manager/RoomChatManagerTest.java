@@ -0,0 +1,129 @@
+package com.lb.manager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lb.entity.Player;
+import com.lb.entity.Room;
+import com.lb.net.netty.NettyBroadcastGroup;
+import com.lb.net.netty.context.NettyConnectionContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 房间聊天管理器测试
+ * 验证一个推送周期内的消息合并为一帧广播、历史只包含已广播的消息且按容量保留最新记录
+ */
+class RoomChatManagerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private RoomChatManager chatManager;
+
+    private Room room;
+
+    private Player sender;
+
+    @BeforeEach
+    void setUp() {
+        chatManager = new RoomChatManager();
+        ReflectionTestUtils.setField(chatManager, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(chatManager, "historySize", 3);
+
+        room = new Room();
+        room.setRoomId(1000L);
+        room.setBroadcastGroup(new NettyBroadcastGroup("room-1000"));
+
+        sender = new Player();
+        sender.setUserId(1L);
+        sender.setUsername("alice");
+    }
+
+    @Test
+    void messagesWithinOnePeriodArePushedAsOneFrame() throws Exception {
+        EmbeddedChannel member = join(2L);
+
+        chatManager.post(room, sender, "hello");
+        chatManager.post(room, sender, "world");
+        flush();
+
+        JsonNode push = readPush(member);
+        assertFalse(push.path("data").path("history").asBoolean());
+        assertEquals(List.of(1L, 2L), messageIds(push));
+        assertNull(member.readOutbound());
+        assertEquals(1, chatManager.getPushFrameCount());
+    }
+
+    @Test
+    void historyContainsOnlyPushedMessages() throws Exception {
+        chatManager.post(room, sender, "pending");
+        EmbeddedChannel joiner = join(2L);
+
+        // 尚未广播的消息不进入历史，否则随后的推送会与历史重复
+        assertFalse(chatManager.sendHistory(room.getRoomId(), contextOf(joiner)));
+
+        flush();
+        assertEquals(List.of(1L), messageIds(readPush(joiner)));
+
+        assertTrue(chatManager.sendHistory(room.getRoomId(), contextOf(joiner)));
+        JsonNode history = readPush(joiner);
+        assertTrue(history.path("data").path("history").asBoolean());
+        assertEquals(List.of(1L), messageIds(history));
+    }
+
+    @Test
+    void historyKeepsTheLatestMessagesUpToCapacity() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            chatManager.post(room, sender, "message-" + i);
+        }
+        flush();
+
+        EmbeddedChannel joiner = join(2L);
+        assertTrue(chatManager.sendHistory(room.getRoomId(), contextOf(joiner)));
+        assertEquals(List.of(3L, 4L, 5L), messageIds(readPush(joiner)));
+    }
+
+    private EmbeddedChannel join(Long userId) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        NettyConnectionContext context = new NettyConnectionContext(channel);
+        context.setUserId(userId);
+        channel.attr(NettyConnectionContext.CONTEXT_ATTR).set(context);
+        room.getBroadcastGroup().add(context);
+        return channel;
+    }
+
+    private static NettyConnectionContext contextOf(EmbeddedChannel channel) {
+        return channel.attr(NettyConnectionContext.CONTEXT_ATTR).get();
+    }
+
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(chatManager, "flush");
+    }
+
+    private JsonNode readPush(EmbeddedChannel channel) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        try {
+            return objectMapper.readTree(frame.text());
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static List<Long> messageIds(JsonNode push) {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode message : push.path("data").path("messages")) {
+            ids.add(message.path("messageId").asLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,217 @@
+package com.lb.manager;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.lb.entity.Player;
+import com.lb.entity.Room;
+import com.lb.metrics.MetricsRegistry;
+import com.lb.util.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RoomManager并发压力测试
+ * 验证大量并发加入/离开下：房间不超员、玩家不会同时处于两个房间、座位计数不泄漏
+ */
+class RoomManagerConcurrencyTest {
+
+    private static final int PLAYER_COUNT = 20_000;
+
+    private static final int THREADS = 16;
+
+    private RoomManager roomManager;
+
+    private UserStateManager userStateManager;
+
+    private Logger roomManagerLogger;
+
+    private Level previousLevel;
+
+    @BeforeEach
+    void setUp() {
+        userStateManager = new UserStateManager();
+
+        ConnectionManager connectionManager = new ConnectionManager();
+        ReflectionTestUtils.setField(connectionManager, "userStateManager", userStateManager);
+        ReflectionTestUtils.setField(connectionManager, "metricsRegistry", new MetricsRegistry());
+
+        roomManager = new RoomManager();
+        ReflectionTestUtils.setField(roomManager, "idGenerator", new SnowflakeIdGenerator(0));
+        ReflectionTestUtils.setField(roomManager, "userStateManager", userStateManager);
+        ReflectionTestUtils.setField(roomManager, "eventStreamManager", new EventStreamManager());
+        ReflectionTestUtils.setField(roomManager, "connectionManager", connectionManager);
+        ReflectionTestUtils.setField(roomManager, "hallSubscriptionManager", new HallSubscriptionManager());
+        ReflectionTestUtils.setField(roomManager, "roomChatManager", new RoomChatManager());
+
+        // 争抢失败会按业务异常记录错误日志，压测期间关闭
+        roomManagerLogger = (Logger) LoggerFactory.getLogger(RoomManager.class);
+        previousLevel = roomManagerLogger.getLevel();
+        roomManagerLogger.setLevel(Level.OFF);
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomManagerLogger.setLevel(previousLevel);
+    }
+
+    @Test
+    void concurrentJoinsNeverOverfillRoom() throws Exception {
+        Room room = roomManager.createRoom(registerPlayer(1L), "race", Room.GameMode.CLASSIC, 4);
+        Long roomId = room.getRoomId();
+
+        List<Long> players = registerPlayers(100L, PLAYER_COUNT);
+        AtomicInteger joined = new AtomicInteger();
+        runConcurrently(players, playerId -> {
+            try {
+                roomManager.joinRoom(playerId, roomId);
+                joined.incrementAndGet();
+            } catch (RuntimeException ignored) {
+                // 房间已满
+            }
+        });
+
+        assertEquals(3, joined.get());
+        assertEquals(4, room.getCurrentPlayerCount());
+        int bound = 0;
+        for (Long playerId : players) {
+            if (roomManager.isPlayerInRoom(playerId)) {
+                bound++;
+                assertTrue(room.hasPlayer(playerId));
+            }
+        }
+        assertEquals(3, bound);
+    }
+
+    @Test
+    void playerJoiningManyRoomsEndsUpInExactlyOne() throws Exception {
+        List<Long> roomIds = new ArrayList<>();
+        for (long ownerId = 1; ownerId <= 64; ownerId++) {
+            roomIds.add(roomManager.createRoom(registerPlayer(ownerId), "room-" + ownerId,
+                    Room.GameMode.CLASSIC, 4).getRoomId());
+        }
+
+        Long playerId = registerPlayer(10_000L);
+        for (int round = 0; round < 200; round++) {
+            AtomicInteger joined = new AtomicInteger();
+            runConcurrently(roomIds, roomId -> {
+                try {
+                    roomManager.joinRoom(playerId, roomId);
+                    joined.incrementAndGet();
+                } catch (RuntimeException ignored) {
+                    // 已在其他房间
+                }
+            });
+
+            assertEquals(1, joined.get());
+            long memberships = roomIds.stream()
+                    .filter(roomId -> roomManager.getRoomInfo(roomId).hasPlayer(playerId))
+                    .count();
+            assertEquals(1, memberships);
+
+            roomManager.leaveRoom(playerId);
+        }
+    }
+
+    @Test
+    void concurrentJoinAndLeaveKeepsMembershipConsistent() throws Exception {
+        List<Long> roomIds = new ArrayList<>();
+        for (long ownerId = 1; ownerId <= 500; ownerId++) {
+            roomIds.add(roomManager.createRoom(registerPlayer(ownerId), "room-" + ownerId,
+                    Room.GameMode.CLASSIC, 4).getRoomId());
+        }
+
+        List<Long> players = registerPlayers(100_000L, PLAYER_COUNT);
+        runConcurrently(players, playerId -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Long roomId = roomIds.get(random.nextInt(roomIds.size()));
+                try {
+                    roomManager.joinRoom(playerId, roomId);
+                } catch (RuntimeException ignored) {
+                    // 房间已满或已在其他房间
+                }
+                if (random.nextBoolean()) {
+                    roomManager.leaveRoom(playerId);
+                }
+            }
+        });
+
+        for (Long roomId : roomIds) {
+            Room room = roomManager.getRoomInfo(roomId);
+            assertNotNull(room);
+            assertTrue(room.getCurrentPlayerCount() <= room.getMaxPlayers());
+            // 未满的房间必须仍可加入，否则说明座位计数泄漏
+            assertEquals(room.getCurrentPlayerCount() < room.getMaxPlayers(), room.canJoin());
+            for (Long memberId : room.getAllPlayers().keySet()) {
+                assertEquals(roomId, roomManager.getPlayerRoomId(memberId));
+            }
+        }
+        for (Long playerId : players) {
+            Long roomId = roomManager.getPlayerRoomId(playerId);
+            if (roomId != null) {
+                assertTrue(roomManager.getRoomInfo(roomId).hasPlayer(playerId));
+                assertEquals(roomId, userStateManager.getUserState(playerId).getRoomId());
+            }
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private Long registerPlayer(Long userId) {
+        Player player = new Player();
+        player.setUserId(userId);
+        player.setUsername("user-" + userId);
+        player.enterLobby();
+        userStateManager.addOrUpdateUserState(userId, player);
+        return userId;
+    }
+
+    private List<Long> registerPlayers(long firstId, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (long userId = firstId; userId < firstId + count; userId++) {
+            ids.add(registerPlayer(userId));
+        }
+        return ids;
+    }
+
+    private <T> void runConcurrently(List<T> items, Consumer<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(items.size());
+        try {
+            for (T item : items) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        task.accept(item);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            assertTrue(done.await(60, TimeUnit.SECONDS), "并发任务未在限定时间内完成");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.lb.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 指标注册表导出测试
+ * 验证累计计数以counter类型和 _total 后缀导出，瞬时值仍为gauge
+ */
+class MetricsRegistryTest {
+
+    @Test
+    void countersAreExportedWithCounterTypeAndTotalSuffix() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.registerGauge("bargame_ws_connections", "当前打开的WebSocket连接数", "", () -> 3);
+        registry.registerCounter("bargame_rate_limited", "按类别累计超出连接限流的请求数", "class=\"CHAT\"", () -> 7L);
+        registry.registerCounter("bargame_rate_limited", "按类别累计超出连接限流的请求数", "class=\"GAME\"", () -> 2L);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE bargame_ws_connections gauge\n"));
+        assertTrue(text.contains("# TYPE bargame_rate_limited_total counter\n"));
+        assertTrue(text.contains("bargame_rate_limited_total{class=\"CHAT\"} 7"));
+        assertTrue(text.contains("bargame_rate_limited_total{class=\"GAME\"} 2"));
+        assertFalse(text.contains("# TYPE bargame_rate_limited gauge"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.lb.net.netty;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * EventLoop阻塞调用检查扩展（经 junit-platform.properties 自动注册到全部测试）
+ * 每个用例及每个测试类结束后检查 {@link EventLoopGuard} 的违规记录，有违规时使用例失败
+ *
+ * EventLoop线程上抛出的异常会被处理器捕获，不会传到测试线程，因此须在此统一断言；
+ * 有意制造违规的用例须在自己的 @AfterEach 中清空记录
+ */
+public class EventLoopBlockingExtension implements AfterEachCallback, AfterAllCallback {
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        assertNoBlockingCalls(context.getDisplayName());
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        assertNoBlockingCalls(context.getDisplayName());
+    }
+
+    private static void assertNoBlockingCalls(String scope) {
+        long count = EventLoopGuard.getViolationCount();
+        if (count == 0) {
+            return;
+        }
+        List<String> violations = EventLoopGuard.getViolations();
+        // 先清空，避免后续用例被同一违规连带失败
+        EventLoopGuard.resetViolations();
+        fail("EventLoop线程上执行了" + count + "次阻塞调用: scope=" + scope + ", violations=" + violations);
+    }
+}
@@ -0,0 +1,84 @@
+package com.lb.net.netty;
+
+import com.lb.metrics.MetricsRegistry;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EventLoop看门狗测试
+ * 验证测试模式下EventLoop线程上的阻塞调用会失败、非EventLoop线程不受影响，以及卡顿能被探测到
+ */
+class EventLoopWatchdogTest {
+
+    private NioEventLoopGroup group;
+
+    private EventLoopWatchdog watchdog;
+
+    private boolean previousFailOnBlocking;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        previousFailOnBlocking = EventLoopGuard.isFailOnBlocking();
+        group = new NioEventLoopGroup(1);
+        watchdog = new EventLoopWatchdog();
+        ReflectionTestUtils.setField(watchdog, "metricsRegistry", new MetricsRegistry());
+        ReflectionTestUtils.setField(watchdog, "probeIntervalMs", 20L);
+        ReflectionTestUtils.setField(watchdog, "stallThresholdMs", 100L);
+        ReflectionTestUtils.setField(watchdog, "failOnBlocking", true);
+        watchdog.init();
+        watchdog.watch(group);
+        // 等待登记任务在EventLoop上执行完成
+        group.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        EventLoopGuard.resetViolations();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watchdog.unwatch(group);
+        watchdog.stop();
+        EventLoopGuard.setFailOnBlocking(previousFailOnBlocking);
+        EventLoopGuard.resetViolations();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    void blockingCallOnEventLoopFailsInTestMode() {
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> group.submit(
+                () -> EventLoopGuard.checkBlocking("UserMapper.selectById")).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertEquals(1, EventLoopGuard.getViolations().size());
+        assertTrue(EventLoopGuard.getViolations().get(0).startsWith("UserMapper.selectById"));
+    }
+
+    @Test
+    void blockingCallOffEventLoopIsAllowed() {
+        EventLoopGuard.checkBlocking("UserMapper.selectById");
+
+        assertTrue(EventLoopGuard.getViolations().isEmpty());
+    }
+
+    @Test
+    void stalledEventLoopIsReported() throws Exception {
+        group.submit(() -> {
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertTrue(watchdog.getStallCount() >= 1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.lb.net.netty;
+
+import com.lb.net.netty.context.NettyConnectionContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 广播组测试
+ * 验证返回值只统计实际写出的连接、关闭的连接被移出成员表、写成功后计入连接的发送计数，
+ * 以及Channel不再持有已移除或已清空的广播组
+ */
+class NettyBroadcastGroupTest {
+
+    @Test
+    void closedChannelsLeaveTheGroupAndAreNotCounted() {
+        NettyBroadcastGroup group = new NettyBroadcastGroup("test");
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        NettyConnectionContext firstContext = member(first, 1L);
+        NettyConnectionContext secondContext = member(second, 2L);
+        group.add(firstContext);
+        group.add(secondContext);
+
+        assertEquals(2, group.broadcast("{\"n\":1}"));
+        assertEquals(1, firstContext.getSentMessageCount());
+        assertEquals(1, secondContext.getSentMessageCount());
+
+        second.close();
+        assertEquals(1, group.size());
+        assertEquals(1, group.broadcast("{\"n\":2}"));
+        assertEquals(2, firstContext.getSentMessageCount());
+
+        release(first.readOutbound());
+        release(first.readOutbound());
+        assertNull(first.readOutbound());
+        release(second.readOutbound());
+    }
+
+    @Test
+    void closingTheReplacedChannelKeepsTheReconnectedMember() {
+        NettyBroadcastGroup group = new NettyBroadcastGroup("test");
+        EmbeddedChannel stale = new EmbeddedChannel();
+        EmbeddedChannel reconnected = new EmbeddedChannel();
+        group.add(member(stale, 1L));
+        NettyConnectionContext current = member(reconnected, 1L);
+        group.add(current);
+
+        stale.close();
+        assertEquals(1, group.size());
+        assertEquals(1, group.broadcast("{}"));
+        assertEquals(1, current.getSentMessageCount());
+        release(reconnected.readOutbound());
+    }
+
+    @Test
+    void removedAndClearedGroupsAreNotHeldByTheChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        NettyConnectionContext context = member(channel, 1L);
+        AttributeKey<Set<NettyBroadcastGroup>> groupsKey = AttributeKey.valueOf("broadcastGroups");
+
+        NettyBroadcastGroup kept = new NettyBroadcastGroup("kept");
+        kept.add(context);
+        for (int i = 0; i < 100; i++) {
+            NettyBroadcastGroup room = new NettyBroadcastGroup("room-" + i);
+            room.add(context);
+            room.add(context);
+            if (i % 2 == 0) {
+                room.remove(1L);
+            } else {
+                room.clear();
+            }
+        }
+
+        assertEquals(Set.of(kept), channel.attr(groupsKey).get());
+
+        channel.close();
+        assertEquals(0, kept.size());
+    }
+
+    private static NettyConnectionContext member(EmbeddedChannel channel, Long userId) {
+        NettyConnectionContext context = new NettyConnectionContext(channel);
+        context.setUserId(userId);
+        return context;
+    }
+
+    private static void release(Object frame) {
+        if (frame != null) {
+            ((TextWebSocketFrame) frame).release();
+        }
+    }
+}
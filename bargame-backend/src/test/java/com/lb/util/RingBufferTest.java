@@ -0,0 +1,44 @@
+package com.lb.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 定长环形缓冲区测试
+ * 验证写满前后的快照顺序（从旧到新）以及写满后覆盖最旧元素
+ */
+class RingBufferTest {
+
+    @Test
+    void snapshotKeepsInsertionOrderBeforeWrapping() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(List.of(), buffer.snapshot());
+
+        buffer.add(1);
+        buffer.add(2);
+
+        assertEquals(List.of(1, 2), buffer.snapshot());
+        assertEquals(2, buffer.size());
+        assertEquals(3, buffer.capacity());
+    }
+
+    @Test
+    void overwritesOldestOnceFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        for (int i = 1; i <= 7; i++) {
+            buffer.add(i);
+        }
+
+        assertEquals(List.of(5, 6, 7), buffer.snapshot());
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+}